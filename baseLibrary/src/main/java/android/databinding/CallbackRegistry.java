@@ -16,7 +16,10 @@
 package android.databinding;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
 
 /**
  * A utility for storing and notifying callbacks. This class supports reentrant modification
@@ -37,6 +40,17 @@ import java.util.List;
  * must be used, <code>A</code> should be some kind of containing structure that
  * the subclass may reuse between notifications.</p>
  *
+ * <p>A CallbackRegistry may be created in copy-on-write mode using
+ * {@link #CallbackRegistry(CallbackRegistry.NotifierCallback, boolean)}. In that mode, the
+ * callbacks are published as an immutable array and {@link #notifyCallbacks(Object, int, Object)}
+ * never takes the registry's lock. Adding and removing callbacks copies the array, so this mode
+ * is best suited to registries that are notified much more often than they are modified and
+ * that are notified from more than one thread.</p>
+ *
+ * <p>A callback added with {@link #add(Object, Executor)} is notified asynchronously on
+ * the given Executor instead of during {@link #notifyCallbacks(Object, int, Object)}. Its
+ * notifications are delivered one at a time, in the order that they were sent.</p>
+ *
  * @param <C> The callback type.
  * @param <T> The notification sender type. Typically this is the containing class.
  * @param <A> Opaque argument used to pass additional data beyond an int.
@@ -44,23 +58,43 @@ import java.util.List;
 public class CallbackRegistry<C, T, A> implements Cloneable {
     private static final String TAG = "CallbackRegistry";
 
+    private static final Object[] EMPTY_SNAPSHOT = new Object[0];
+
+    /**
+     * The number of callbacks above which mIndex is created. Below this, a linear scan of
+     * mCallbacks is as fast as a hash lookup and needs no extra memory.
+     */
+    private static final int INDEX_THRESHOLD = 16;
+
     /** An ordered collection of listeners waiting to be notified. */
     private List<C> mCallbacks = new ArrayList<C>();
 
     /**
-     * A bit flag for the first 64 listeners that are removed during notification.
-     * The lowest significant bit corresponds to the 0th index into mCallbacks.
-     * For a small number of callbacks, no additional array of objects needs to
-     * be allocated.
+     * Maps each callback in mCallbacks that hasn't been marked for removal to its index.
+     * This is null until there are more than INDEX_THRESHOLD callbacks. Once it exists,
+     * removing a callback only marks its removal bit and the removed callbacks are
+     * compacted out of mCallbacks in batches.
      */
-    private long mFirst64Removed = 0x0;
+    private HashMap<C, Integer> mIndex;
+
+    /** The number of callbacks in mCallbacks that have been marked for removal. */
+    private int mRemovedCount;
 
     /**
-     * Bit flags for the remaining callbacks that are removed during notification.
-     * When there are more than 64 callbacks and one is marked for removal, a dynamic
-     * array of bits are allocated for the callbacks.
+     * One bit per callback in mCallbacks that has been removed during notification or, when
+     * mIndex is in use, that is waiting to be compacted out of mCallbacks. The lowest
+     * significant bit of the first word corresponds to the 0th index into mCallbacks.
+     * This is allocated the first time a bit is set and then grown and reused.
      */
-    private long[] mRemainderRemoved;
+    private long[] mRemoved;
+
+    /**
+     * Reused copies of mRemoved, one for each nested notification. A notification skips the
+     * callbacks that were marked for removal when it started, so it walks a copy of mRemoved
+     * taken at that time. This is null until a notification starts with callbacks marked
+     * for removal.
+     */
+    private long[][] mNotificationRemoved;
 
     /** The recursion level of the notification */
     private int mNotificationLevel;
@@ -68,12 +102,46 @@ public class CallbackRegistry<C, T, A> implements Cloneable {
     /** The notification mechanism for notifying an event. */
     private final NotifierCallback<C, T, A> mNotifier;
 
+    /**
+     * true when callbacks are published through mSnapshot instead of mCallbacks.
+     */
+    private final boolean mCopyOnWrite;
+
+    /**
+     * The immutable, ordered callbacks used in copy-on-write mode. A new array is published
+     * whenever callbacks are added or removed, so a notification always walks the callbacks
+     * that were registered when it started. Removing a callback during notification removes
+     * it from all notifications started afterward, just like the bits in mRemoved do for the
+     * locking mode.
+     */
+    private volatile Object[] mSnapshot = EMPTY_SNAPSHOT;
+
+    /**
+     * Maps each callback that was added with an Executor to the queue that notifies it on
+     * that Executor. A new map is published whenever a callback is added or removed so that
+     * notifications can read it without locking. This is null when no callbacks are notified
+     * asynchronously.
+     */
+    private volatile HashMap<C, AsyncNotifier<C, T, A>> mAsyncNotifiers;
+
     /**
      * Creates an EventRegistry that notifies the event with notifier.
      * @param notifier The class to use to notify events.
      */
     public CallbackRegistry(NotifierCallback<C, T, A> notifier) {
+        this(notifier, false);
+    }
+
+    /**
+     * Creates an EventRegistry that notifies the event with notifier.
+     *
+     * @param notifier The class to use to notify events.
+     * @param copyOnWrite true to publish the callbacks as an immutable array so that
+     *                    notifications don't lock or false to synchronize all access.
+     */
+    public CallbackRegistry(NotifierCallback<C, T, A> notifier, boolean copyOnWrite) {
         mNotifier = notifier;
+        mCopyOnWrite = copyOnWrite;
     }
 
     /**
@@ -86,48 +154,64 @@ public class CallbackRegistry<C, T, A> implements Cloneable {
      * @param arg2 An opaque parameter passed to
      * {@link CallbackRegistry.NotifierCallback#onNotifyCallback(Object, Object, int, Object)}
      */
-    public synchronized void notifyCallbacks(T sender, int arg, A arg2) {
-        mNotificationLevel++;
-        notifyRecurse(sender, arg, arg2);
-        mNotificationLevel--;
-        if (mNotificationLevel == 0) {
-            if (mRemainderRemoved != null) {
-                for (int i = mRemainderRemoved.length - 1; i >= 0; i--) {
-                    final long removedBits = mRemainderRemoved[i];
-                    if (removedBits != 0) {
-                        removeRemovedCallbacks((i + 1) * Long.SIZE, removedBits);
-                        mRemainderRemoved[i] = 0;
-                    }
+    public void notifyCallbacks(T sender, int arg, A arg2) {
+        if (mCopyOnWrite) {
+            notifySnapshot(sender, arg, arg2);
+            return;
+        }
+        synchronized (this) {
+            final HashMap<C, AsyncNotifier<C, T, A>> asyncNotifiers = mAsyncNotifiers;
+            final int level = mNotificationLevel++;
+            final int callbackCount = mCallbacks.size();
+            final long[] removed = mRemovedCount == 0 ? null
+                    : copyRemoved(level, callbackCount);
+            for (int i = 0; i < callbackCount; i++) {
+                if (removed == null || (removed[i / Long.SIZE] & (1L << i)) == 0) {
+                    notifyCallback(asyncNotifiers, mCallbacks.get(i), sender, arg, arg2);
                 }
             }
-            if (mFirst64Removed != 0) {
-                removeRemovedCallbacks(0, mFirst64Removed);
-                mFirst64Removed = 0;
+            mNotificationLevel--;
+            if (mNotificationLevel == 0 && mRemovedCount != 0) {
+                removeRemovedCallbacks();
             }
         }
     }
 
     /**
-     * Notify up to the first Long.SIZE callbacks that don't have a bit set in <code>removed</code>.
+     * Copies the removal bits for the first callbackCount callbacks into the reusable
+     * array for notification level. The copy is walked instead of mRemoved so that
+     * callbacks removed during the notification are still notified by it, but are skipped
+     * by all notifications started afterward.
      *
-     * @param sender The originator. This is an opaque parameter passed to
-     * {@link CallbackRegistry.NotifierCallback#onNotifyCallback(Object, Object, int, Object)}
-     * @param arg An opaque parameter passed to
-     * {@link CallbackRegistry.NotifierCallback#onNotifyCallback(Object, Object, int, Object)}
-     * @param arg2 An opaque parameter passed to
-     * {@link CallbackRegistry.NotifierCallback#onNotifyCallback(Object, Object, int, Object)}
+     * @param level The notification level that will walk the copy.
+     * @param callbackCount The number of callbacks that the notification will walk.
+     * @return The removal bits that were set when the notification started.
      */
-    private void notifyFirst64(T sender, int arg, A arg2) {
-        final int maxNotified = Math.min(Long.SIZE, mCallbacks.size());
-        notifyCallbacks(sender, arg, arg2, 0, maxNotified, mFirst64Removed);
+    private long[] copyRemoved(int level, int callbackCount) {
+        final int wordCount = (callbackCount + Long.SIZE - 1) / Long.SIZE;
+        if (mNotificationRemoved == null) {
+            mNotificationRemoved = new long[Math.max(4, level + 1)][];
+        } else if (mNotificationRemoved.length <= level) {
+            long[][] newRemoved = new long[Math.max(level + 1, mNotificationRemoved.length * 2)][];
+            System.arraycopy(mNotificationRemoved, 0, newRemoved, 0, mNotificationRemoved.length);
+            mNotificationRemoved = newRemoved;
+        }
+        long[] removed = mNotificationRemoved[level];
+        if (removed == null || removed.length < wordCount) {
+            removed = new long[Math.max(wordCount, mRemoved.length)];
+            mNotificationRemoved[level] = removed;
+        }
+        final int copyCount = Math.min(wordCount, mRemoved.length);
+        System.arraycopy(mRemoved, 0, removed, 0, copyCount);
+        for (int i = copyCount; i < wordCount; i++) {
+            removed[i] = 0;
+        }
+        return removed;
     }
 
     /**
-     * Notify all callbacks using a recursive algorithm to avoid allocating on the heap.
-     * This part captures the callbacks beyond Long.SIZE that have no bits allocated for
-     * removal before it recurses into {@link #notifyRemainder(Object, int, A, int)}.
-     *
-     * <p>Recursion is used to avoid allocating temporary state on the heap.</p>
+     * Notify all callbacks in the currently published snapshot without locking. Used only
+     * in copy-on-write mode.
      *
      * @param sender The originator. This is an opaque parameter passed to
      * {@link CallbackRegistry.NotifierCallback#onNotifyCallback(Object, Object, int, Object)}
@@ -136,71 +220,47 @@ public class CallbackRegistry<C, T, A> implements Cloneable {
      * @param arg2 An opaque parameter passed to
      * {@link CallbackRegistry.NotifierCallback#onNotifyCallback(Object, Object, int, Object)}
      */
-    private void notifyRecurse(T sender, int arg, A arg2) {
-        final int callbackCount = mCallbacks.size();
-        final int remainderIndex = mRemainderRemoved == null ? -1 : mRemainderRemoved.length - 1;
-
-        // Now we've got all callbakcs that have no mRemainderRemoved value, so notify the
-        // others.
-        notifyRemainder(sender, arg, arg2, remainderIndex);
-
-        // notifyRemainder notifies all at maxIndex, so we'd normally start at maxIndex + 1
-        // However, we must also keep track of those in mFirst64Removed, so we add 2 instead:
-        final int startCallbackIndex = (remainderIndex + 2) * Long.SIZE;
-
-        // The remaining have no bit set
-        notifyCallbacks(sender, arg, arg2, startCallbackIndex, callbackCount, 0);
+    @SuppressWarnings("unchecked")
+    private void notifySnapshot(T sender, int arg, A arg2) {
+        final Object[] callbacks = mSnapshot;
+        final HashMap<C, AsyncNotifier<C, T, A>> asyncNotifiers = mAsyncNotifiers;
+        for (int i = 0; i < callbacks.length; i++) {
+            notifyCallback(asyncNotifiers, (C) callbacks[i], sender, arg, arg2);
+        }
     }
 
     /**
-     * Notify callbacks that have mRemainderRemoved bits set for remainderIndex. If
-     * remainderIndex is -1, the first 64 will be notified instead.
+     * Notifies a single callback, either directly or by queueing the notification on the
+     * Executor that the callback was added with. Subclasses that keep callbacks outside of
+     * this registry use this to deliver to them the way that this registry would.
      *
-     * @param sender The originator. This is an opaque parameter passed to
-     * {@link CallbackRegistry.NotifierCallback#onNotifyCallback(Object, Object, int, Object)}
-     * @param arg An opaque parameter passed to
-     * {@link CallbackRegistry.NotifierCallback#onNotifyCallback(Object, Object, int, Object)}
-     * @param arg2 An opaque parameter passed to
-     * {@link CallbackRegistry.NotifierCallback#onNotifyCallback(Object, Object, int, Object)}
-     * @param remainderIndex The index into mRemainderRemoved that should be notified.
+     * @param callback The callback to notify.
+     * @param sender The originator of the notification.
+     * @param arg The opaque notification parameter.
+     * @param arg2 The opaque notification argument.
      */
-    private void notifyRemainder(T sender, int arg, A arg2, int remainderIndex) {
-        if (remainderIndex < 0) {
-            notifyFirst64(sender, arg, arg2);
-        } else {
-            final long bits = mRemainderRemoved[remainderIndex];
-            final int startIndex = (remainderIndex + 1) * Long.SIZE;
-            final int endIndex = Math.min(mCallbacks.size(), startIndex + Long.SIZE);
-            notifyRemainder(sender, arg, arg2, remainderIndex - 1);
-            notifyCallbacks(sender, arg, arg2, startIndex, endIndex, bits);
-        }
+    protected void notifyCallback(C callback, T sender, int arg, A arg2) {
+        notifyCallback(mAsyncNotifiers, callback, sender, arg, arg2);
     }
 
     /**
-     * Notify callbacks from startIndex to endIndex, using bits as the bit status
-     * for whether they have been removed or not. bits should be from mRemainderRemoved or
-     * mFirst64Removed. bits set to 0 indicates that all callbacks from startIndex to
-     * endIndex should be notified.
+     * Notifies a single callback, either directly or by queueing the notification on the
+     * Executor that the callback was added with.
      *
-     * @param sender The originator. This is an opaque parameter passed to
-     * {@link CallbackRegistry.NotifierCallback#onNotifyCallback(Object, Object, int, Object)}
-     * @param arg An opaque parameter passed to
-     * {@link CallbackRegistry.NotifierCallback#onNotifyCallback(Object, Object, int, Object)}
-     * @param arg2 An opaque parameter passed to
-     * {@link CallbackRegistry.NotifierCallback#onNotifyCallback(Object, Object, int, Object)}
-     * @param startIndex The index into the mCallbacks to start notifying.
-     * @param endIndex One past the last index into mCallbacks to notify.
-     * @param bits A bit field indicating which callbacks have been removed and shouldn't
-     *             be notified.
-     */
-    private void notifyCallbacks(T sender, int arg, A arg2, final int startIndex,
-            final int endIndex, final long bits) {
-        long bitMask = 1;
-        for (int i = startIndex; i < endIndex; i++) {
-            if ((bits & bitMask) == 0) {
-                mNotifier.onNotifyCallback(mCallbacks.get(i), sender, arg, arg2);
-            }
-            bitMask <<= 1;
+     * @param asyncNotifiers The value of mAsyncNotifiers when the notification started.
+     * @param callback The callback to notify.
+     * @param sender The originator of the notification.
+     * @param arg The opaque notification parameter.
+     * @param arg2 The opaque notification argument.
+     */
+    private void notifyCallback(HashMap<C, AsyncNotifier<C, T, A>> asyncNotifiers, C callback,
+            T sender, int arg, A arg2) {
+        final AsyncNotifier<C, T, A> asyncNotifier =
+                asyncNotifiers == null ? null : asyncNotifiers.get(callback);
+        if (asyncNotifier == null) {
+            mNotifier.onNotifyCallback(callback, sender, arg, arg2);
+        } else {
+            asyncNotifier.enqueue(sender, arg, mNotifier.retainArgument(arg2));
         }
     }
 
@@ -210,59 +270,154 @@ public class CallbackRegistry<C, T, A> implements Cloneable {
      * @param callback The callback to add.
      */
     public synchronized void add(C callback) {
-        int index = mCallbacks.lastIndexOf(callback);
-        if (index < 0 || isRemoved(index)) {
+        if (mCopyOnWrite) {
+            final Object[] callbacks = mSnapshot;
+            if (lastIndexOf(callbacks, callback) < 0) {
+                final Object[] newCallbacks = new Object[callbacks.length + 1];
+                System.arraycopy(callbacks, 0, newCallbacks, 0, callbacks.length);
+                newCallbacks[callbacks.length] = callback;
+                mSnapshot = newCallbacks;
+            }
+            return;
+        }
+        if (indexOf(callback) < 0) {
             mCallbacks.add(callback);
+            if (mIndex != null) {
+                mIndex.put(callback, mCallbacks.size() - 1);
+            } else if (mCallbacks.size() > INDEX_THRESHOLD) {
+                buildIndex();
+            }
         }
     }
 
     /**
-     * Returns true if the callback at index has been marked for removal.
+     * Add a callback to be notified asynchronously on executor. Notifications to the callback
+     * are queued during {@link #notifyCallbacks(Object, int, Object)} and delivered on
+     * executor one at a time, in the order that they were sent, so a slow callback doesn't
+     * delay the thread sending the notification. If the callback is already in the list,
+     * another won't be added, but its subsequent notifications are delivered on executor,
+     * as are those still queued for its previous Executor. This does not affect current
+     * notifications.
      *
-     * @param index The index into mCallbacks to check.
-     * @return true if the callback at index has been marked for removal.
+     * @param callback The callback to add.
+     * @param executor The Executor that notifies callback.
+     * @see NotifierCallback#retainArgument(Object)
      */
-    private boolean isRemoved(int index) {
-        if (index < Long.SIZE) {
-            // It is in the first 64 callbacks, just check the bit.
-            final long bitMask = 1L << index;
-            return (mFirst64Removed & bitMask) != 0;
-        } else if (mRemainderRemoved == null) {
-            // It is after the first 64 callbacks, but nothing else was marked for removal.
-            return false;
+    public synchronized void add(C callback, Executor executor) {
+        if (executor == null) {
+            throw new NullPointerException("executor must not be null");
+        }
+        add(callback);
+        final AsyncNotifier<C, T, A> previous =
+                mAsyncNotifiers == null ? null : mAsyncNotifiers.get(callback);
+        if (previous != null && previous.mExecutor == executor) {
+            return;
+        }
+        final HashMap<C, AsyncNotifier<C, T, A>> asyncNotifiers = copyAsyncNotifiers();
+        if (previous == null) {
+            asyncNotifiers.put(callback,
+                    new AsyncNotifier<C, T, A>(callback, mNotifier, executor));
         } else {
-            final int maskIndex = (index / Long.SIZE) - 1;
-            if (maskIndex >= mRemainderRemoved.length) {
-                // There are some items in mRemainderRemoved, but nothing at the given index.
-                return false;
-            } else {
-                // There is something marked for removal, so we have to check the bit.
-                final long bits = mRemainderRemoved[maskIndex];
-                final long bitMask = 1L << (index % Long.SIZE);
-                return (bits & bitMask) != 0;
+            asyncNotifiers.put(callback, previous.moveTo(executor));
+        }
+        mAsyncNotifiers = asyncNotifiers;
+    }
+
+    /**
+     * @return A modifiable copy of mAsyncNotifiers.
+     */
+    private HashMap<C, AsyncNotifier<C, T, A>> copyAsyncNotifiers() {
+        final HashMap<C, AsyncNotifier<C, T, A>> asyncNotifiers = mAsyncNotifiers;
+        if (asyncNotifiers == null) {
+            return new HashMap<C, AsyncNotifier<C, T, A>>();
+        } else {
+            return new HashMap<C, AsyncNotifier<C, T, A>>(asyncNotifiers);
+        }
+    }
+
+    /**
+     * Stops the asynchronous notifications to callback, including those that have been
+     * queued but not yet delivered.
+     *
+     * @param callback The callback being removed.
+     */
+    private void removeAsyncNotifier(C callback) {
+        if (mAsyncNotifiers == null || !mAsyncNotifiers.containsKey(callback)) {
+            return;
+        }
+        final HashMap<C, AsyncNotifier<C, T, A>> asyncNotifiers = copyAsyncNotifiers();
+        asyncNotifiers.remove(callback).cancel();
+        mAsyncNotifiers = asyncNotifiers.isEmpty() ? null : asyncNotifiers;
+    }
+
+    /**
+     * Returns the index of callback in mCallbacks if it is registered and hasn't been marked
+     * for removal.
+     *
+     * @param callback The callback to look for.
+     * @return The index of callback in mCallbacks or -1 if it isn't registered.
+     */
+    private int indexOf(C callback) {
+        if (mIndex != null) {
+            final Integer index = mIndex.get(callback);
+            return index == null ? -1 : index;
+        }
+        final int index = mCallbacks.lastIndexOf(callback);
+        return (index < 0 || isRemoved(index)) ? -1 : index;
+    }
+
+    /**
+     * Creates mIndex from the callbacks in mCallbacks that haven't been marked for removal.
+     */
+    private void buildIndex() {
+        final int numListeners = mCallbacks.size();
+        mIndex = new HashMap<C, Integer>(numListeners * 2);
+        for (int i = 0; i < numListeners; i++) {
+            if (!isRemoved(i)) {
+                mIndex.put(mCallbacks.get(i), i);
             }
         }
     }
 
     /**
-     * Removes callbacks from startIndex to startIndex + Long.SIZE, based
-     * on the bits set in removed.
+     * Returns true if the callback at index has been marked for removal.
      *
-     * @param startIndex The index into the mCallbacks to start removing callbacks.
-     * @param removed The bits indicating removal, where each bit is set for one callback
-     *                to be removed.
-     */
-    private void removeRemovedCallbacks(int startIndex, long removed) {
-        // The naive approach should be fine. There may be a better bit-twiddling approach.
-        final int endIndex = startIndex + Long.SIZE;
-
-        long bitMask = 1L << (Long.SIZE - 1);
-        for (int i = endIndex - 1; i >= startIndex; i--) {
-            if ((removed & bitMask) != 0) {
-                mCallbacks.remove(i);
+     * @param index The index into mCallbacks to check.
+     * @return true if the callback at index has been marked for removal.
+     */
+    private boolean isRemoved(int index) {
+        final int word = index / Long.SIZE;
+        return mRemoved != null && word < mRemoved.length &&
+                (mRemoved[word] & (1L << index)) != 0;
+    }
+
+    /**
+     * Removes all callbacks that have been marked for removal from mCallbacks, preserving
+     * the order of the remaining callbacks, and clears the removal bits. This is done in a
+     * single pass so that the cost is linear no matter how many callbacks were removed.
+     */
+    private void removeRemovedCallbacks() {
+        final int numListeners = mCallbacks.size();
+        int liveCount = 0;
+        for (int i = 0; i < numListeners; i++) {
+            if (!isRemoved(i)) {
+                final C callback = mCallbacks.get(i);
+                if (liveCount != i) {
+                    mCallbacks.set(liveCount, callback);
+                    if (mIndex != null) {
+                        mIndex.put(callback, liveCount);
+                    }
+                }
+                liveCount++;
             }
-            bitMask >>>= 1;
         }
+        mCallbacks.subList(liveCount, numListeners).clear();
+        final int wordCount = Math.min(mRemoved.length,
+                (numListeners + Long.SIZE - 1) / Long.SIZE);
+        for (int i = 0; i < wordCount; i++) {
+            mRemoved[i] = 0;
+        }
+        mRemovedCount = 0;
     }
 
     /**
@@ -271,34 +426,77 @@ public class CallbackRegistry<C, T, A> implements Cloneable {
      * @param callback The callback to remove.
      */
     public synchronized void remove(C callback) {
-        if (mNotificationLevel == 0) {
-            mCallbacks.remove(callback);
-        } else {
-            int index = mCallbacks.lastIndexOf(callback);
+        removeAsyncNotifier(callback);
+        if (mCopyOnWrite) {
+            final Object[] callbacks = mSnapshot;
+            final int index = lastIndexOf(callbacks, callback);
             if (index >= 0) {
+                if (callbacks.length == 1) {
+                    mSnapshot = EMPTY_SNAPSHOT;
+                } else {
+                    final Object[] newCallbacks = new Object[callbacks.length - 1];
+                    System.arraycopy(callbacks, 0, newCallbacks, 0, index);
+                    System.arraycopy(callbacks, index + 1, newCallbacks, index,
+                            callbacks.length - index - 1);
+                    mSnapshot = newCallbacks;
+                }
+            }
+            return;
+        }
+        final int index = indexOf(callback);
+        if (index < 0) {
+            return;
+        }
+        if (mIndex == null) {
+            if (mNotificationLevel == 0) {
+                mCallbacks.remove(index);
+            } else {
                 setRemovalBit(index);
             }
+        } else {
+            // Removing from the middle of mCallbacks would shift the indexes of all
+            // following callbacks, so just mark it and compact once enough are removed.
+            mIndex.remove(callback);
+            setRemovalBit(index);
+            if (mNotificationLevel == 0 && mRemovedCount * 2 > mCallbacks.size()) {
+                removeRemovedCallbacks();
+            }
         }
     }
 
-    private void setRemovalBit(int index) {
-        if (index < Long.SIZE) {
-            // It is in the first 64 callbacks, just check the bit.
-            final long bitMask = 1L << index;
-            mFirst64Removed |= bitMask;
-        } else {
-            final int remainderIndex = (index / Long.SIZE) - 1;
-            if (mRemainderRemoved == null) {
-                mRemainderRemoved = new long[mCallbacks.size() / Long.SIZE];
-            } else if (mRemainderRemoved.length < remainderIndex) {
-                // need to make it bigger
-                long[] newRemainders = new long[mCallbacks.size() / Long.SIZE];
-                System.arraycopy(mRemainderRemoved, 0, newRemainders, 0, mRemainderRemoved.length);
-                mRemainderRemoved = newRemainders;
+    /**
+     * Returns the last index of callback in callbacks, using the same equality as
+     * {@link List#lastIndexOf(Object)}.
+     *
+     * @param callbacks The snapshot to search.
+     * @param callback The callback to look for.
+     * @return The index of the last matching callback or -1 if it isn't in callbacks.
+     */
+    private static int lastIndexOf(Object[] callbacks, Object callback) {
+        for (int i = callbacks.length - 1; i >= 0; i--) {
+            final Object existing = callbacks[i];
+            if (existing == callback || (callback != null && callback.equals(existing))) {
+                return i;
             }
-            final long bitMask = 1L << (index % Long.SIZE);
-            mRemainderRemoved[remainderIndex] |= bitMask;
         }
+        return -1;
+    }
+
+    private void setRemovalBit(int index) {
+        if (isRemoved(index)) {
+            return;
+        }
+        mRemovedCount++;
+        final int word = index / Long.SIZE;
+        if (mRemoved == null) {
+            mRemoved = new long[(mCallbacks.size() + Long.SIZE - 1) / Long.SIZE];
+        } else if (mRemoved.length <= word) {
+            // need to make it bigger
+            long[] newRemoved = new long[Math.max(word + 1, mRemoved.length * 2)];
+            System.arraycopy(mRemoved, 0, newRemoved, 0, mRemoved.length);
+            mRemoved = newRemoved;
+        }
+        mRemoved[word] |= 1L << index;
     }
 
     /**
@@ -306,7 +504,16 @@ public class CallbackRegistry<C, T, A> implements Cloneable {
      *
      * @return a copy of the registered callbacks.
      */
+    @SuppressWarnings("unchecked")
     public synchronized ArrayList<C> copyCallbacks() {
+        if (mCopyOnWrite) {
+            final Object[] snapshot = mSnapshot;
+            ArrayList<C> callbacks = new ArrayList<C>(snapshot.length);
+            for (Object callback : snapshot) {
+                callbacks.add((C) callback);
+            }
+            return callbacks;
+        }
         ArrayList<C> callbacks = new ArrayList<C>(mCallbacks.size());
         int numListeners = mCallbacks.size();
         for (int i = 0; i < numListeners; i++) {
@@ -322,8 +529,15 @@ public class CallbackRegistry<C, T, A> implements Cloneable {
      *
      * @param callbacks modified to contain all callbacks registered to receive events.
      */
+    @SuppressWarnings("unchecked")
     public synchronized void copyCallbacks(List<C> callbacks) {
         callbacks.clear();
+        if (mCopyOnWrite) {
+            for (Object callback : mSnapshot) {
+                callbacks.add((C) callback);
+            }
+            return;
+        }
         int numListeners = mCallbacks.size();
         for (int i = 0; i < numListeners; i++) {
             if (!isRemoved(i)) {
@@ -338,18 +552,10 @@ public class CallbackRegistry<C, T, A> implements Cloneable {
      * @return true if there are no registered callbacks or false otherwise.
      */
     public synchronized boolean isEmpty() {
-        if (mCallbacks.isEmpty()) {
-            return true;
-        } else if (mNotificationLevel == 0) {
-            return false;
+        if (mCopyOnWrite) {
+            return mSnapshot.length == 0;
         } else {
-            int numListeners = mCallbacks.size();
-            for (int i = 0; i < numListeners; i++) {
-                if (!isRemoved(i)) {
-                    return false;
-                }
-            }
-            return true;
+            return mCallbacks.size() == mRemovedCount;
         }
     }
 
@@ -357,12 +563,30 @@ public class CallbackRegistry<C, T, A> implements Cloneable {
      * Removes all callbacks from the list.
      */
     public synchronized void clear() {
-        if (mNotificationLevel == 0) {
+        if (mAsyncNotifiers != null) {
+            for (AsyncNotifier<C, T, A> asyncNotifier : mAsyncNotifiers.values()) {
+                asyncNotifier.cancel();
+            }
+            mAsyncNotifiers = null;
+        }
+        if (mCopyOnWrite) {
+            mSnapshot = EMPTY_SNAPSHOT;
+        } else if (mNotificationLevel == 0) {
             mCallbacks.clear();
+            mIndex = null;
+            if (mRemovedCount != 0) {
+                for (int i = 0; i < mRemoved.length; i++) {
+                    mRemoved[i] = 0;
+                }
+                mRemovedCount = 0;
+            }
         } else if (!mCallbacks.isEmpty()) {
             for (int i = mCallbacks.size() - 1; i >= 0; i--) {
                 setRemovalBit(i);
             }
+            if (mIndex != null) {
+                mIndex.clear();
+            }
         }
     }
 
@@ -374,9 +598,11 @@ public class CallbackRegistry<C, T, A> implements Cloneable {
         CallbackRegistry<C, T, A> clone = null;
         try {
             clone = (CallbackRegistry<C, T, A>) super.clone();
-            clone.mFirst64Removed = 0;
-            clone.mRemainderRemoved = null;
+            clone.mRemoved = null;
+            clone.mNotificationRemoved = null;
             clone.mNotificationLevel = 0;
+            clone.mRemovedCount = 0;
+            clone.mIndex = null;
             clone.mCallbacks = new ArrayList<C>();
             final int numListeners = mCallbacks.size();
             for (int i = 0; i < numListeners; i++) {
@@ -384,6 +610,19 @@ public class CallbackRegistry<C, T, A> implements Cloneable {
                     clone.mCallbacks.add(mCallbacks.get(i));
                 }
             }
+            if (clone.mCallbacks.size() > INDEX_THRESHOLD) {
+                clone.buildIndex();
+            }
+            if (mAsyncNotifiers != null) {
+                // The clone needs its own queues so that removing a callback from one
+                // registry doesn't cancel the notifications sent by the other.
+                final HashMap<C, AsyncNotifier<C, T, A>> asyncNotifiers =
+                        new HashMap<C, AsyncNotifier<C, T, A>>(mAsyncNotifiers.size() * 2);
+                for (Map.Entry<C, AsyncNotifier<C, T, A>> entry : mAsyncNotifiers.entrySet()) {
+                    asyncNotifiers.put(entry.getKey(), entry.getValue().copy());
+                }
+                clone.mAsyncNotifiers = asyncNotifiers;
+            }
         } catch (CloneNotSupportedException e) {
             e.printStackTrace();
         }
@@ -410,5 +649,164 @@ public class CallbackRegistry<C, T, A> implements Cloneable {
          * @see CallbackRegistry#CallbackRegistry(CallbackRegistry.NotifierCallback)
          */
         public abstract void onNotifyCallback(C callback, T sender, int arg, A arg2);
+
+        /**
+         * Called by CallbackRegistry during
+         * {@link CallbackRegistry#notifyCallbacks(Object, int, Object)}} before a notification
+         * is queued for a callback that was added with an Executor. The queued notification
+         * is delivered after notifyCallbacks returns, so a NotifierCallback whose argument is
+         * reused or recycled after notifyCallbacks must return a copy that remains valid.
+         * The default implementation returns arg2.
+         *
+         * @param arg2 An opaque argument passed in
+         *        {@link CallbackRegistry#notifyCallbacks}
+         * @return The argument to pass to
+         * {@link #onNotifyCallback(Object, Object, int, Object)} when the queued notification
+         * is delivered.
+         * @see CallbackRegistry#add(Object, Executor)
+         */
+        public A retainArgument(A arg2) {
+            return arg2;
+        }
+    }
+
+    /**
+     * A notification queued for a callback that is notified asynchronously.
+     */
+    private static class PendingNotification<T, A> {
+        final T sender;
+        final int arg;
+        final A arg2;
+        PendingNotification<T, A> next;
+
+        PendingNotification(T sender, int arg, A arg2) {
+            this.sender = sender;
+            this.arg = arg;
+            this.arg2 = arg2;
+        }
+    }
+
+    /**
+     * Delivers the notifications queued for one callback on its Executor. At most one
+     * Runnable is submitted to the Executor at a time and it drains the queue in order, so
+     * the callback sees its notifications serially and in the order that they were sent
+     * even when the Executor runs tasks concurrently.
+     */
+    private static class AsyncNotifier<C, T, A> implements Runnable {
+        private final C mCallback;
+        private final NotifierCallback<C, T, A> mNotifier;
+        private final Executor mExecutor;
+        private PendingNotification<T, A> mHead;
+        private PendingNotification<T, A> mTail;
+        private boolean mScheduled;
+        private boolean mCancelled;
+
+        AsyncNotifier(C callback, NotifierCallback<C, T, A> notifier, Executor executor) {
+            mCallback = callback;
+            mNotifier = notifier;
+            mExecutor = executor;
+        }
+
+        /**
+         * @return A new AsyncNotifier for the same callback and Executor with an empty queue.
+         */
+        AsyncNotifier<C, T, A> copy() {
+            return new AsyncNotifier<C, T, A>(mCallback, mNotifier, mExecutor);
+        }
+
+        /**
+         * Cancels this AsyncNotifier and moves the notifications that haven't been delivered
+         * yet to a new AsyncNotifier for executor.
+         *
+         * @return The AsyncNotifier that replaces this one.
+         */
+        AsyncNotifier<C, T, A> moveTo(Executor executor) {
+            final AsyncNotifier<C, T, A> moved =
+                    new AsyncNotifier<C, T, A>(mCallback, mNotifier, executor);
+            synchronized (this) {
+                moved.mHead = mHead;
+                moved.mTail = mTail;
+                moved.mScheduled = mHead != null;
+                cancel();
+            }
+            if (moved.mScheduled) {
+                moved.schedule();
+            }
+            return moved;
+        }
+
+        void enqueue(T sender, int arg, A arg2) {
+            final PendingNotification<T, A> notification =
+                    new PendingNotification<T, A>(sender, arg, arg2);
+            synchronized (this) {
+                if (mCancelled) {
+                    return;
+                }
+                if (mTail == null) {
+                    mHead = notification;
+                } else {
+                    mTail.next = notification;
+                }
+                mTail = notification;
+                if (mScheduled) {
+                    return;
+                }
+                mScheduled = true;
+            }
+            schedule();
+        }
+
+        synchronized void cancel() {
+            mCancelled = true;
+            mHead = null;
+            mTail = null;
+        }
+
+        private void schedule() {
+            try {
+                mExecutor.execute(this);
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    mScheduled = false;
+                }
+                throw e;
+            }
+        }
+
+        @Override
+        public void run() {
+            boolean drained = false;
+            try {
+                while (true) {
+                    final PendingNotification<T, A> notification;
+                    synchronized (this) {
+                        notification = mHead;
+                        if (notification == null) {
+                            mScheduled = false;
+                            drained = true;
+                            return;
+                        }
+                        mHead = notification.next;
+                        if (mHead == null) {
+                            mTail = null;
+                        }
+                    }
+                    mNotifier.onNotifyCallback(mCallback, notification.sender, notification.arg,
+                            notification.arg2);
+                }
+            } finally {
+                if (!drained) {
+                    // The callback threw. Keep delivering the rest of the queue in a new task.
+                    final boolean reschedule;
+                    synchronized (this) {
+                        reschedule = mHead != null;
+                        mScheduled = reschedule;
+                    }
+                    if (reschedule) {
+                        schedule();
+                    }
+                }
+            }
+        }
     }
 }
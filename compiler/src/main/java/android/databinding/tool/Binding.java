@@ -32,11 +32,17 @@ import android.databinding.tool.writer.LayoutBinderWriterKt;
 import java.util.List;
 
 public class Binding implements LocationScopeProvider {
+    /**
+     * The stock adapter for android:text, which sets the same text as inflating the layout.
+     */
+    private static final String TEXT_VIEW_ADAPTER =
+            "android.databinding.adapters.TextViewBindingAdapter";
 
     private final String mName;
     private Expr mExpr;
     private final BindingTarget mTarget;
     private BindingSetterCall mSetterCall;
+    private boolean mIsValueInLayout;
 
     public Binding(BindingTarget target, String name, Expr expr) {
         this(target, name, expr, null);
@@ -160,6 +166,50 @@ public class Binding implements LocationScopeProvider {
         return getSetterCall().getBindingAdapterInstanceClass();
     }
 
+    /**
+     * @return true if the stripped layout already sets the value of this binding's constant
+     * expression the same way that its setter does, so it only needs to be set when the
+     * binding is invalidated after it is created.
+     */
+    public boolean isValueInLayout() {
+        return mIsValueInLayout && isSetLikeInflation();
+    }
+
+    /**
+     * A custom View may ignore the attribute when it is inflated and a custom BindingAdapter
+     * may format the value, so only the framework setters and the stock adapter set what
+     * inflation does.
+     */
+    private boolean isSetLikeInflation() {
+        final ModelAnalyzer modelAnalyzer = ModelAnalyzer.getInstance();
+        final String viewClass = "android:contentDescription".equals(mName)
+                ? "android.view.View" : "android.widget.TextView";
+        final ModelClass viewType = modelAnalyzer.findClass(viewClass, null);
+        if (viewType == null || !viewType.isAssignableFrom(mTarget.getResolvedType())) {
+            return false;
+        }
+        final BindingSetterCall setterCall = getSetterCall();
+        if (setterCall instanceof SetterStore.ModelMethodSetter) {
+            final ModelClass declaringClass =
+                    ((SetterStore.ModelMethodSetter) setterCall).getDeclaringClass();
+            return declaringClass != null && declaringClass.erasure().toJavaCode()
+                    .equals(viewType.erasure().toJavaCode());
+        }
+        return setterCall instanceof SetterStore.AdapterSetter && TEXT_VIEW_ADAPTER.equals(
+                ((SetterStore.AdapterSetter) setterCall).getAdapterClassName());
+    }
+
+    public void setValueInLayout(boolean isValueInLayout) {
+        mIsValueInLayout = isValueInLayout;
+    }
+
+    /**
+     * @return true if this binding is set by a BindingAdapter rather than a method of the View.
+     */
+    public boolean isBindingAdapter() {
+        return getSetterCall() instanceof SetterStore.AdapterSetter;
+    }
+
     public Expr[] getComponentExpressions() {
         return new Expr[] { mExpr };
     }
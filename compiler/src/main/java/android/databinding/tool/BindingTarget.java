@@ -54,10 +54,20 @@ public class BindingTarget implements LocationScopeProvider {
     }
 
     public void addBinding(String name, Expr expr) {
+        addBinding(name, expr, false);
+    }
+
+    /**
+     * @param isValueInLayout true if the layout sets the constant value of expr so that it
+     *                        doesn't need to be set when the binding is created.
+     */
+    public void addBinding(String name, Expr expr, boolean isValueInLayout) {
         if (SetterStore.get(ModelAnalyzer.getInstance()).isTwoWayEventAttribute(name)) {
             L.e(ErrorMessages.TWO_WAY_EVENT_ATTRIBUTE, name);
         }
-        mBindings.add(new Binding(this, name, expr));
+        final Binding binding = new Binding(this, name, expr);
+        binding.setValueInLayout(isValueInLayout);
+        mBindings.add(binding);
         if (expr.isTwoWay()) {
             try {
                 Scope.enter(expr);
@@ -124,6 +134,10 @@ public class BindingTarget implements LocationScopeProvider {
         return mBundle.getIncludedLayout();
     }
 
+    public String getViewPath() {
+        return mBundle.getViewPath();
+    }
+
     public boolean isBinder() {
         return getIncludedLayout() != null;
     }
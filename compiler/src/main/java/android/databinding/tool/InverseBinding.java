@@ -34,8 +34,6 @@ import android.databinding.tool.writer.FlagSet;
 import android.databinding.tool.writer.KCode;
 import android.databinding.tool.writer.LayoutBinderWriterKt;
 
-import kotlin.jvm.functions.Function2;
-
 import java.util.ArrayList;
 import java.util.List;
 
@@ -108,7 +106,11 @@ public class InverseBinding implements LocationScopeProvider {
         return mTarget;
     }
 
-    public KCode toJavaCode(String bindingComponent, final FlagSet flagField) {
+    /**
+     * @param binding The code referring to the binding instance. The inverse binding code is
+     *                placed in a listener, so this can't be "this".
+     */
+    public KCode toJavaCode(String bindingComponent, final FlagSet flagField, String binding) {
         final String targetViewName = LayoutBinderWriterKt.getFieldName(getTarget());
         KCode code = new KCode();
         // A chained expression will have substituted its chained value for the expression
@@ -120,25 +122,11 @@ public class InverseBinding implements LocationScopeProvider {
             code.app("", mExpr.toInverseCode(new KCode(getGetterCall().toJava(bindingComponent,
                     targetViewName))));
         } else { // !mChainedExpressions.isEmpty())
-            final String fieldName = flagField.getLocalName();
             FlagSet flagSet = new FlagSet();
             for (FieldAccessExpr expr : mChainedExpressions) {
                 flagSet = flagSet.or(new FlagSet(expr.getId()));
             }
-            final FlagSet allFlags = flagSet;
-            code.nl(new KCode("synchronized(this) {"));
-            code.tab(LayoutBinderWriterKt
-                    .mapOr(flagField, flagSet, new Function2<String, Integer, KCode>() {
-                        @Override
-                        public KCode invoke(String suffix, Integer index) {
-                            return new KCode(fieldName)
-                                    .app(suffix)
-                                    .app(" |= ")
-                                    .app(LayoutBinderWriterKt.binaryCode(allFlags, index))
-                                    .app(";");
-                        }
-                    }));
-            code.nl(new KCode("}"));
+            code.nl(LayoutBinderWriterKt.orCode(flagField, flagSet, binding));
             code.nl(new KCode("requestRebind()"));
         }
         return code;
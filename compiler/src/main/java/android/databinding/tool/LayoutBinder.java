@@ -222,7 +222,8 @@ public class LayoutBinder implements FileScopeProvider {
                             Scope.enter(bindingBundle.getValueLocation());
                             bindingTarget.addBinding(bindingBundle.getName(),
                                     parse(bindingBundle.getExpr(), bindingBundle.isTwoWay(),
-                                            bindingBundle.getValueLocation()));
+                                            bindingBundle.getValueLocation()),
+                                    bindingBundle.isValueInLayout());
                         } finally {
                             Scope.exit();
                         }
@@ -369,6 +370,38 @@ public class LayoutBinder implements FileScopeProvider {
         return mBundle.hasVariations();
     }
 
+    /**
+     * Lazy views are only supported for layouts that have a single configuration and a single
+     * root View. Views in other layouts are always looked up when the binding is created.
+     */
+    public boolean isLazyViews() {
+        return mBundle.isLazyViews() && !hasVariations() && !isMerge();
+    }
+
+    /**
+     * Whether the layout asked for mapBindings to find its Views by following their paths from
+     * the root. The layout writer ignores it when a path isn't known at compile time.
+     */
+    public boolean isViewPaths() {
+        return mBundle.isViewPaths();
+    }
+
+    /**
+     * Whether the layout asked for its expressions to be evaluated off of the UI thread. The
+     * layout writer still falls back to evaluating on the UI thread when an expression needs it.
+     */
+    public boolean isAsyncBindings() {
+        return mBundle.isAsyncBindings();
+    }
+
+    /**
+     * Whether the layout asked for the values of its expressions to be kept so that they can be
+     * saved and restored. The layout writer ignores it when the values can't be restored.
+     */
+    public boolean isRestorableBindings() {
+        return mBundle.isRestorableBindings();
+    }
+
     @Override
     public String provideScopeFilePath() {
         return mBundle.getAbsoluteFilePath();
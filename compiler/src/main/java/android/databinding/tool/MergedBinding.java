@@ -94,6 +94,11 @@ public class MergedBinding extends Binding {
         return 1;
     }
 
+    @Override
+    public boolean isBindingAdapter() {
+        return true;
+    }
+
     @Override
     public String toJavaCode(String targetViewName, String bindingComponent) {
         final ArgListExpr args = (ArgListExpr) getExpr();
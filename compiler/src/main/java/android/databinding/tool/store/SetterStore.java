@@ -1366,6 +1366,13 @@ public class SetterStore {
         public String getBindingAdapterInstanceClass() {
             return mAdapter.isStatic ? null : mAdapter.type;
         }
+
+        /**
+         * @return The fully qualified name of the class declaring the BindingAdapter.
+         */
+        public String getAdapterClassName() {
+            return mAdapter.type;
+        }
     }
 
     public static class ModelMethodSetter extends SetterCall {
@@ -1375,6 +1382,13 @@ public class SetterStore {
             mModelMethod = modelMethod;
         }
 
+        /**
+         * @return The class declaring the setter method.
+         */
+        public ModelClass getDeclaringClass() {
+            return mModelMethod.getDeclaringClass();
+        }
+
         @Override
         public String toJavaInternal(String componentExpression, String viewExpression,
                 String valueExpression) {
@@ -13,16 +13,22 @@
 
 package android.databinding.tool.writer
 
+import android.databinding.tool.Binding
 import android.databinding.tool.BindingTarget
 import android.databinding.tool.InverseBinding
 import android.databinding.tool.LayoutBinder
+import android.databinding.tool.MergedBinding
+import android.databinding.tool.expr.BracketExpr
+import android.databinding.tool.expr.BuiltInVariableExpr
 import android.databinding.tool.expr.Expr
 import android.databinding.tool.expr.ExprModel
 import android.databinding.tool.expr.FieldAccessExpr
 import android.databinding.tool.expr.IdentifierExpr
 import android.databinding.tool.expr.ListenerExpr
 import android.databinding.tool.expr.ResourceExpr
+import android.databinding.tool.expr.SymbolExpr
 import android.databinding.tool.expr.TernaryExpr
+import android.databinding.tool.expr.ViewFieldExpr
 import android.databinding.tool.ext.androidId
 import android.databinding.tool.ext.br
 import android.databinding.tool.ext.joinToCamelCaseAsVar
@@ -30,10 +36,13 @@ import android.databinding.tool.ext.lazyProp
 import android.databinding.tool.ext.versionedLazy
 import android.databinding.tool.processing.ErrorMessages
 import android.databinding.tool.reflection.ModelAnalyzer
+import android.databinding.tool.reflection.ModelClass
 import android.databinding.tool.util.L
 import java.util.ArrayList
 import java.util.Arrays
 import java.util.BitSet
+import java.util.Collections
+import java.util.Comparator
 import java.util.HashMap
 
 fun String.stripNonJava() = this.split("[^a-zA-Z0-9]".toRegex()).map{ it.trim() }.joinToCamelCaseAsVar()
@@ -137,6 +146,35 @@ val BindingTarget.interfaceClass by lazyProp { target : BindingTarget ->
     }
 }
 
+val BindingTarget.getterName by lazyProp { target : BindingTarget ->
+    target.model.getUniqueMethodName("get${target.readableName.capitalize()}", true)
+}
+
+val BindingTarget.viewPathName by lazyProp { target : BindingTarget ->
+    target.model.getUniqueFieldName("s${target.readableName.capitalize()}Path", false)
+}
+
+/**
+ * Returns the binding of android:visibility on this target or null if it has none or its
+ * visibility is set by a BindingAdapter that also takes other attributes or the old value.
+ */
+fun BindingTarget.visibilityBinding() : Binding? = bindings.firstOrNull {
+    it !is MergedBinding && it.name == "android:visibility" && !it.requiresOldValue()
+}
+
+/**
+ * Whether the View's position in the layout is known so that its setters can be deferred
+ * while a View that contains it is GONE.
+ */
+fun BindingTarget.canGateBindings() = !isBinder && viewPath != null &&
+        !(resolvedType != null && resolvedType.extendsViewStub())
+
+/**
+ * Whether other is this View or one of its descendants. Both must have known view paths.
+ */
+fun BindingTarget.containsView(other : BindingTarget) = viewPath.isEmpty() ||
+        other.viewPath == viewPath || other.viewPath.startsWith("$viewPath,")
+
 val BindingTarget.constructorParamName by lazyProp { target : BindingTarget ->
     target.model.getConstructorParamName(target.readableName)
 }
@@ -166,6 +204,10 @@ val Expr.oldValueName by lazyProp { expr : Expr ->
     expr.model.getUniqueFieldName("mOld${expr.readableName.capitalize()}", false)
 }
 
+val Expr.savedValueName by lazyProp { expr : Expr ->
+    expr.model.getUniqueFieldName("mSaved${expr.readableName.capitalize()}", false)
+}
+
 val Expr.executePendingLocalName by lazyProp { expr : Expr ->
     if(expr.needsLocalField) "${expr.model.ext.getUniqueName(expr.readableName, Scope.EXECUTE_PENDING_METHOD, false)}"
     else expr.toCode().generate()
@@ -179,6 +221,38 @@ val Expr.onChangeName by lazyProp { expr : Expr ->
     expr.model.getUniqueMethodName("onChange${expr.readableName.capitalize()}", false)
 }
 
+val Expr.observedPropertyIdsName by lazyProp { expr : Expr ->
+    expr.model.getUniqueFieldName("sObserved${expr.readableName.capitalize()}Ids", false)
+}
+
+val Expr.bindableFieldAccesses : List<FieldAccessExpr>
+    get() = parents.filterIsInstance(FieldAccessExpr::class.java).filter { it.hasBindableAnnotations() }
+
+val Expr.observedMapKeysName by lazyProp { expr : Expr ->
+    expr.model.getUniqueFieldName("sObserved${expr.readableName.capitalize()}Keys", false)
+}
+
+/**
+ * The constant keys read from this ObservableMap with [] or null if the map is also read with
+ * other keys or used in any other way, which needs notifications for all keys.
+ */
+val Expr.observedMapKeys : List<String>?
+    get() {
+        val mapType = ModelAnalyzer.getInstance()
+                .findClass(ModelAnalyzer.OBSERVABLE_MAP_CLASS_NAME, null).erasure()
+        if (isBindingExpression || parents.isEmpty() ||
+                !mapType.isAssignableFrom(resolvedType.erasure())) {
+            return null
+        }
+        val keyReads = parents.filterIsInstance(BracketExpr::class.java).filter {
+            it.target == this && it.arg is SymbolExpr
+        }
+        if (keyReads.size != parents.size) {
+            return null
+        }
+        return keyReads.map { (it.arg as SymbolExpr).text }.distinct()
+    }
+
 val Expr.getterName by lazyProp { expr : Expr ->
     expr.model.getUniqueMethodName("get${expr.readableName.capitalize()}", true)
 }
@@ -253,6 +327,43 @@ fun <T> FlagSet.mapOr(other : FlagSet, cb : (suffix : String, index : Int) -> T)
     return result
 }
 
+/**
+ * Layouts with at most this many dirty flag words update them with AtomicLongFieldUpdaters.
+ * Larger layouts synchronize on the binding so that executeBindings can take a consistent
+ * snapshot of all of the words without one compare-and-set per word.
+ */
+val MAX_ATOMIC_DIRTY_FLAG_BUCKETS = 4
+
+fun FlagSet.useAtomicUpdaters() = buckets.size <= MAX_ATOMIC_DIRTY_FLAG_BUCKETS
+
+fun FlagSet.updaterName(bucketIndex : Int) =
+        "s${localName.substring(1)}Updater${getWordSuffix(bucketIndex)}"
+
+/**
+ * Returns the code that sets the bits of flags in this dirty flag field.
+ */
+fun FlagSet.orCode(flags : FlagSet) : KCode = orCode(flags, "this")
+
+/**
+ * Returns the code that sets the bits of flags in this dirty flag field of binding, which is
+ * the code referring to the binding instance where "this" is another object, such as in an
+ * anonymous listener.
+ */
+fun FlagSet.orCode(flags : FlagSet, binding : String) : KCode {
+    if (useAtomicUpdaters()) {
+        return kcode(null) {
+            mapOr(flags) { suffix, index ->
+                nl("orDirtyFlags(${updaterName(index)}, $binding, ${flags.localValue(index)});")
+            }
+        }
+    }
+    return kcode("synchronized($binding) {") {
+        mapOr(flags) { suffix, index ->
+            tab("$localName$suffix |= ${flags.localValue(index)};")
+        }
+    }.nl("}")
+}
+
 fun indexFromTag(tag : String) : kotlin.Int {
     val startIndex : kotlin.Int
     if (tag.startsWith("binding_")) {
@@ -290,6 +401,182 @@ class LayoutBinderWriter(val layoutBinder : LayoutBinder) {
         variables.filter {it.isUsed }
     }
 
+    /**
+     * True when the layout asked for asynchronous bindings and all of its expressions may be
+     * evaluated off of the UI thread. Expressions that read Views, resources or the Context,
+     * or that create listeners, must be evaluated on the UI thread, so layouts with them keep
+     * evaluating everything in executeBindings.
+     */
+    val isAsyncBindings by lazy {
+        if (!layoutBinder.isAsyncBindings || mDirtyFlags.buckets.isEmpty()) {
+            false
+        } else if (!mDirtyFlags.useAtomicUpdaters()) {
+            L.w("Layout %s has too many expressions to be evaluated asynchronously",
+                    layoutBinder.layoutname)
+            false
+        } else {
+            val analyzer = ModelAnalyzer.getInstance()
+            val uiTypes = listOf(analyzer.findClass("android.view.View", null),
+                    analyzer.findClass("android.content.Context", null))
+            val uiThreadExpr = model.exprMap.values.filter { it.isUsed }.firstOrNull { expr ->
+                expr is ViewFieldExpr || expr is ResourceExpr || expr is ListenerExpr ||
+                        expr is BuiltInVariableExpr ||
+                        uiTypes.any { it.isAssignableFrom(expr.resolvedType) }
+            }
+            if (uiThreadExpr != null) {
+                L.w("Layout %s can't be evaluated asynchronously because %s must be " +
+                        "evaluated on the UI thread", layoutBinder.layoutname,
+                        uiThreadExpr.uniqueKey)
+            }
+            uiThreadExpr == null
+        }
+    }
+
+    /**
+     * The evaluated values that restorable bindings keep in fields so that they can be saved
+     * with saveBindingState. Values that depend on resources, the Context or Views may differ
+     * after a configuration change and are evaluated again instead.
+     */
+    val savedValues by lazy {
+        if (!layoutBinder.isRestorableBindings) {
+            listOf<Expr>()
+        } else {
+            localFields.filter {
+                !it.isVariable() && isSavedType(it.resolvedType) && !isConfigurationDependent(it)
+            }
+        }
+    }
+
+    val savedVariables by lazy {
+        usedVariables.filter { isSavedType(it.resolvedType) }
+    }
+
+    /**
+     * The dirty flags that are set when a binding is restored so that the values that aren't
+     * saved are evaluated again.
+     */
+    val unsavedFlags by lazy {
+        val invalidateAny = FlagSet(model.invalidateAnyBitSet, model.flagBucketCount)
+        localFields.filter { !savedValues.contains(it) && !savedVariables.contains(it) }.map {
+            if (it.isVariable()) it.invalidateFlagSet else it.dirtyFlagSet.andNot(invalidateAny)
+        }.fold(FlagSet(BitSet(), mDirtyFlags.buckets.size)) { l, r -> l.or(r) }
+    }
+
+    /**
+     * True when the layout asked for restorable bindings and every value that isn't saved can
+     * be evaluated again without evaluating all of the expressions.
+     */
+    val isRestorableBindings by lazy {
+        if (!layoutBinder.isRestorableBindings || mDirtyFlags.buckets.isEmpty()) {
+            false
+        } else if (isAsyncBindings) {
+            L.w("Layout %s can't restore its bindings because they're evaluated asynchronously",
+                    layoutBinder.layoutname)
+            false
+        } else {
+            val invalidateAny = FlagSet(model.invalidateAnyBitSet, model.flagBucketCount)
+            val constantExpr = localFields.firstOrNull {
+                !it.isVariable() && !savedValues.contains(it) &&
+                        it.dirtyFlagSet.andNot(invalidateAny).isEmpty
+            }
+            if (constantExpr != null) {
+                L.w("Layout %s can't restore its bindings because %s must be evaluated again " +
+                        "after a configuration change", layoutBinder.layoutname,
+                        constantExpr.uniqueKey)
+            }
+            constantExpr == null
+        }
+    }
+
+    val restoringValuesName by lazy {
+        model.getUniqueFieldName("mRestoringValues", false)
+    }
+
+    fun isSavedType(type : ModelClass) = type.isString || type.unbox().isPrimitive
+
+    fun isConfigurationDependent(expr : Expr) : kotlin.Boolean =
+            expr is ResourceExpr || expr is BuiltInVariableExpr || expr is ViewFieldExpr ||
+                    expr.dependencies.any { isConfigurationDependent(it.other) }
+
+    /**
+     * The targets whose visibility is bound and that contain other bound Views. The setters of
+     * the Views in a gate, and the gate's other setters, are deferred while it is GONE. Outer
+     * gates come first so that their visibility is set before it is checked.
+     */
+    val visibilityGates by lazy {
+        val usedTargets = layoutBinder.sortedTargets.filter { it.isUsed && it.canGateBindings() }
+        usedTargets.filter { gate ->
+            val visibility = gate.visibilityBinding()
+            visibility != null && usedTargets.any { target ->
+                gate.containsView(target) && target.bindings.any {
+                    it != visibility && visibilityGatesOf(it, listOf(gate)).isNotEmpty()
+                }
+            }
+        }.sortedBy { if (it.viewPath.isEmpty()) 0 else it.viewPath.count { it == ',' } + 1 }
+    }
+
+    /**
+     * Whether any setter only repeats a constant that the stripped layout already sets. Those
+     * setters are skipped until the binding is invalidated after it is created.
+     */
+    val hasValuesInLayout by lazy {
+        layoutBinder.sortedTargets.filter { it.isUsed }.flatMap { it.bindings }.any {
+            it.isValueInLayout && !it.requiresOldValue()
+        }
+    }
+
+    val layoutValuesCurrentName by lazy {
+        model.getUniqueFieldName("mLayoutValuesCurrent", false)
+    }
+
+    val deferredBindingsName by lazy {
+        model.getUniqueFieldName("mDeferredBindings", false)
+    }
+
+    /**
+     * The dirty flags that must be set again to apply binding once it isn't hidden. The
+     * invalidate-all flag is left out so that only the binding's own expressions are read.
+     */
+    fun deferredFlagsOf(binding : Binding) = binding.expr.dirtyFlagSet.andNot(
+            FlagSet(model.invalidateAnyBitSet, model.flagBucketCount))
+
+    /**
+     * Returns the gates that must all be shown for binding to be applied.
+     */
+    fun visibilityGatesOf(binding : Binding, gates : List<BindingTarget>) : List<BindingTarget> {
+        val target = binding.target
+        if (!target.canGateBindings() || binding.requiresOldValue() ||
+                deferredFlagsOf(binding).isEmpty) {
+            return listOf()
+        }
+        return gates.filter { it.containsView(target) && it.visibilityBinding() != binding }
+    }
+
+    val bindingValuesClassName by lazy {
+        model.getUniqueFieldName("BindingValuesImpl", false)
+    }
+
+    /**
+     * The Views with IDs that are looked up by their getters the first time that they're
+     * accessed instead of by mapBindings. These can't have binding expressions or be read by
+     * other expressions in the layout.
+     */
+    val lazyTargets by lazy {
+        if (!layoutBinder.isLazyViews) {
+            listOf<BindingTarget>()
+        } else {
+            layoutBinder.resolveWhichExpressionsAreUsed()
+            val readTargets = model.exprMap.values.filterIsInstance(ViewFieldExpr::class.java)
+                    .filter { it.isUsed }.map { it.bindingTarget }
+            layoutBinder.sortedTargets.filter {
+                it.isUsed && it.id != null && it.tag == null && !it.isBinder &&
+                        it.bindings.isEmpty() && it.viewPath != null &&
+                        it.readableName != "root" && !readTargets.contains(it) &&
+                        !(it.resolvedType != null && it.resolvedType.extendsViewStub())
+            }
+        }
+    }
+
     public fun write(minSdk : kotlin.Int) : String  {
         layoutBinder.resolveWhichExpressionsAreUsed()
         calculateIndices();
@@ -314,10 +601,18 @@ class LayoutBinderWriter(val layoutBinder : LayoutBinder) {
                 tab(declareInvalidateAll())
                 tab(declareHasPendingBindings())
                 tab(declareSetVariable())
+                tab(declareResetVariables())
                 tab(variableSettersAndGetters())
+                tab(lazyViewGetters())
                 tab(onFieldChange())
 
                 tab(executePendingBindings())
+                if (isAsyncBindings) {
+                    tab(declareAsyncBindings())
+                }
+                if (isRestorableBindings) {
+                    tab(declareBindingState())
+                }
 
                 tab(declareListenerImpls())
                 tab(declareDirtyFlags())
@@ -332,14 +627,14 @@ class LayoutBinderWriter(val layoutBinder : LayoutBinder) {
     }
     fun calculateIndices() : Unit {
         val taggedViews = layoutBinder.bindingTargets.filter{
-            it.isUsed && it.tag != null && !it.isBinder
+            it.isUsed && it.tag != null && !it.isBinder && !lazyTargets.contains(it)
         }
         taggedViews.forEach {
             indices.put(it, indexFromTag(it.tag))
         }
         val indexStart = maxIndex() + 1
         layoutBinder.bindingTargets.filter{
-            it.isUsed && !taggedViews.contains(it)
+            it.isUsed && !taggedViews.contains(it) && !lazyTargets.contains(it)
         }.withIndex().forEach {
             indices.put(it.value, it.index + indexStart)
         }
@@ -347,6 +642,9 @@ class LayoutBinderWriter(val layoutBinder : LayoutBinder) {
     fun declareIncludeViews() = kcode("") {
         nl("private static final android.databinding.ViewDataBinding.IncludedLayouts sIncludes;")
         nl("private static final android.util.SparseIntArray sViewsWithIds;")
+        if (viewPaths != null) {
+            nl("private static final int[] sViewPaths;")
+        }
         nl("static {") {
             val hasBinders = layoutBinder.bindingTargets.firstOrNull{ it.isUsed && it.isBinder } != null
             if (!hasBinders) {
@@ -390,7 +688,8 @@ class LayoutBinderWriter(val layoutBinder : LayoutBinder) {
                 }
             }
             val viewsWithIds = layoutBinder.bindingTargets.filter {
-                it.isUsed && !it.isBinder && (!it.supportsTag() || (it.id != null && it.tag == null))
+                it.isUsed && !it.isBinder && (!it.supportsTag() || (it.id != null && it.tag == null)) &&
+                        !lazyTargets.contains(it)
             }
             if (viewsWithIds.isEmpty()) {
                 tab("sViewsWithIds = null;")
@@ -400,10 +699,77 @@ class LayoutBinderWriter(val layoutBinder : LayoutBinder) {
                     tab("sViewsWithIds.put(${it.androidId}, ${indices[it]});")
                 }
             }
+            if (viewPaths != null) {
+                tab("sViewPaths = new int[] {${viewPaths!!.joinToString(", ")}};")
+            }
         }
         nl("}")
     }
 
+    /**
+     * The view paths passed to mapBindings or null when the layout didn't ask for them or the
+     * path to one of the Views in the bindings array isn't known. Following the paths is only
+     * faster than walking the view hierarchy when the walk can be skipped entirely.
+     */
+    val viewPaths by lazy {
+        val targets = layoutBinder.bindingTargets.filter {
+            it.isUsed && !lazyTargets.contains(it)
+        }
+        if (!layoutBinder.isViewPaths || targets.size != maxIndex() + 1 ||
+                targets.any { it.viewPath == null }) {
+            null
+        } else {
+            viewPathProgram(targets)
+        }
+    }
+
+    /**
+     * Encodes the view paths of targets as the steps of a single walk down the view hierarchy,
+     * visiting the targets in depth-first order. See ViewDataBinding#mapBindings for the
+     * encoding.
+     */
+    fun viewPathProgram(targets : List<BindingTarget>) : List<kotlin.Int> {
+        val paths = ArrayList<Pair<List<kotlin.Int>, kotlin.Int>>()
+        targets.forEach {
+            val path = if (it.viewPath.isEmpty()) {
+                listOf<kotlin.Int>()
+            } else {
+                it.viewPath.split(",").map { it.toInt() }
+            }
+            paths.add(Pair(path, indices[it]!!))
+        }
+        Collections.sort(paths, object : Comparator<Pair<List<kotlin.Int>, kotlin.Int>> {
+            override fun compare(lhs: Pair<List<kotlin.Int>, kotlin.Int>,
+                    rhs: Pair<List<kotlin.Int>, kotlin.Int>): kotlin.Int {
+                val length = Math.min(lhs.first.size, rhs.first.size)
+                for (i in 0..length - 1) {
+                    if (lhs.first[i] != rhs.first[i]) {
+                        return lhs.first[i] - rhs.first[i]
+                    }
+                }
+                return lhs.first.size - rhs.first.size
+            }
+        })
+        val program = ArrayList<kotlin.Int>()
+        var current = listOf<kotlin.Int>()
+        paths.forEach {
+            val path = it.first
+            var common = 0
+            while (common < current.size && common < path.size && current[common] == path[common]) {
+                common++
+            }
+            for (i in common..current.size - 1) {
+                program.add(-1)
+            }
+            for (i in common..path.size - 1) {
+                program.add(path[i])
+            }
+            program.add(-2 - it.second)
+            current = path
+        }
+        return program
+    }
+
     fun maxIndex() : kotlin.Int {
         val maxIndex = indices.values.max()
         if (maxIndex == null) {
@@ -415,6 +781,7 @@ class LayoutBinderWriter(val layoutBinder : LayoutBinder) {
 
     fun declareConstructor(minSdk : kotlin.Int) = kcode("") {
         val bindingCount = maxIndex() + 1
+        val viewPathsParam = if (viewPaths == null) "" else ", sViewPaths"
         val parameterType : String
         val superParam : String
         if (layoutBinder.isMerge) {
@@ -428,32 +795,38 @@ class LayoutBinderWriter(val layoutBinder : LayoutBinder) {
         if (layoutBinder.hasVariations()) {
             nl("")
             nl("public $className(android.databinding.DataBindingComponent bindingComponent, $parameterType root) {") {
-                tab("this(bindingComponent, $superParam, mapBindings(bindingComponent, root, $bindingCount, sIncludes, sViewsWithIds));")
+                // the start time is evaluated before mapBindings because arguments are evaluated in order
+                tab("this(bindingComponent, $superParam, startMapBindings(), mapBindings(bindingComponent, root, $bindingCount, sIncludes, sViewsWithIds$viewPathsParam));")
             }
             nl("}")
-            nl("private $className(android.databinding.DataBindingComponent bindingComponent, $parameterType root, Object[] bindings) {") {
+            nl("private $className(android.databinding.DataBindingComponent bindingComponent, $parameterType root, long mapBindingsStart, Object[] bindings) {") {
                 tab("super(bindingComponent, $superParam, ${model.observables.size}") {
                     layoutBinder.sortedTargets.filter { it.id != null }.forEach {
                         tab(", ${fieldConversion(it)}")
                     }
                     tab(");")
                 }
+                tab("recordMapBindings(mapBindingsStart);")
             }
         } else {
             nl("public $baseClassName(android.databinding.DataBindingComponent bindingComponent, $parameterType root) {") {
                 tab("super(bindingComponent, $superParam, ${model.observables.size});")
-                tab("final Object[] bindings = mapBindings(bindingComponent, root, $bindingCount, sIncludes, sViewsWithIds);")
+                tab("final long mapBindingsStart = startMapBindings();")
+                tab("final Object[] bindings = mapBindings(bindingComponent, root, $bindingCount, sIncludes, sViewsWithIds$viewPathsParam);")
+                tab("recordMapBindings(mapBindingsStart);")
             }
         }
         if (layoutBinder.requiredComponent != null) {
             tab("ensureBindingComponentIsNotNull(${layoutBinder.requiredComponent}.class);")
         }
-        val taggedViews = layoutBinder.sortedTargets.filter{it.isUsed }
+        val taggedViews = layoutBinder.sortedTargets.filter{it.isUsed && !lazyTargets.contains(it) }
         taggedViews.forEach {
             if (!layoutBinder.hasVariations() || it.id == null) {
                 tab("this.${it.fieldName} = ${fieldConversion(it)};")
             }
-            if (!it.isBinder) {
+            if (it.isBinder) {
+                tab("setContainedBinding(this.${it.fieldName});")
+            } else {
                 if (it.resolvedType != null && it.resolvedType.extendsViewStub()) {
                     tab("this.${it.fieldName}.setContainingBinding(this);")
                 }
@@ -482,6 +855,9 @@ class LayoutBinderWriter(val layoutBinder : LayoutBinder) {
         }
         tab("setRootTag(root);")
         tab("invalidateAll();");
+        if (hasValuesInLayout) {
+            tab("this.$layoutValuesCurrentName = true;")
+        }
         nl("}")
     }
 
@@ -500,11 +876,20 @@ class LayoutBinderWriter(val layoutBinder : LayoutBinder) {
         nl("public void invalidateAll() {") {
             val fs = FlagSet(layoutBinder.model.invalidateAnyBitSet,
                     layoutBinder.model.flagBucketCount);
-            tab("synchronized(this) {") {
+            if (hasValuesInLayout) {
+                tab("$layoutValuesCurrentName = false;")
+            }
+            if (mDirtyFlags.useAtomicUpdaters()) {
                 for (i in (0..(mDirtyFlags.buckets.size - 1))) {
                     tab("${mDirtyFlags.localValue(i)} = ${fs.localValue(i)};")
                 }
-            } tab("}")
+            } else {
+                tab("synchronized(this) {") {
+                    for (i in (0..(mDirtyFlags.buckets.size - 1))) {
+                        tab("${mDirtyFlags.localValue(i)} = ${fs.localValue(i)};")
+                    }
+                } tab("}")
+            }
             includedBinders.filter{it.isUsed }.forEach { binder ->
                 tab("${binder.fieldName}.invalidateAll();")
             }
@@ -517,16 +902,23 @@ class LayoutBinderWriter(val layoutBinder : LayoutBinder) {
         nl("@Override")
         nl("public boolean hasPendingBindings() {") {
             if (mDirtyFlags.buckets.size > 0) {
-                tab("synchronized(this) {") {
-                    val flagCheck = 0.rangeTo(mDirtyFlags.buckets.size - 1).map {
-                            "${mDirtyFlags.localValue(it)} != 0"
-                    }.joinToString(" || ")
+                val flagCheck = 0.rangeTo(mDirtyFlags.buckets.size - 1).map {
+                        "${mDirtyFlags.localValue(it)} != 0"
+                }.joinToString(" || ")
+                if (mDirtyFlags.useAtomicUpdaters()) {
                     tab("if ($flagCheck) {") {
                         tab("return true;")
                     }
                     tab("}")
+                } else {
+                    tab("synchronized(this) {") {
+                        tab("if ($flagCheck) {") {
+                            tab("return true;")
+                        }
+                        tab("}")
+                    }
+                    tab("}")
                 }
-                tab("}")
             }
             includedBinders.filter{it.isUsed }.forEach { binder ->
                 tab("if (${binder.fieldName}.hasPendingBindings()) {") {
@@ -563,6 +955,47 @@ class LayoutBinderWriter(val layoutBinder : LayoutBinder) {
         nl("}")
     }
 
+    fun declareResetVariables() = kcode("") {
+        nl("@Override")
+        nl("protected void resetVariables() {") {
+            usedVariables.forEach {
+                tab("this.${it.fieldName} = ${it.defaultValue};")
+            }
+            layoutBinder.sortedTargets.filter { it.isUsed }
+                    .flatMap { it.bindings }
+                    .filter { it.requiresOldValue() }
+                    .flatMap { it.componentExpressions.toArrayList() }
+                    .groupBy { it }
+                    .forEach {
+                        tab("this.${it.key.oldValueName} = ${it.key.defaultValue};")
+                    }
+            model.exprMap.values.filter {
+                it.isUsed && it is ListenerExpr && it.child.isDynamic
+            }.groupBy { it }.forEach {
+                val expr = it.key
+                tab("if (this.${expr.fieldName} != null) {") {
+                    tab("this.${expr.fieldName}.setValue(null);")
+                }
+                tab("}")
+            }
+            if (visibilityGates.isNotEmpty()) {
+                tab("this.$deferredBindingsName = 0;")
+            }
+            includedBinders.filter { it.isUsed }.forEach { binder ->
+                tab("${binder.fieldName}.reset();")
+            }
+            layoutBinder.sortedTargets.filter {
+                it.isUsed && it.resolvedType != null && it.resolvedType.extendsViewStub()
+            }.forEach {
+                tab("if (${it.fieldName}.getBinding() != null) {") {
+                    tab("${it.fieldName}.getBinding().reset();")
+                }
+                tab("}")
+            }
+        }
+        nl("}")
+    }
+
     fun variableSettersAndGetters() = kcode("") {
         variables.filterNot{it.isUsed }.forEach {
             nl("public void ${it.setterName}(${it.resolvedType.toJavaCode()} ${it.readableName}) {") {
@@ -578,17 +1011,16 @@ class LayoutBinderWriter(val layoutBinder : LayoutBinder) {
         usedVariables.forEach {
             if (it.userDefinedType != null) {
                 nl("public void ${it.setterName}(${it.resolvedType.toJavaCode()} ${it.readableName}) {") {
+                    if (isAsyncBindings) {
+                        // the values being evaluated read the previous variable
+                        tab("cancelEvaluation();")
+                    }
                     if (it.isObservable) {
                         tab("updateRegistration(${it.id}, ${it.readableName});");
                     }
                     tab("this.${it.fieldName} = ${it.readableName};")
                     // set dirty flags!
-                    val flagSet = it.invalidateFlagSet
-                    tab("synchronized(this) {") {
-                        mDirtyFlags.mapOr(flagSet) { suffix, index ->
-                            tab("${mDirtyFlags.localName}$suffix |= ${flagSet.localValue(index)};")
-                        }
-                    } tab ("}")
+                    tab(mDirtyFlags.orCode(it.invalidateFlagSet))
                     // TODO: Remove this condition after releasing version 1.1 of SDK
                     if (ModelAnalyzer.getInstance().findClass("android.databinding.ViewDataBinding", null).isObservable) {
                         tab("notifyPropertyChanged(${it.name.br()});")
@@ -605,6 +1037,19 @@ class LayoutBinderWriter(val layoutBinder : LayoutBinder) {
         }
     }
 
+    fun lazyViewGetters() = kcode("") {
+        lazyTargets.forEach {
+            nl("public ${it.interfaceClass} ${it.getterName}() {") {
+                tab("if (${it.fieldName} == null) {") {
+                    tab("${it.fieldName} = (${it.interfaceClass}) findViewByPath(${it.viewPathName}, ${it.androidId});")
+                }
+                tab("}")
+                tab("return ${it.fieldName};")
+            }
+            nl("}")
+        }
+    }
+
     fun onFieldChange() = kcode("") {
         nl("@Override")
         nl("protected boolean onFieldChange(int localFieldId, Object object, int fieldId) {") {
@@ -624,32 +1069,20 @@ class LayoutBinderWriter(val layoutBinder : LayoutBinder) {
         model.observables.forEach {
             nl("private boolean ${it.onChangeName}(${it.resolvedType.toJavaCode()} ${it.readableName}, int fieldId) {") {
                 tab("switch (fieldId) {", {
-                    val accessedFields: List<FieldAccessExpr> = it.parents.filterIsInstance(FieldAccessExpr::class.java)
-                    accessedFields.filter { it.hasBindableAnnotations() }
-                            .groupBy { it.brName }
+                    it.bindableFieldAccesses.groupBy { it.brName }
                             .forEach {
                                 // If two expressions look different but resolve to the same method,
                                 // we are not yet able to merge them. This is why we merge their
                                 // flags below.
                                 tab("case ${it.key}:") {
-                                    tab("synchronized(this) {") {
-                                        val flagSet = it.value.foldRight(FlagSet()) { l, r -> l.invalidateFlagSet.or(r) }
-
-                                        mDirtyFlags.mapOr(flagSet) { suffix, index ->
-                                            tab("${mDirtyFlags.localValue(index)} |= ${flagSet.localValue(index)};")
-                                        }
-                                    } tab("}")
+                                    val flagSet = it.value.foldRight(FlagSet()) { l, r -> l.invalidateFlagSet.or(r) }
+                                    tab(mDirtyFlags.orCode(flagSet))
                                     tab("return true;")
                                 }
 
                             }
                     tab("case ${"".br()}:") {
-                        val flagSet = it.invalidateFlagSet
-                        tab("synchronized(this) {") {
-                            mDirtyFlags.mapOr(flagSet) { suffix, index ->
-                                tab("${mDirtyFlags.localName}$suffix |= ${flagSet.localValue(index)};")
-                            }
-                        } tab("}")
+                        tab(mDirtyFlags.orCode(it.invalidateFlagSet))
                         tab("return true;")
                     }
 
@@ -660,18 +1093,68 @@ class LayoutBinderWriter(val layoutBinder : LayoutBinder) {
             nl("}")
             nl("")
         }
+
+        // Only the properties handled by the onChange methods above can invalidate anything,
+        // so limit each Observable's notifications to those properties and BR._all.
+        if (model.observables.isNotEmpty()) {
+            model.observables.forEach {
+                val propertyIds = it.bindableFieldAccesses.map { it.brName }.distinct()
+                nl("private static final int[] ${it.observedPropertyIdsName} = {${propertyIds.joinToString(", ")}};")
+            }
+            nl("@Override")
+            nl("protected int[] getObservedPropertyIds(int localFieldId) {") {
+                tab("switch (localFieldId) {") {
+                    model.observables.forEach {
+                        tab("case ${it.id} :") {
+                            tab("return ${it.observedPropertyIdsName};")
+                        }
+                    }
+                }
+                tab("}")
+                tab("return null;")
+            }
+            nl("}")
+            nl("")
+        }
+
+        // Maps that are only read with constant keys are only notified of changes to them.
+        val keyedMaps = model.observables.map { Pair(it, it.observedMapKeys) }.filter { it.second != null }
+        if (keyedMaps.isNotEmpty()) {
+            keyedMaps.forEach {
+                nl("private static final Object[] ${it.first.observedMapKeysName} = {${it.second!!.joinToString(", ")}};")
+            }
+            nl("@Override")
+            nl("protected Object[] getObservedMapKeys(int localFieldId) {") {
+                tab("switch (localFieldId) {") {
+                    keyedMaps.forEach {
+                        tab("case ${it.first.id} :") {
+                            tab("return ${it.first.observedMapKeysName};")
+                        }
+                    }
+                }
+                tab("}")
+                tab("return null;")
+            }
+            nl("}")
+            nl("")
+        }
     }
 
     fun declareViews() = kcode("// views") {
         val oneLayout = !layoutBinder.hasVariations();
         layoutBinder.sortedTargets.filter {it.isUsed && (oneLayout || it.id == null)}.forEach {
-            val access : String
-            if (oneLayout && it.id != null) {
-                access = "public"
+            if (lazyTargets.contains(it)) {
+                nl("private static final int[] ${it.viewPathName} = new int[] {${it.viewPath.replace(",", ", ")}};")
+                nl("private ${it.interfaceClass} ${it.fieldName};")
             } else {
-                access = "private"
+                val access : String
+                if (oneLayout && it.id != null) {
+                    access = "public"
+                } else {
+                    access = "private"
+                }
+                nl("$access final ${it.interfaceClass} ${it.fieldName};")
             }
-            nl("$access final ${it.interfaceClass} ${it.fieldName};")
         }
     }
 
@@ -691,6 +1174,11 @@ class LayoutBinderWriter(val layoutBinder : LayoutBinder) {
                     val expr = it.key
                     nl("private ${expr.resolvedType.toJavaCode()} ${expr.oldValueName};")
                 }
+        if (isRestorableBindings) {
+            savedValues.forEach {
+                nl("private ${it.resolvedType.toJavaCode()} ${it.savedValueName};")
+            }
+        }
     }
 
     fun declareListeners() = kcode("// listeners") {
@@ -717,7 +1205,8 @@ class LayoutBinderWriter(val layoutBinder : LayoutBinder) {
                 nl("private $className ${inverseBinding.fieldName} = new $className($param) {") {
                     tab("@Override")
                     tab("public void onChange() {") {
-                        tab(inverseBinding.toJavaCode("mBindingComponent", mDirtyFlags)).app(";");
+                        tab(inverseBinding.toJavaCode("mBindingComponent", mDirtyFlags,
+                                "${this@LayoutBinderWriter.className}.this")).app(";");
                     }
                     tab("}")
                 }
@@ -729,10 +1218,34 @@ class LayoutBinderWriter(val layoutBinder : LayoutBinder) {
         model.ext.localizedFlags.forEach { flag ->
             flag.notEmpty { suffix, value ->
                 nl("private")
-                app(" ", if(flag.isDynamic) null else "static final");
+                if (flag.isDynamic) {
+                    app(" ", if (flag.useAtomicUpdaters()) "volatile" else null)
+                } else {
+                    app(" ", "static final")
+                }
                 app(" ", " ${flag.type} ${flag.localName}$suffix = ${longToBinary(value)};")
             }
         }
+        if (hasValuesInLayout) {
+            nl("// true until the binding is invalidated after the layout set its constant values")
+            nl("private boolean $layoutValuesCurrentName;")
+        }
+        if (isRestorableBindings) {
+            nl("// true until the bindings are executed after restoreBindingState")
+            nl("private boolean $restoringValuesName;")
+        }
+        if (visibilityGates.isNotEmpty()) {
+            nl("// setter groups deferred while a View containing them is GONE")
+            nl("private long $deferredBindingsName = 0;")
+        }
+        if (mDirtyFlags.useAtomicUpdaters()) {
+            val updaterType = "java.util.concurrent.atomic.AtomicLongFieldUpdater"
+            for (i in (0..mDirtyFlags.buckets.size - 1)) {
+                nl("private static final $updaterType<$className> ${mDirtyFlags.updaterName(i)} =") {
+                    tab("$updaterType.newUpdater($className.class, \"${mDirtyFlags.localValue(i)}\");")
+                }
+            }
+        }
     }
 
     fun flagMapping() = kcode("/* flag mapping") {
@@ -748,20 +1261,139 @@ class LayoutBinderWriter(val layoutBinder : LayoutBinder) {
     fun executePendingBindings() = kcode("") {
         nl("@Override")
         nl("protected void executeBindings() {") {
-            val tmpDirtyFlags = FlagSet(mDirtyFlags.buckets)
-            tmpDirtyFlags.localName = "dirtyFlags";
-            for (i in (0..mDirtyFlags.buckets.size - 1)) {
-                tab("${tmpDirtyFlags.type} ${tmpDirtyFlags.localValue(i)} = 0;")
-            }
-            tab("synchronized(this) {") {
+            if (mDirtyFlags.useAtomicUpdaters()) {
                 for (i in (0..mDirtyFlags.buckets.size - 1)) {
-                    tab("${tmpDirtyFlags.localValue(i)} = ${mDirtyFlags.localValue(i)};")
-                    tab("${mDirtyFlags.localValue(i)} = 0;")
+                    tab("${tmpDirtyFlags.type} ${tmpDirtyFlags.localValue(i)} = ${mDirtyFlags.updaterName(i)}.getAndSet(this, 0);")
+                }
+            } else {
+                for (i in (0..mDirtyFlags.buckets.size - 1)) {
+                    tab("${tmpDirtyFlags.type} ${tmpDirtyFlags.localValue(i)} = 0;")
+                }
+                tab("synchronized(this) {") {
+                    for (i in (0..mDirtyFlags.buckets.size - 1)) {
+                        tab("${tmpDirtyFlags.localValue(i)} = ${mDirtyFlags.localValue(i)};")
+                        tab("${mDirtyFlags.localValue(i)} = 0;")
+                    }
+                } tab("}")
+            }
+            localFields.forEach {
+                val initialValue = if (it.isVariable()) {
+                    it.fieldName
+                } else if (isRestorableBindings && savedValues.contains(it)) {
+                    "this.${it.savedValueName}"
+                } else {
+                    it.defaultValue
+                }
+                tab("${it.resolvedType.toJavaCode()} ${it.executePendingLocalName} = $initialValue;")
+            }
+            nl(readCode)
+            if (isRestorableBindings) {
+                savedValues.forEach {
+                    tab("this.${it.savedValueName} = ${it.executePendingLocalName};")
+                }
+                // Restored values were not read again, so all of them are set on the new Views.
+                val invalidateAny = FlagSet(model.invalidateAnyBitSet, model.flagBucketCount)
+                tab("if (this.$restoringValuesName) {") {
+                    tab("this.$restoringValuesName = false;")
+                    tmpDirtyFlags.mapOr(invalidateAny) { suffix, index ->
+                        tab("${tmpDirtyFlags.localValue(index)} |= ${invalidateAny.localValue(index)};")
+                    }
+                }
+                tab("}")
+            }
+            nl(applyCode)
+        }
+        nl("}")
+    }
+
+    fun declareBindingState() = kcode("") {
+        val wordIndices = 0..(mDirtyFlags.buckets.size - 1)
+        val dirtyFlagValues = wordIndices.map { mDirtyFlags.localValue(it) }.joinToString(", ")
+        nl("@Override")
+        nl("protected android.os.Parcelable onSaveBindingState() {") {
+            tab("final Object[] variables = new Object[] {") {
+                savedVariables.forEach { tab("this.${it.fieldName},") }
+            }
+            tab("};")
+            tab("final Object[] values = new Object[] {") {
+                savedValues.forEach { tab("this.${it.savedValueName},") }
+            }
+            tab("};")
+            if (mDirtyFlags.useAtomicUpdaters()) {
+                tab("final long[] dirtyFlags = new long[] {$dirtyFlagValues};")
+            } else {
+                tab("final long[] dirtyFlags;")
+                tab("synchronized(this) {") {
+                    tab("dirtyFlags = new long[] {$dirtyFlagValues};")
+                }
+                tab("}")
+            }
+            tab("return createBindingState(variables, values, dirtyFlags);")
+        }
+        nl("}")
+
+        nl("@Override")
+        nl("protected boolean onRestoreBindingState(Object[] variables, Object[] values, long[] savedDirtyFlags) {") {
+            tab("if (variables.length != ${savedVariables.size} || values.length != ${savedValues.size} || savedDirtyFlags.length != ${mDirtyFlags.buckets.size}) {") {
+                tab("return false;")
+            }
+            tab("}")
+            wordIndices.forEach {
+                tab("long ${tmpDirtyFlags.localValue(it)} = savedDirtyFlags[$it] | ${unsavedFlags.localValue(it)};")
+            }
+            savedVariables.withIndex().forEach {
+                val variable = it.value
+                tab("if (isRestoredValueChanged(this.${variable.fieldName}, variables[${it.index}])) {") {
+                    tmpDirtyFlags.mapOr(variable.invalidateFlagSet) { suffix, index ->
+                        tab("${tmpDirtyFlags.localValue(index)} |= ${variable.invalidateFlagSet.localValue(index)};")
+                    }
                 }
-            } tab("}")
-            model.pendingExpressions.filter { it.needsLocalField }.forEach {
-                tab("${it.resolvedType.toJavaCode()} ${it.executePendingLocalName} = ${if (it.isVariable()) it.fieldName else it.defaultValue};")
+                tab("}")
+            }
+            savedValues.withIndex().forEach {
+                val expr = it.value
+                tab("this.${expr.savedValueName} = (${expr.resolvedType.box().toJavaCode()}) values[${it.index}];")
             }
+            if (mDirtyFlags.useAtomicUpdaters()) {
+                wordIndices.forEach {
+                    tab("${mDirtyFlags.updaterName(it)}.set(this, ${tmpDirtyFlags.localValue(it)});")
+                }
+            } else {
+                tab("synchronized(this) {") {
+                    wordIndices.forEach {
+                        tab("${mDirtyFlags.localValue(it)} = ${tmpDirtyFlags.localValue(it)};")
+                    }
+                }
+                tab("}")
+            }
+            tab("this.$restoringValuesName = true;")
+            tab("requestRebind();")
+            tab("return true;")
+        }
+        nl("}")
+    }
+
+    /**
+     * The expressions that executeBindings keeps in local variables. Asynchronous bindings
+     * keep them in the fields of their BindingValues instead.
+     */
+    val localFields by lazy {
+        model.pendingExpressions.filter { it.needsLocalField }
+    }
+
+    val tmpDirtyFlags by lazy {
+        val flags = FlagSet(mDirtyFlags.buckets)
+        flags.localName = "dirtyFlags";
+        flags
+    }
+
+    /**
+     * The code that evaluates the dirty expressions into the localFields. Generating it marks
+     * the expressions as read, so it is generated once and shared by executeBindings and the
+     * evaluate phase of asynchronous bindings.
+     */
+    val readCode by lazy {
+        kcode("") {
             L.d("writing executePendingBindings for %s", className)
             do {
                 val batch = ExprModel.filterShouldRead(model.pendingExpressions).toArrayList()
@@ -785,15 +1417,40 @@ class LayoutBinderWriter(val layoutBinder : LayoutBinder) {
                         + "Please report on b.android.com. %d %s %s", layoutBinder.layoutname,
                         batch.size, batch[0], batch[0].toCode().generate())
             }
-            //
-            layoutBinder.sortedTargets.filter { it.isUsed }
-                    .flatMap { it.bindings }
+        }
+    }
+
+    /**
+     * The code that sets the evaluated values on the Views, keeps the old values and executes
+     * the included bindings. This always runs on the UI thread.
+     */
+    val applyCode by lazy {
+        kcode("") {
+            if (tmpDirtyFlags.buckets.isNotEmpty()) {
+                val dirtyFlagCount = (0..tmpDirtyFlags.buckets.size - 1).map {
+                    "Long.bitCount(${tmpDirtyFlags.localValue(it)})"
+                }.joinToString(" + ")
+                tab("if (sInstrumentationEnabled) {") {
+                    tab("recordDirtyFlags($dirtyFlagCount);")
+                }
+                tab("}")
+            }
+            val bindings = layoutBinder.sortedTargets.filter { it.isUsed }.flatMap { it.bindings }
+            val gateVisibilities = visibilityGates.map { it.visibilityBinding()!! }
+            // deferred groups by their bit in mDeferredBindings
+            val deferredGroups = arrayListOf<Pair<List<BindingTarget>, FlagSet>>()
+            (gateVisibilities + bindings.filter { !gateVisibilities.contains(it) })
                     .groupBy {
-                        "${tmpDirtyFlags.mapOr(it.expr.dirtyFlagSet) { suffix, index ->
+                        var condition = tmpDirtyFlags.mapOr(it.expr.dirtyFlagSet) { suffix, index ->
                             "(${tmpDirtyFlags.localValue(index)} & ${it.expr.dirtyFlagSet.localValue(index)}) != 0"
-                        }.joinToString(" || ") }"
+                        }.joinToString(" || ")
+                        if (it.isValueInLayout && !it.requiresOldValue()) {
+                            condition = "($condition) && !$layoutValuesCurrentName"
+                        }
+                        Pair(condition, visibilityGatesOf(it, visibilityGates))
                     }.forEach {
-                tab("if (${it.key}) {") {
+                val gates = it.key.second
+                val setterCode = kcode("") {
                     it.value.groupBy { Math.max(1, it.minApi) }.forEach {
                         val setterValues = kcode("") {
                             it.value.forEach { binding ->
@@ -806,6 +1463,11 @@ class LayoutBinderWriter(val layoutBinder : LayoutBinder) {
                                 }
                                 tab(binding.toJavaCode(fieldName, "this.mBindingComponent")).app(";")
                             }
+                            val adapterCount = it.value.count { it.isBindingAdapter }
+                            tab("if (sInstrumentationEnabled) {") {
+                                tab("recordSetterCalls(${it.value.size - adapterCount}, $adapterCount);")
+                            }
+                            tab("}")
                         }
                         tab("// api target ${it.key}")
                         if (it.key > 1) {
@@ -818,6 +1480,23 @@ class LayoutBinderWriter(val layoutBinder : LayoutBinder) {
                         }
                     }
                 }
+                tab("if (${it.key.first}) {") {
+                    if (gates.isEmpty() || deferredGroups.size >= FlagSet.sBucketSize) {
+                        app("", setterCode)
+                    } else {
+                        val bit = longToBinary(1L shl deferredGroups.size)
+                        val flags = it.value.map { deferredFlagsOf(it) }.reduce { l, r -> l.or(r) }
+                        deferredGroups.add(Pair(gates, flags))
+                        tab("if (${gatesShownCode(gates)}) {") {
+                            tab("$deferredBindingsName &= ~$bit;")
+                            app("", setterCode)
+                        }
+                        tab("} else {") {
+                            tab("$deferredBindingsName |= $bit;")
+                        }
+                        tab("}")
+                    }
+                }
                 tab("}")
             }
 
@@ -849,6 +1528,107 @@ class LayoutBinderWriter(val layoutBinder : LayoutBinder) {
                 }
                 tab("}")
             }
+            if (deferredGroups.isNotEmpty()) {
+                // Deferred setters whose gates are shown now need their expressions read again.
+                val flushName = model.ext.getUniqueName("flushDeferred",
+                        Scope.EXECUTE_PENDING_METHOD, false)
+                tab("if ($deferredBindingsName != 0) {") {
+                    tab("boolean $flushName = false;")
+                    deferredGroups.withIndex().forEach {
+                        val bit = longToBinary(1L shl it.index)
+                        tab("if (($deferredBindingsName & $bit) != 0 && ${gatesShownCode(it.value.first)}) {") {
+                            tab("$deferredBindingsName &= ~$bit;")
+                            tab(mDirtyFlags.orCode(it.value.second))
+                            tab("$flushName = true;")
+                        }
+                        tab("}")
+                    }
+                    tab("if ($flushName) {") {
+                        tab("executeBindings();")
+                    }
+                    tab("}")
+                }
+                tab("}")
+            }
+        }
+    }
+
+    fun gatesShownCode(gates : List<BindingTarget>) = gates.map {
+        "this.${it.fieldName}.getVisibility() != View.GONE"
+    }.joinToString(" && ")
+
+    fun declareAsyncBindings() = kcode("") {
+        // Reserved after executeBindings has named its locals so that they can't collide.
+        val snapshotFlags = FlagSet(mDirtyFlags.buckets)
+        snapshotFlags.localName = model.ext.getUniqueName("snapshotDirtyFlags",
+                Scope.EXECUTE_PENDING_METHOD, false)
+        val valuesParam = model.ext.getUniqueName("bindingValues", Scope.EXECUTE_PENDING_METHOD,
+                false)
+        val wordIndices = 0..(mDirtyFlags.buckets.size - 1)
+        nl("@Override")
+        nl("protected android.databinding.ViewDataBinding.BindingValues snapshotBindings() {") {
+            tab("final $bindingValuesClassName values = new $bindingValuesClassName();")
+            for (i in wordIndices) {
+                tab("values.${snapshotFlags.localValue(i)} = ${mDirtyFlags.updaterName(i)}.getAndSet(this, 0);")
+                tab("values.${tmpDirtyFlags.localValue(i)} = values.${snapshotFlags.localValue(i)};")
+            }
+            localFields.filter { it.isVariable() }.forEach {
+                tab("values.${it.executePendingLocalName} = ${it.fieldName};")
+            }
+            tab("return values;")
+        }
+        nl("}")
+        nl("")
+        nl("private void applyBindings($bindingValuesClassName $valuesParam) {") {
+            for (i in wordIndices) {
+                tab("${tmpDirtyFlags.type} ${tmpDirtyFlags.localValue(i)} = $valuesParam.${tmpDirtyFlags.localValue(i)};")
+            }
+            localFields.forEach {
+                tab("${it.resolvedType.toJavaCode()} ${it.executePendingLocalName} = $valuesParam.${it.executePendingLocalName};")
+            }
+            nl(applyCode)
+        }
+        nl("}")
+        nl("")
+        nl("private final class $bindingValuesClassName extends android.databinding.ViewDataBinding.BindingValues {") {
+            for (i in wordIndices) {
+                tab("private ${tmpDirtyFlags.type} ${snapshotFlags.localValue(i)};")
+                tab("private ${tmpDirtyFlags.type} ${tmpDirtyFlags.localValue(i)};")
+            }
+            localFields.forEach {
+                tab("private ${it.resolvedType.toJavaCode()} ${it.executePendingLocalName};")
+            }
+            nl("")
+            tab("$bindingValuesClassName() {") {
+                tab("super($className.this);")
+            }
+            tab("}")
+            nl("")
+            tab("@Override")
+            tab("protected void evaluate() {") {
+                nl(readCode)
+            }
+            tab("}")
+            nl("")
+            tab("@Override")
+            tab("protected void apply() {") {
+                tab("applyBindings(this);")
+            }
+            tab("}")
+            nl("")
+            tab("@Override")
+            tab("protected boolean isStale() {") {
+                tab("return ${wordIndices.map { "$className.this.${mDirtyFlags.localValue(it)} != 0" }.joinToString(" || ")};")
+            }
+            tab("}")
+            nl("")
+            tab("@Override")
+            tab("protected void restoreDirtyFlags() {") {
+                for (i in wordIndices) {
+                    tab("orDirtyFlags(${mDirtyFlags.updaterName(i)}, $className.this, ${snapshotFlags.localValue(i)});")
+                }
+            }
+            tab("}")
         }
         nl("}")
     }
@@ -877,6 +1657,12 @@ class LayoutBinderWriter(val layoutBinder : LayoutBinder) {
                             }
                         }
                         if (condition != null) {
+                            // saved values start with their last value instead of the default
+                            if (isRestorableBindings) {
+                                assignedValues.filter { savedValues.contains(it) }.forEach {
+                                    tab("${it.executePendingLocalName} = ${it.defaultValue};")
+                                }
+                            }
                             tab("if ($condition) {") {
                                 app("", assignment)
                             }
@@ -1068,7 +1854,7 @@ class LayoutBinderWriter(val layoutBinder : LayoutBinder) {
             }
             nl("}")
             nl("public static $baseClassName inflate(android.view.LayoutInflater inflater, android.databinding.DataBindingComponent bindingComponent) {") {
-                tab("return bind(inflater.inflate(${layoutBinder.modulePackage}.R.layout.${layoutBinder.layoutname}, null, false), bindingComponent);")
+                tab("return android.databinding.DataBindingUtil.<$baseClassName>inflate(inflater, ${layoutBinder.modulePackage}.R.layout.${layoutBinder.layoutname}, null, false, bindingComponent);")
             }
             nl("}")
             nl("public static $baseClassName bind(android.view.View view) {") {
@@ -1095,23 +1881,29 @@ class LayoutBinderWriter(val layoutBinder : LayoutBinder) {
             nl("import android.databinding.DataBindingUtil;")
             nl("import android.databinding.ViewDataBinding;")
             nl("public abstract class $baseClassName extends ViewDataBinding {")
-            layoutBinder.sortedTargets.filter{it.id != null}.forEach {
+            val fieldTargets = layoutBinder.sortedTargets.filter {
+                it.id != null && !lazyTargets.contains(it)
+            }
+            fieldTargets.forEach {
                 tab("public final ${it.interfaceClass} ${it.fieldName};")
             }
             nl("")
             tab("protected $baseClassName(android.databinding.DataBindingComponent bindingComponent, android.view.View root_, int localFieldCount") {
-                layoutBinder.sortedTargets.filter{it.id != null}.forEach {
+                fieldTargets.forEach {
                     tab(", ${it.interfaceClass} ${it.constructorParamName}")
                 }
             }
             tab(") {") {
                 tab("super(bindingComponent, root_, localFieldCount);")
-                layoutBinder.sortedTargets.filter{it.id != null}.forEach {
+                fieldTargets.forEach {
                     tab("this.${it.fieldName} = ${it.constructorParamName};")
                 }
             }
             tab("}")
             nl("")
+            lazyTargets.forEach {
+                tab("public abstract ${it.interfaceClass} ${it.getterName}();")
+            }
             variables.forEach {
                 if (it.userDefinedType != null) {
                     val type = ModelAnalyzer.getInstance().applyImports(it.userDefinedType, model.imports)
@@ -18,6 +18,7 @@ package android.databinding;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.concurrent.Executor;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
@@ -310,4 +311,334 @@ public class CallbackRegistryTest {
         registry2 = registry.clone();
         assertFalse(registry2.isEmpty());
     }
+
+    @Test
+    public void testCopyOnWriteAddRemovedListener() {
+        CallbackRegistry.NotifierCallback<Integer, CallbackRegistryTest, Integer> notifier =
+                new CallbackRegistry.NotifierCallback<Integer, CallbackRegistryTest, Integer>() {
+                    @Override
+                    public void onNotifyCallback(Integer callback, CallbackRegistryTest sender,
+                            int arg1, Integer arg) {
+                        addNotifyCount(callback);
+                        if (callback == callback1) {
+                            registry.remove(callback2);
+                        } else if (callback == callback3) {
+                            registry.add(callback2);
+                        }
+                    }
+                };
+        registry = new CallbackRegistry<Integer, CallbackRegistryTest, Integer>(notifier, true);
+
+        registry.add(callback1);
+        registry.add(callback2);
+        registry.add(callback3);
+        registry.notifyCallbacks(this, 0, null);
+
+        ArrayList<Integer> callbacks = registry.copyCallbacks();
+        assertEquals(3, callbacks.size());
+        assertEquals(callback1, callbacks.get(0));
+        assertEquals(callback3, callbacks.get(1));
+        assertEquals(callback2, callbacks.get(2));
+        assertEquals(1, notify1);
+        assertEquals(1, notify2);
+        assertEquals(1, notify3);
+    }
+
+    @Test
+    public void testCopyOnWriteVeryDeepRemoveWhileNotifying() {
+        final Integer[] callbacks = new Integer[deepNotifyCount.length];
+        for (int i = 0; i < callbacks.length; i++) {
+            callbacks[i] = i;
+        }
+        CallbackRegistry.NotifierCallback<Integer, CallbackRegistryTest, Integer> notifier =
+                new CallbackRegistry.NotifierCallback<Integer, CallbackRegistryTest, Integer>() {
+                    @Override
+                    public void onNotifyCallback(Integer callback, CallbackRegistryTest sender,
+                            int arg1, Integer arg) {
+                        addNotifyCount(callback);
+                        registry.remove(callback);
+                        registry.remove(callbacks[callbacks.length - callback - 1]);
+                        registry.notifyCallbacks(CallbackRegistryTest.this, arg1, null);
+                    }
+                };
+        registry = new CallbackRegistry<Integer, CallbackRegistryTest, Integer>(notifier, true);
+        for (int i = 0; i < callbacks.length; i++) {
+            registry.add(callbacks[i]);
+        }
+        registry.notifyCallbacks(this, 0, null);
+        for (int i = 0; i < deepNotifyCount.length; i++) {
+            int expectedCount = Math.min(i + 1, deepNotifyCount.length - i);
+            assertEquals(expectedCount, deepNotifyCount[i]);
+        }
+
+        ArrayList<Integer> callbackList = registry.copyCallbacks();
+        assertEquals(0, callbackList.size());
+    }
+
+    @Test
+    public void testCopyOnWriteNestedClear() {
+        CallbackRegistry.NotifierCallback<Integer, CallbackRegistryTest, Integer> notifier =
+                new CallbackRegistry.NotifierCallback<Integer, CallbackRegistryTest, Integer>() {
+                    @Override
+                    public void onNotifyCallback(Integer callback, CallbackRegistryTest sender,
+                            int arg1, Integer arg) {
+                        addNotifyCount(callback);
+                        registry.clear();
+                    }
+                };
+        registry = new CallbackRegistry<Integer, CallbackRegistryTest, Integer>(notifier, true);
+        for (int i = 0; i < deepNotifyCount.length; i++) {
+            registry.add(i);
+        }
+        registry.notifyCallbacks(this, 0, null);
+        for (int i = 0; i < deepNotifyCount.length; i++) {
+            assertEquals(1, deepNotifyCount[i]);
+        }
+        assertTrue(registry.isEmpty());
+        assertEquals(0, registry.copyCallbacks().size());
+    }
+
+    @Test
+    public void testManyAddRemove() {
+        CallbackRegistry.NotifierCallback<Integer, CallbackRegistryTest, Integer> notifier =
+                new CallbackRegistry.NotifierCallback<Integer, CallbackRegistryTest, Integer>() {
+                    @Override
+                    public void onNotifyCallback(Integer callback, CallbackRegistryTest sender,
+                            int arg1, Integer arg) {
+                        addNotifyCount(callback);
+                    }
+                };
+        registry = new CallbackRegistry<Integer, CallbackRegistryTest, Integer>(notifier);
+        final Integer[] callbacks = new Integer[deepNotifyCount.length];
+        for (int i = 0; i < callbacks.length; i++) {
+            callbacks[i] = i;
+            registry.add(callbacks[i]);
+            registry.add(callbacks[i]);
+        }
+        assertEquals(callbacks.length, registry.copyCallbacks().size());
+
+        // remove every other callback and put the first few back at the end
+        for (int i = 0; i < callbacks.length; i += 2) {
+            registry.remove(callbacks[i]);
+        }
+        registry.add(callbacks[0]);
+        registry.add(callbacks[2]);
+        registry.add(callbacks[0]);
+
+        ArrayList<Integer> callbackList = registry.copyCallbacks();
+        assertEquals(callbacks.length / 2 + 2, callbackList.size());
+        for (int i = 0; i < callbacks.length / 2; i++) {
+            assertEquals(callbacks[i * 2 + 1], callbackList.get(i));
+        }
+        assertEquals(callbacks[0], callbackList.get(callbackList.size() - 2));
+        assertEquals(callbacks[2], callbackList.get(callbackList.size() - 1));
+
+        registry.notifyCallbacks(this, 0, null);
+        for (int i = 0; i < deepNotifyCount.length; i++) {
+            int expectedCount = (i % 2 == 1 || i == 0 || i == 2) ? 1 : 0;
+            assertEquals(expectedCount, deepNotifyCount[i]);
+        }
+
+        for (int i = 0; i < callbacks.length; i++) {
+            registry.remove(callbacks[i]);
+        }
+        assertTrue(registry.isEmpty());
+        assertEquals(0, registry.copyCallbacks().size());
+    }
+
+    @Test
+    public void testAddAndRemoveManyWhileNotifying() {
+        final Integer[] callbacks = new Integer[deepNotifyCount.length];
+        for (int i = 0; i < callbacks.length; i++) {
+            callbacks[i] = i;
+        }
+        CallbackRegistry.NotifierCallback<Integer, CallbackRegistryTest, Integer> notifier =
+                new CallbackRegistry.NotifierCallback<Integer, CallbackRegistryTest, Integer>() {
+                    @Override
+                    public void onNotifyCallback(Integer callback, CallbackRegistryTest sender,
+                            int arg1, Integer arg) {
+                        addNotifyCount(callback);
+                        if (callback == 0 && deepNotifyCount[0] == 1) {
+                            for (int i = 10; i < callbacks.length; i++) {
+                                registry.add(callbacks[i]);
+                            }
+                            for (int i = 1; i < callbacks.length; i += 2) {
+                                registry.remove(callbacks[i]);
+                            }
+                            registry.notifyCallbacks(CallbackRegistryTest.this, arg1, null);
+                        }
+                    }
+                };
+        registry = new CallbackRegistry<Integer, CallbackRegistryTest, Integer>(notifier);
+        for (int i = 0; i < 10; i++) {
+            registry.add(callbacks[i]);
+        }
+        registry.notifyCallbacks(this, 0, null);
+        // callback 0 is notified by both notifications. The other original callbacks are
+        // notified by the outer notification and, if they weren't removed, the inner one.
+        // The added callbacks are only notified by the inner notification.
+        assertEquals(2, deepNotifyCount[0]);
+        for (int i = 1; i < deepNotifyCount.length; i++) {
+            final int expected;
+            if (i < 10) {
+                expected = i % 2 == 0 ? 2 : 1;
+            } else {
+                expected = i % 2 == 0 ? 1 : 0;
+            }
+            assertEquals(expected, deepNotifyCount[i]);
+        }
+
+        ArrayList<Integer> callbackList = registry.copyCallbacks();
+        assertEquals(callbacks.length / 2, callbackList.size());
+        for (int i = 0; i < callbackList.size(); i++) {
+            assertEquals(callbacks[i * 2], callbackList.get(i));
+        }
+    }
+
+    @Test
+    public void testAsyncListener() {
+        final ArrayList<Runnable> tasks = new ArrayList<Runnable>();
+        final Executor executor = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                tasks.add(command);
+            }
+        };
+        final ArrayList<Integer> args = new ArrayList<Integer>();
+        CallbackRegistry.NotifierCallback<Integer, CallbackRegistryTest, Integer> notifier =
+                new CallbackRegistry.NotifierCallback<Integer, CallbackRegistryTest, Integer>() {
+                    @Override
+                    public void onNotifyCallback(Integer callback, CallbackRegistryTest sender,
+                            int arg1, Integer arg) {
+                        addNotifyCount(callback);
+                        if (callback == callback2) {
+                            args.add(arg);
+                        }
+                    }
+
+                    @Override
+                    public Integer retainArgument(Integer arg2) {
+                        return arg2 + 100;
+                    }
+                };
+        registry = new CallbackRegistry<Integer, CallbackRegistryTest, Integer>(notifier);
+        registry.add(callback1);
+        registry.add(callback2, executor);
+        registry.notifyCallbacks(this, 0, 1);
+        registry.notifyCallbacks(this, 0, 2);
+        registry.notifyCallbacks(this, 0, 3);
+        assertEquals(3, notify1);
+        assertEquals(0, notify2);
+        // Only one task is scheduled at a time and it delivers the queue in order.
+        assertEquals(1, tasks.size());
+        tasks.remove(0).run();
+        assertEquals(3, notify2);
+        assertEquals(101, args.get(0).intValue());
+        assertEquals(102, args.get(1).intValue());
+        assertEquals(103, args.get(2).intValue());
+        assertEquals(0, tasks.size());
+
+        registry.notifyCallbacks(this, 0, 4);
+        assertEquals(1, tasks.size());
+        tasks.remove(0).run();
+        assertEquals(4, notify2);
+        assertEquals(104, args.get(3).intValue());
+    }
+
+    @Test
+    public void testAsyncRemoveCancelsPending() {
+        final ArrayList<Runnable> tasks = new ArrayList<Runnable>();
+        final Executor executor = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                tasks.add(command);
+            }
+        };
+        CallbackRegistry.NotifierCallback<Integer, CallbackRegistryTest, Integer> notifier =
+                new CallbackRegistry.NotifierCallback<Integer, CallbackRegistryTest, Integer>() {
+                    @Override
+                    public void onNotifyCallback(Integer callback, CallbackRegistryTest sender,
+                            int arg1, Integer arg) {
+                        addNotifyCount(callback);
+                    }
+                };
+        registry = new CallbackRegistry<Integer, CallbackRegistryTest, Integer>(notifier, true);
+        registry.add(callback1, executor);
+        registry.add(callback2, executor);
+        registry.notifyCallbacks(this, 0, null);
+        CallbackRegistry<Integer, CallbackRegistryTest, Integer> clone = registry.clone();
+        registry.remove(callback1);
+        assertEquals(2, tasks.size());
+        for (Runnable task : tasks) {
+            task.run();
+        }
+        tasks.clear();
+        assertEquals(0, notify1);
+        assertEquals(1, notify2);
+
+        // The clone has its own queues, so removing from the registry doesn't affect it.
+        clone.notifyCallbacks(this, 0, null);
+        assertEquals(2, tasks.size());
+        clone.clear();
+        for (Runnable task : tasks) {
+            task.run();
+        }
+        assertEquals(0, notify1);
+        assertEquals(1, notify2);
+
+        registry.add(callback1);
+        registry.notifyCallbacks(this, 0, null);
+        assertEquals(1, notify1);
+    }
+
+    @Test
+    public void testAsyncReAddWithDifferentExecutor() {
+        final ArrayList<Runnable> tasks1 = new ArrayList<Runnable>();
+        final ArrayList<Runnable> tasks2 = new ArrayList<Runnable>();
+        final Executor executor1 = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                tasks1.add(command);
+            }
+        };
+        final Executor executor2 = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                tasks2.add(command);
+            }
+        };
+        CallbackRegistry.NotifierCallback<Integer, CallbackRegistryTest, Integer> notifier =
+                new CallbackRegistry.NotifierCallback<Integer, CallbackRegistryTest, Integer>() {
+                    @Override
+                    public void onNotifyCallback(Integer callback, CallbackRegistryTest sender,
+                            int arg1, Integer arg) {
+                        addNotifyCount(callback);
+                    }
+                };
+        registry = new CallbackRegistry<Integer, CallbackRegistryTest, Integer>(notifier);
+        registry.add(callback1, executor1);
+        registry.notifyCallbacks(this, 0, null);
+        registry.add(callback1, executor2);
+        assertEquals(1, tasks1.size());
+        assertEquals(1, tasks2.size());
+
+        // The old Executor no longer delivers anything; the pending notification moved.
+        tasks1.remove(0).run();
+        assertEquals(0, notify1);
+        tasks2.remove(0).run();
+        assertEquals(1, notify1);
+
+        registry.notifyCallbacks(this, 0, null);
+        assertEquals(0, tasks1.size());
+        assertEquals(1, tasks2.size());
+        tasks2.remove(0).run();
+        assertEquals(2, notify1);
+
+        // Adding with the same Executor again keeps the queue.
+        registry.notifyCallbacks(this, 0, null);
+        registry.add(callback1, executor2);
+        assertEquals(1, tasks2.size());
+        tasks2.remove(0).run();
+        assertEquals(3, notify1);
+    }
 }
@@ -56,6 +56,7 @@ public class LayoutXmlProcessor {
     private final boolean mIsLibrary;
     private final String mBuildId = UUID.randomUUID().toString();
     private final OriginalFileLookup mOriginalFileLookup;
+    private boolean mLazyViews;
 
     public LayoutXmlProcessor(String applicationPackage,
             JavaFileWriter fileWriter, int minSdk, boolean isLibrary,
@@ -67,6 +68,16 @@ public class LayoutXmlProcessor {
         mOriginalFileLookup = originalFileLookup;
     }
 
+    /**
+     * Makes all layouts look up their Views with IDs and no binding expressions when they're
+     * first accessed instead of when the binding is created. Those Views are then accessed
+     * through getters instead of public fields. A layout may also opt in with the lazyViews
+     * attribute of its data tag. This must be set before the resources are processed.
+     */
+    public void setLazyViews(boolean lazyViews) {
+        mLazyViews = lazyViews;
+    }
+
     private static void processIncrementalInputFiles(ResourceInput input,
             ProcessFileCallback callback)
             throws IOException, ParserConfigurationException, XPathExpressionException,
@@ -162,6 +173,9 @@ public class LayoutXmlProcessor {
                 final ResourceBundle.LayoutFileBundle bindingLayout = layoutFileParser
                         .parseXml(file, output, mResourceBundle.getAppPackage(), mOriginalFileLookup);
                 if (bindingLayout != null && !bindingLayout.isEmpty()) {
+                    if (mLazyViews) {
+                        bindingLayout.setLazyViews(true);
+                    }
                     mResourceBundle.addLayoutBundle(bindingLayout);
                 }
             }
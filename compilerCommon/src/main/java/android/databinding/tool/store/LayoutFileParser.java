@@ -26,6 +26,7 @@ import android.databinding.tool.util.Preconditions;
 import android.databinding.tool.util.StringUtils;
 import android.databinding.tool.util.XmlEditor;
 
+import com.google.common.base.Joiner;
 import com.google.common.base.Strings;
 
 import org.antlr.v4.runtime.ANTLRInputStream;
@@ -240,6 +241,7 @@ public class LayoutFileParser {
                             new Location(parent));
             nodeTagMap.put(parent, tag);
             bindingTargetBundle.setIncludedLayout(includedLayoutName);
+            bindingTargetBundle.setViewPath(getViewPath(rootView, isMerge, parent));
 
             for (XMLParser.AttributeContext attr : XmlEditor.expressionAttributes(parent)) {
                 String value = escapeQuotes(attr.attrValue.getText(), true);
@@ -261,7 +263,8 @@ public class LayoutFileParser {
                     valueLocation.endLine = attrLocation.endLine;
                     valueLocation.endOffset = attrLocation.endOffset - 2; // account for: "}
                     bindingTargetBundle.addBinding(escapeQuotes(attr.attrName.getText(), false),
-                            strippedValue, isTwoWay, attrLocation, valueLocation);
+                            strippedValue, isTwoWay, attrLocation, valueLocation)
+                            .setValueInLayout(XmlEditor.constantReplacement(attr) != null);
                 }
             }
         }
@@ -269,10 +272,49 @@ public class LayoutFileParser {
         for (XMLParser.ElementContext elm : otherElementsWithIds) {
             final String id = attributeMap(elm).get("android:id");
             final String className = getViewName(elm);
-            bundle.createBindingTarget(id, className, true, null, null, new Location(elm));
+            bundle.createBindingTarget(id, className, true, null, null, new Location(elm))
+                    .setViewPath(getViewPath(rootView, isMerge, elm));
         }
     }
 
+    /**
+     * Calculates the child indices leading from the root View to the View inflated from elm.
+     * Each included layout is assumed to inflate to a single View, but a merge layout inflates
+     * to as many Views as it has children, so the path isn't known when an include comes
+     * before elm or any of its ancestors.
+     *
+     * @return The comma-separated child indices or null if they can't be known.
+     */
+    private static String getViewPath(XMLParser.ElementContext rootView, boolean isMerge,
+            XMLParser.ElementContext elm) {
+        final ArrayList<Integer> path = new ArrayList<Integer>();
+        XMLParser.ElementContext element = elm;
+        while (element != rootView) {
+            // account for XMLParser.ContentContext
+            final XMLParser.ElementContext parent =
+                    (XMLParser.ElementContext) element.getParent().getParent();
+            int index = 0;
+            for (XMLParser.ElementContext sibling : XmlEditor.elements(parent)) {
+                if (sibling == element) {
+                    break;
+                }
+                final String name = sibling.elmName.getText();
+                if ("include".equals(name)) {
+                    return null;
+                }
+                if (!"requestFocus".equals(name) && !"tag".equals(name)) {
+                    index++;
+                }
+            }
+            path.add(0, index);
+            element = parent;
+        }
+        if (isMerge && path.isEmpty()) {
+            return null; // the merge tag itself isn't a View
+        }
+        return Joiner.on(",").join(path);
+    }
+
     private String getViewName(XMLParser.ElementContext elm) {
         String viewName = elm.elmName.getText();
         if ("view".equals(viewName)) {
@@ -327,6 +369,27 @@ public class LayoutFileParser {
                 bundle.setBindingClass(name, location);
             }
         }
+        final XMLParser.AttributeContext lazyViews = findAttribute(data, "lazyViews");
+        if (lazyViews != null) {
+            bundle.setLazyViews(Boolean.parseBoolean(
+                    escapeQuotes(lazyViews.attrValue.getText(), true)));
+        }
+        final XMLParser.AttributeContext viewPaths = findAttribute(data, "viewPaths");
+        if (viewPaths != null) {
+            bundle.setViewPaths(Boolean.parseBoolean(
+                    escapeQuotes(viewPaths.attrValue.getText(), true)));
+        }
+        final XMLParser.AttributeContext asyncBindings = findAttribute(data, "asyncBindings");
+        if (asyncBindings != null) {
+            bundle.setAsyncBindings(Boolean.parseBoolean(
+                    escapeQuotes(asyncBindings.attrValue.getText(), true)));
+        }
+        final XMLParser.AttributeContext restorableBindings =
+                findAttribute(data, "restorableBindings");
+        if (restorableBindings != null) {
+            bundle.setRestorableBindings(Boolean.parseBoolean(
+                    escapeQuotes(restorableBindings.attrValue.getText(), true)));
+        }
     }
 
     private XMLParser.ElementContext getDataNode(XMLParser.ElementContext root) {
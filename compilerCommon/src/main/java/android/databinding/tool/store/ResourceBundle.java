@@ -423,6 +423,18 @@ public class ResourceBundle implements Serializable {
         @XmlAttribute(name="isMerge", required = true)
         private boolean mIsMerge;
 
+        @XmlAttribute(name="lazyViews")
+        private boolean mLazyViews;
+
+        @XmlAttribute(name="viewPaths")
+        private boolean mViewPaths;
+
+        @XmlAttribute(name="asyncBindings")
+        private boolean mAsyncBindings;
+
+        @XmlAttribute(name="restorableBindings")
+        private boolean mRestorableBindings;
+
         private LocationScopeProvider mClassNameLocationProvider;
 
         // for XML binding
@@ -522,6 +534,54 @@ public class ResourceBundle implements Serializable {
             return mIsMerge;
         }
 
+        public void setLazyViews(boolean lazyViews) {
+            mLazyViews = lazyViews;
+        }
+
+        /**
+         * @return true if the Views with IDs and no binding expressions should be looked up
+         * when they're first accessed instead of when the binding is created.
+         */
+        public boolean isLazyViews() {
+            return mLazyViews;
+        }
+
+        public void setViewPaths(boolean viewPaths) {
+            mViewPaths = viewPaths;
+        }
+
+        /**
+         * @return true if the binding should find its Views by following their paths from the
+         * root instead of walking the whole view hierarchy.
+         */
+        public boolean isViewPaths() {
+            return mViewPaths;
+        }
+
+        public void setAsyncBindings(boolean asyncBindings) {
+            mAsyncBindings = asyncBindings;
+        }
+
+        /**
+         * @return true if the binding expressions may be evaluated on a background thread
+         * before their values are set on the Views on the UI thread.
+         */
+        public boolean isAsyncBindings() {
+            return mAsyncBindings;
+        }
+
+        public void setRestorableBindings(boolean restorableBindings) {
+            mRestorableBindings = restorableBindings;
+        }
+
+        /**
+         * @return true if the binding should keep the values that its expressions last evaluated
+         * to so that they can be saved and restored across configuration changes.
+         */
+        public boolean isRestorableBindings() {
+            return mRestorableBindings;
+        }
+
         public String getBindingClassName() {
             if (mBindingClassName == null) {
                 String fullClass = getFullBindingClass();
@@ -761,6 +821,8 @@ public class ResourceBundle implements Serializable {
         public String mIncludedLayout;
         @XmlElement(name="location")
         public Location mLocation;
+        @XmlAttribute(name="viewPath")
+        public String mViewPath;
         private String mInterfaceType;
 
         // For XML serialization
@@ -776,9 +838,12 @@ public class ResourceBundle implements Serializable {
             mLocation = location;
         }
 
-        public void addBinding(String name, String expr, boolean isTwoWay, Location location,
-                Location valueLocation) {
-            mBindingBundleList.add(new BindingBundle(name, expr, isTwoWay, location, valueLocation));
+        public BindingBundle addBinding(String name, String expr, boolean isTwoWay,
+                Location location, Location valueLocation) {
+            final BindingBundle bindingBundle = new BindingBundle(name, expr, isTwoWay, location,
+                    valueLocation);
+            mBindingBundleList.add(bindingBundle);
+            return bindingBundle;
         }
 
         public void setIncludedLayout(String includedLayout) {
@@ -793,6 +858,20 @@ public class ResourceBundle implements Serializable {
             return mIncludedLayout != null;
         }
 
+        public void setViewPath(String viewPath) {
+            mViewPath = viewPath;
+        }
+
+        /**
+         * The child indices, separated by commas, leading from the root View to this target in
+         * the inflated hierarchy. For merge layouts, the first index is into the root Views.
+         *
+         * @return The path to this target or null if it can't be known at compile time.
+         */
+        public String getViewPath() {
+            return mViewPath;
+        }
+
         public void setInterfaceType(String interfaceType) {
             mInterfaceType = interfaceType;
         }
@@ -865,6 +944,7 @@ public class ResourceBundle implements Serializable {
             private Location mLocation;
             private Location mValueLocation;
             private boolean mIsTwoWay;
+            private boolean mIsValueInLayout;
 
             public BindingBundle() {}
 
@@ -921,6 +1001,20 @@ public class ResourceBundle implements Serializable {
             public void setValueLocation(Location valueLocation) {
                 mValueLocation = valueLocation;
             }
+
+            /**
+             * @return true if the stripped layout already sets the constant value of this
+             * binding. The compiler decides whether the binding's setter does the same so
+             * that it doesn't need to be set when the binding is created.
+             */
+            @XmlElement(name="ValueInLayout")
+            public boolean isValueInLayout() {
+                return mIsValueInLayout;
+            }
+
+            public void setValueInLayout(boolean isValueInLayout) {
+                mIsValueInLayout = isValueInLayout;
+            }
         }
     }
 
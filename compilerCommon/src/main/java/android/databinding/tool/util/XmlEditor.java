@@ -37,15 +37,30 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.regex.Pattern;
 
 /**
  * Ugly inefficient class to strip unwanted tags from XML.
  * Band-aid solution to unblock development
  */
 public class XmlEditor {
+    /**
+     * Attributes whose framework setter shows a string exactly as inflating it from the layout
+     * does, so constant strings bound to them can be written into the layout instead.
+     */
+    private static final List<String> CONSTANT_STRING_ATTRIBUTES = Arrays.asList(
+            "android:text", "android:hint", "android:contentDescription");
+
+    /**
+     * Strings that aapt reads back unchanged: no escapes, quotes, resource or theme references
+     * and no whitespace that it would collapse.
+     */
+    private static final Pattern LAYOUT_SAFE_STRING =
+            Pattern.compile("[A-Za-z0-9.,:;!()\\-]+( [A-Za-z0-9.,:;!()\\-]+)*");
 
     public static String strip(File f, String newTag, String encoding) throws IOException {
         FileInputStream fin = new FileInputStream(f);
@@ -303,7 +318,10 @@ public class XmlEditor {
             for (AttributeContext it : expressionAttributes(node)) {
                 Position start = toPosition(it.getStart());
                 Position end = toEndPosition(it.getStop());
-                String defaultVal = defaultReplacement(it);
+                String defaultVal = constantReplacement(it);
+                if (defaultVal == null) {
+                    defaultVal = defaultReplacement(it);
+                }
                 if (defaultVal != null) {
                     replace(lines, start, end, it.attrName.getText() + "=\"" + defaultVal + "\"");
                 } else if (replace(lines, start, end, tag)) {
@@ -327,7 +345,48 @@ public class XmlEditor {
         return nextBindingIndex;
     }
 
-    private static String defaultReplacement(XMLParser.AttributeContext attr) {
+    /**
+     * Returns the value to write into the layout for an attribute whose one-way expression is
+     * a string literal. The View type and setter aren't known here, so the compiler decides
+     * whether the binding can skip setting it when the binding is created.
+     *
+     * @return The XML-escaped string or null if the expression can't be written into the
+     * layout.
+     */
+    public static String constantReplacement(XMLParser.AttributeContext attr) {
+        if (!CONSTANT_STRING_ATTRIBUTES.contains(attr.attrName.getText()) ||
+                attr.attrValue.getText().startsWith("@={", 1)) {
+            return null;
+        }
+        BindingExpressionParser.BindingSyntaxContext root = parseExpression(attr);
+        if (root == null || root.defaults() != null) {
+            return null;
+        }
+        BindingExpressionParser.ExpressionContext expression = root.expression();
+        while (expression instanceof BindingExpressionParser.GroupingContext) {
+            expression = ((BindingExpressionParser.GroupingContext) expression).expression();
+        }
+        if (!(expression instanceof BindingExpressionParser.PrimaryContext)) {
+            return null;
+        }
+        BindingExpressionParser.LiteralContext literal =
+                ((BindingExpressionParser.PrimaryContext) expression).literal();
+        if (literal == null || literal.stringLiteral() == null) {
+            return null;
+        }
+        BindingExpressionParser.StringLiteralContext stringLiteral = literal.stringLiteral();
+        TerminalNode quoted = stringLiteral.DoubleQuoteString() != null
+                ? stringLiteral.DoubleQuoteString() : stringLiteral.SingleQuoteString();
+        String quotedStr = quoted.getText();
+        String unquoted = quotedStr.substring(1, quotedStr.length() - 1);
+        if (!LAYOUT_SAFE_STRING.matcher(unquoted).matches()) {
+            return null;
+        }
+        return unquoted;
+    }
+
+    private static BindingExpressionParser.BindingSyntaxContext parseExpression(
+            XMLParser.AttributeContext attr) {
         String textWithQuotes = attr.attrValue.getText();
         String escapedText = textWithQuotes.substring(1, textWithQuotes.length() - 1);
         final boolean isTwoWay = escapedText.startsWith("@={");
@@ -342,7 +401,14 @@ public class XmlEditor {
         BindingExpressionLexer lexer = new BindingExpressionLexer(inputStream);
         CommonTokenStream tokenStream = new CommonTokenStream(lexer);
         BindingExpressionParser parser = new BindingExpressionParser(tokenStream);
-        BindingExpressionParser.BindingSyntaxContext root = parser.bindingSyntax();
+        return parser.bindingSyntax();
+    }
+
+    private static String defaultReplacement(XMLParser.AttributeContext attr) {
+        BindingExpressionParser.BindingSyntaxContext root = parseExpression(attr);
+        if (root == null) {
+            return null;
+        }
         BindingExpressionParser.DefaultsContext defaults = root.defaults();
         if (defaults != null) {
             BindingExpressionParser.ConstantValueContext constantValue = defaults
@@ -0,0 +1,8 @@
+# Dirty flags and the pending rebind flag are updated with atomic field updaters, which find
+# the fields by name.
+-keepclassmembers class android.databinding.ViewDataBinding {
+    volatile int mPendingRebind;
+}
+-keepclassmembers class * extends android.databinding.ViewDataBinding {
+    volatile long mDirtyFlags*;
+}
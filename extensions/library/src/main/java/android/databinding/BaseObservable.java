@@ -16,13 +16,36 @@
 
 package android.databinding;
 
+import java.util.BitSet;
+import java.util.concurrent.Executor;
+
 /**
  * A convenience class that implements {@link android.databinding.Observable} interface and provides
  * {@link #notifyPropertyChanged(int)} and {@link #notifyChange} methods.
+ * <p>
+ * Changes to several properties can be grouped with {@link #beginBatch()} and
+ * {@link #endBatch()} or {@link #runBatch(Runnable)}. While a batch is open, notifications are
+ * collected instead of sent and each changed property is notified only once when the outermost
+ * batch ends.
  */
 public class BaseObservable implements Observable {
+    /**
+     * The default number of distinct properties that may change in a batch before a single
+     * notification that all properties changed is sent instead.
+     */
+    private static final int DEFAULT_BATCH_NOTIFY_ALL_THRESHOLD = 8;
+
     private transient PropertyChangeRegistry mCallbacks;
 
+    /** The number of batches that have begun but not ended. */
+    private transient volatile int mBatchDepth;
+
+    /** The ids of the properties that changed in the current batch. */
+    private transient BitSet mBatchedIds;
+
+    /** true when {@link #notifyChange()} was called in the current batch. */
+    private transient boolean mBatchedAll;
+
     public BaseObservable() {
     }
 
@@ -34,6 +57,39 @@ public class BaseObservable implements Observable {
         mCallbacks.add(callback);
     }
 
+    /**
+     * Adds a callback that is notified on <code>executor</code> instead of on the thread that
+     * changes the property. The callback receives its notifications one at a time and in the
+     * order that they were sent. This is useful for callbacks that don't touch the UI, such
+     * as those that log or persist changes, so that they don't slow down the thread
+     * modifying this instance.
+     *
+     * @param callback The callback to start listening.
+     * @param executor The Executor on which <code>callback</code> is notified.
+     */
+    public synchronized void addOnPropertyChangedCallback(OnPropertyChangedCallback callback,
+            Executor executor) {
+        if (mCallbacks == null) {
+            mCallbacks = new PropertyChangeRegistry();
+        }
+        mCallbacks.add(callback, executor);
+    }
+
+    /**
+     * Adds a callback that is notified only when one of <code>propertyIds</code> changes or
+     * when all properties change. This avoids calling callbacks that ignore most properties.
+     *
+     * @param callback The callback to start listening.
+     * @param propertyIds The BR ids of the properties that <code>callback</code> observes.
+     */
+    public synchronized void addOnPropertyChangedCallback(OnPropertyChangedCallback callback,
+            int[] propertyIds) {
+        if (mCallbacks == null) {
+            mCallbacks = new PropertyChangeRegistry();
+        }
+        mCallbacks.add(callback, propertyIds);
+    }
+
     @Override
     public synchronized void removeOnPropertyChangedCallback(OnPropertyChangedCallback callback) {
         if (mCallbacks != null) {
@@ -45,7 +101,9 @@ public class BaseObservable implements Observable {
      * Notifies listeners that all properties of this instance have changed.
      */
     public synchronized void notifyChange() {
-        if (mCallbacks != null) {
+        if (mBatchDepth != 0) {
+            mBatchedAll = true;
+        } else if (mCallbacks != null) {
             mCallbacks.notifyCallbacks(this, 0, null);
         }
     }
@@ -58,8 +116,110 @@ public class BaseObservable implements Observable {
      * @param fieldId The generated BR id for the Bindable field.
      */
     public void notifyPropertyChanged(int fieldId) {
+        if (mBatchDepth != 0 && addToBatch(fieldId)) {
+            return;
+        }
         if (mCallbacks != null) {
             mCallbacks.notifyCallbacks(this, fieldId, null);
         }
     }
+
+    /**
+     * Records that fieldId changed in the current batch.
+     *
+     * @param fieldId The generated BR id for the Bindable field.
+     * @return true if a batch is open and fieldId will be notified when it ends or false if
+     * the batch ended and fieldId must be notified now.
+     */
+    private synchronized boolean addToBatch(int fieldId) {
+        if (mBatchDepth == 0) {
+            return false;
+        }
+        if (fieldId == 0) {
+            mBatchedAll = true;
+        } else if (!mBatchedAll) {
+            if (mBatchedIds == null) {
+                mBatchedIds = new BitSet();
+            }
+            mBatchedIds.set(fieldId);
+        }
+        return true;
+    }
+
+    /**
+     * Starts collecting property change notifications instead of sending them. The collected
+     * notifications are sent when the matching {@link #endBatch()} is called. Batches may be
+     * nested, in which case notifications are sent when the outermost batch ends.
+     * <p>
+     * A batch applies to notifications from all threads, not just the thread that began it.
+     *
+     * @see #runBatch(Runnable)
+     */
+    public synchronized void beginBatch() {
+        mBatchDepth++;
+    }
+
+    /**
+     * Ends a batch started with {@link #beginBatch()}. When the outermost batch ends, each
+     * property that changed during the batch is notified once. If more properties changed
+     * than {@link #getBatchNotifyAllThreshold()} or {@link #notifyChange()} was called during
+     * the batch, a single notification that all properties changed is sent instead.
+     *
+     * @throws IllegalStateException if there is no batch to end.
+     */
+    public void endBatch() {
+        final BitSet changedIds;
+        final boolean notifyAll;
+        synchronized (this) {
+            if (mBatchDepth == 0) {
+                throw new IllegalStateException("endBatch called without beginBatch");
+            }
+            if (--mBatchDepth != 0) {
+                return;
+            }
+            changedIds = mBatchedIds;
+            notifyAll = mBatchedAll || (changedIds != null &&
+                    changedIds.cardinality() > getBatchNotifyAllThreshold());
+            mBatchedIds = null;
+            mBatchedAll = false;
+        }
+        if (mCallbacks == null) {
+            return;
+        }
+        if (notifyAll) {
+            mCallbacks.notifyCallbacks(this, 0, null);
+        } else if (changedIds != null) {
+            for (int id = changedIds.nextSetBit(0); id >= 0; id = changedIds.nextSetBit(id + 1)) {
+                mCallbacks.notifyCallbacks(this, id, null);
+            }
+        }
+    }
+
+    /**
+     * Runs <code>changes</code> in a batch so that the properties it changes are notified
+     * once after it completes.
+     *
+     * @param changes The code that changes properties of this instance.
+     * @see #beginBatch()
+     */
+    public void runBatch(Runnable changes) {
+        beginBatch();
+        try {
+            changes.run();
+        } finally {
+            endBatch();
+        }
+    }
+
+    /**
+     * Returns the number of distinct properties that may change in a batch before
+     * {@link #endBatch()} sends a single notification that all properties changed instead of
+     * one notification per property. Subclasses may override this to tune the trade-off
+     * between notifying many properties and reevaluating all of them.
+     *
+     * @return The maximum number of properties that are notified individually in a batch.
+     */
+    protected int getBatchNotifyAllThreshold() {
+        return DEFAULT_BATCH_NOTIFY_ALL_THRESHOLD;
+    }
 }
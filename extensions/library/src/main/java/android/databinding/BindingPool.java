@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.databinding;
+
+import android.content.Context;
+import android.util.SparseArray;
+import android.util.SparseIntArray;
+import android.view.View;
+
+import java.util.ArrayList;
+
+/**
+ * Keeps reset bindings, keyed by their layout resource ID, so that
+ * {@link DataBindingUtil#inflate(android.view.LayoutInflater, int, android.view.ViewGroup,
+ * boolean, DataBindingComponent)} can reuse them instead of inflating and binding the layout
+ * again.
+ * <p>
+ * Bindings may only be used on the UI thread that they were created on, so each UI thread has
+ * its own pool.
+ */
+class BindingPool {
+    static final int DEFAULT_MAX_RECYCLED = 5;
+
+    private static final ThreadLocal<BindingPool> sPool = new ThreadLocal<BindingPool>();
+
+    private final SparseArray<ArrayList<ViewDataBinding>> mRecycled =
+            new SparseArray<ArrayList<ViewDataBinding>>();
+
+    private final SparseIntArray mMaxRecycled = new SparseIntArray();
+
+    private BindingPool() {
+    }
+
+    static BindingPool getInstance() {
+        BindingPool pool = sPool.get();
+        if (pool == null) {
+            pool = new BindingPool();
+            sPool.set(pool);
+        }
+        return pool;
+    }
+
+    /**
+     * Adds a binding that has been reset to the pool.
+     *
+     * @return true if the binding was added or false if its layout is unknown, it is contained
+     * in another binding or the pool for its layout is full.
+     */
+    boolean put(ViewDataBinding binding) {
+        final int layoutId = binding.mLayoutId;
+        if (layoutId == 0 || binding.mContainingBinding != null) {
+            return false;
+        }
+        ArrayList<ViewDataBinding> recycled = mRecycled.get(layoutId);
+        if (recycled == null) {
+            recycled = new ArrayList<ViewDataBinding>(DEFAULT_MAX_RECYCLED);
+            mRecycled.put(layoutId, recycled);
+        }
+        if (recycled.size() >= mMaxRecycled.get(layoutId, DEFAULT_MAX_RECYCLED) ||
+                recycled.contains(binding)) {
+            return false;
+        }
+        recycled.add(binding);
+        return true;
+    }
+
+    /**
+     * Removes a binding for layoutId from the pool. Only bindings whose root View has the same
+     * Context and hasn't been added to another parent are returned. When parentClass is null,
+     * the root View must have no LayoutParams. Otherwise, it must have been inflated for a
+     * parent of parentClass, so that it has the LayoutParams that the layout's layout_*
+     * attributes are resolved to for that parent.
+     *
+     * @return A reset binding for layoutId or null if the pool has none.
+     */
+    ViewDataBinding get(int layoutId, Context context, DataBindingComponent bindingComponent,
+            Class<?> parentClass) {
+        final ArrayList<ViewDataBinding> recycled = mRecycled.get(layoutId);
+        if (recycled == null) {
+            return null;
+        }
+        for (int i = recycled.size() - 1; i >= 0; i--) {
+            final ViewDataBinding binding = recycled.get(i);
+            final View root = binding.getRoot();
+            final boolean sameParent = parentClass == null
+                    ? root.getLayoutParams() == null
+                    : parentClass == binding.mInflatedParentClass;
+            if (binding.mBindingComponent == bindingComponent && root.getContext() == context &&
+                    root.getParent() == null && sameParent) {
+                recycled.remove(i);
+                return binding;
+            }
+        }
+        return null;
+    }
+
+    void setMaxRecycled(int layoutId, int max) {
+        mMaxRecycled.put(layoutId, max);
+        final ArrayList<ViewDataBinding> recycled = mRecycled.get(layoutId);
+        if (recycled != null) {
+            while (recycled.size() > max) {
+                recycled.remove(recycled.size() - 1);
+            }
+        }
+    }
+
+    void clear() {
+        mRecycled.clear();
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.databinding;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+
+/**
+ * The values that a binding last evaluated, saved by
+ * {@link ViewDataBinding#saveBindingState()} so that the binding created after a
+ * configuration change can be restored with
+ * {@link ViewDataBinding#restoreBindingState(Parcelable)} instead of evaluating all of its
+ * expressions again.
+ */
+public final class BindingState implements Parcelable {
+    final String mBindingClassName;
+    final Object[] mVariables;
+    final Object[] mValues;
+    final long[] mDirtyFlags;
+
+    BindingState(String bindingClassName, Object[] variables, Object[] values,
+            long[] dirtyFlags) {
+        mBindingClassName = bindingClassName;
+        mVariables = variables;
+        mValues = values;
+        mDirtyFlags = dirtyFlags;
+    }
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    @Override
+    public void writeToParcel(Parcel dest, int flags) {
+        dest.writeString(mBindingClassName);
+        dest.writeArray(mVariables);
+        dest.writeArray(mValues);
+        dest.writeLongArray(mDirtyFlags);
+    }
+
+    public static final Creator<BindingState> CREATOR = new Creator<BindingState>() {
+        @Override
+        public BindingState createFromParcel(Parcel source) {
+            final ClassLoader classLoader = BindingState.class.getClassLoader();
+            return new BindingState(source.readString(), source.readArray(classLoader),
+                    source.readArray(classLoader), source.createLongArray());
+        }
+
+        @Override
+        public BindingState[] newArray(int size) {
+            return new BindingState[size];
+        }
+    };
+}
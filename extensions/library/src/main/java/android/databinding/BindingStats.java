@@ -0,0 +1,200 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.databinding;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters collected for all of the bindings of one generated binding class while
+ * instrumentation is enabled with {@link DataBindingUtil#setInstrumentationEnabled(boolean)}.
+ * Layouts with several configurations have one binding class, and so one BindingStats, per
+ * configuration.
+ *
+ * @see DataBindingUtil#dumpBindingStats(boolean)
+ */
+public class BindingStats {
+    private static final HashMap<Class<?>, BindingStats> sStats =
+            new HashMap<Class<?>, BindingStats>();
+
+    private final String mBindingClassName;
+
+    final AtomicLong mExecuteBindingsCount = new AtomicLong();
+    final AtomicLong mExecuteBindingsNanos = new AtomicLong();
+    final AtomicLong mDirtyFlagCount = new AtomicLong();
+    final AtomicLong mSetterCount = new AtomicLong();
+    final AtomicLong mAdapterCount = new AtomicLong();
+    final AtomicLong mRebindRequestCount = new AtomicLong();
+    final AtomicLong mCoalescedRebindCount = new AtomicLong();
+    final AtomicLong mFieldChangeCount = new AtomicLong();
+    final AtomicLong mFieldInvalidationCount = new AtomicLong();
+    final AtomicLong mMapBindingsCount = new AtomicLong();
+    final AtomicLong mMapBindingsNanos = new AtomicLong();
+
+    private BindingStats(String bindingClassName) {
+        mBindingClassName = bindingClassName;
+    }
+
+    static BindingStats forClass(Class<?> bindingClass) {
+        synchronized (sStats) {
+            BindingStats stats = sStats.get(bindingClass);
+            if (stats == null) {
+                stats = new BindingStats(bindingClass.getName());
+                sStats.put(bindingClass, stats);
+            }
+            return stats;
+        }
+    }
+
+    /**
+     * @return Copies of the counters of every binding class that has been used while
+     * instrumentation was enabled.
+     */
+    static List<BindingStats> snapshot(boolean reset) {
+        synchronized (sStats) {
+            final List<BindingStats> snapshot = new ArrayList<BindingStats>(sStats.size());
+            for (BindingStats stats : sStats.values()) {
+                final BindingStats copy = new BindingStats(stats.mBindingClassName);
+                copy(stats.mExecuteBindingsCount, copy.mExecuteBindingsCount, reset);
+                copy(stats.mExecuteBindingsNanos, copy.mExecuteBindingsNanos, reset);
+                copy(stats.mDirtyFlagCount, copy.mDirtyFlagCount, reset);
+                copy(stats.mSetterCount, copy.mSetterCount, reset);
+                copy(stats.mAdapterCount, copy.mAdapterCount, reset);
+                copy(stats.mRebindRequestCount, copy.mRebindRequestCount, reset);
+                copy(stats.mCoalescedRebindCount, copy.mCoalescedRebindCount, reset);
+                copy(stats.mFieldChangeCount, copy.mFieldChangeCount, reset);
+                copy(stats.mFieldInvalidationCount, copy.mFieldInvalidationCount, reset);
+                copy(stats.mMapBindingsCount, copy.mMapBindingsCount, reset);
+                copy(stats.mMapBindingsNanos, copy.mMapBindingsNanos, reset);
+                snapshot.add(copy);
+            }
+            return snapshot;
+        }
+    }
+
+    private static void copy(AtomicLong from, AtomicLong to, boolean reset) {
+        to.set(reset ? from.getAndSet(0) : from.get());
+    }
+
+    /**
+     * @return The fully qualified name of the generated binding class.
+     */
+    public String getBindingClassName() {
+        return mBindingClassName;
+    }
+
+    /**
+     * @return The number of times that the binding expressions were evaluated and set on the
+     * Views.
+     */
+    public long getExecuteBindingsCount() {
+        return mExecuteBindingsCount.get();
+    }
+
+    /**
+     * @return The total time spent evaluating the binding expressions and setting them on
+     * the Views, in nanoseconds. For asynchronous bindings, this is only the time spent
+     * setting the values on the UI thread.
+     */
+    public long getExecuteBindingsNanos() {
+        return mExecuteBindingsNanos.get();
+    }
+
+    /**
+     * @return The total number of dirty flags that were set when the bindings were executed.
+     */
+    public long getDirtyFlagCount() {
+        return mDirtyFlagCount.get();
+    }
+
+    /**
+     * @return The number of calls to View setters and methods to set bound values.
+     */
+    public long getSetterCount() {
+        return mSetterCount.get();
+    }
+
+    /**
+     * @return The number of calls to {@link BindingAdapter}s to set bound values.
+     */
+    public long getAdapterCount() {
+        return mAdapterCount.get();
+    }
+
+    /**
+     * @return The number of rebinds that were scheduled.
+     */
+    public long getRebindRequestCount() {
+        return mRebindRequestCount.get();
+    }
+
+    /**
+     * @return The number of rebind requests that were merged into a rebind that was already
+     * scheduled.
+     */
+    public long getCoalescedRebindCount() {
+        return mCoalescedRebindCount.get();
+    }
+
+    /**
+     * @return The number of change notifications received from observed data.
+     */
+    public long getFieldChangeCount() {
+        return mFieldChangeCount.get();
+    }
+
+    /**
+     * @return The number of change notifications that invalidated at least one expression.
+     */
+    public long getFieldInvalidationCount() {
+        return mFieldInvalidationCount.get();
+    }
+
+    /**
+     * @return The number of times that the Views of the layout were looked up when a binding
+     * was created.
+     */
+    public long getMapBindingsCount() {
+        return mMapBindingsCount.get();
+    }
+
+    /**
+     * @return The total time spent looking up the Views of the layout when bindings were
+     * created, in nanoseconds. This includes the time spent creating included bindings.
+     */
+    public long getMapBindingsNanos() {
+        return mMapBindingsNanos.get();
+    }
+
+    @Override
+    public String toString() {
+        return mBindingClassName +
+                " executeBindings=" + getExecuteBindingsCount() +
+                " executeBindingsNanos=" + getExecuteBindingsNanos() +
+                " dirtyFlags=" + getDirtyFlagCount() +
+                " setters=" + getSetterCount() +
+                " adapters=" + getAdapterCount() +
+                " rebindRequests=" + getRebindRequestCount() +
+                " coalescedRebinds=" + getCoalescedRebindCount() +
+                " fieldChanges=" + getFieldChangeCount() +
+                " fieldInvalidations=" + getFieldInvalidationCount() +
+                " mapBindings=" + getMapBindingsCount() +
+                " mapBindingsNanos=" + getMapBindingsNanos();
+    }
+}
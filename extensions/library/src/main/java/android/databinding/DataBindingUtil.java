@@ -17,6 +17,8 @@
 package android.databinding;
 
 import android.app.Activity;
+import android.os.Handler;
+import android.os.Looper;
 import android.support.annotation.Nullable;
 import android.view.InflateException;
 import android.view.LayoutInflater;
@@ -24,6 +26,9 @@ import android.view.View;
 import android.view.ViewGroup;
 import android.view.ViewParent;
 
+import java.util.List;
+import java.util.concurrent.Executor;
+
 /**
  * Utility class to create {@link ViewDataBinding} from layouts.
  */
@@ -61,6 +66,28 @@ public class DataBindingUtil {
         return sDefaultComponent;
     }
 
+    /**
+     * Set the policy that limits the time spent rebinding dirty bindings in each frame.
+     * Bindings that don't fit in a frame are rebound on the following frames, starting with
+     * those whose root View is shown. By default there is no limit.
+     *
+     * @param policy The policy to use or null to rebind all dirty bindings on the next frame.
+     * @see #getRebindPolicy()
+     */
+    public static void setRebindPolicy(RebindPolicy policy) {
+        RebindScheduler.setPolicy(policy);
+    }
+
+    /**
+     * Returns the policy set in {@link #setRebindPolicy(RebindPolicy)}. This can be
+     * <code>null</code> if there is no limit on the time spent rebinding in each frame.
+     *
+     * @return the policy set in {@link #setRebindPolicy(RebindPolicy)} or <code>null</code>.
+     */
+    public static RebindPolicy getRebindPolicy() {
+        return RebindScheduler.getPolicy();
+    }
+
     /**
      * Inflates a binding layout and returns the newly-created binding for that layout.
      * This uses the DataBindingComponent set in
@@ -93,6 +120,10 @@ public class DataBindingUtil {
      * <p>
      * Use this version only if <code>layoutId</code> is unknown in advance. Otherwise, use
      * the generated Binding's inflate method to ensure type-safe inflation.
+     * <p>
+     * If a binding for <code>layoutId</code> was passed to {@link #recycle(ViewDataBinding)},
+     * it is returned instead of inflating the layout again, as long as it was first inflated
+     * for a parent of the same class, or without a parent when <code>parent</code> is null.
      *
      * @param inflater The LayoutInflater used to inflate the binding layout.
      * @param layoutId The layout resource ID of the layout to inflate.
@@ -112,12 +143,82 @@ public class DataBindingUtil {
             LayoutInflater inflater, int layoutId, @Nullable ViewGroup parent,
             boolean attachToParent, DataBindingComponent bindingComponent) {
         final boolean useChildren = parent != null && attachToParent;
+        final Class<?> parentClass = parent == null ? null : parent.getClass();
+        final ViewDataBinding recycled = BindingPool.getInstance().get(layoutId,
+                inflater.getContext(), bindingComponent, parentClass);
+        if (recycled != null) {
+            if (useChildren) {
+                parent.addView(recycled.getRoot());
+            }
+            return (T) recycled;
+        }
         final int startChildren = useChildren ? parent.getChildCount() : 0;
         final View view = inflater.inflate(layoutId, parent, attachToParent);
+        final T binding;
         if (useChildren) {
-            return bindToAddedViews(bindingComponent, parent, startChildren, layoutId);
+            binding = bindToAddedViews(bindingComponent, parent, startChildren, layoutId);
         } else {
-            return bind(bindingComponent, view, layoutId);
+            binding = bind(bindingComponent, view, layoutId);
+        }
+        if (binding != null) {
+            binding.mInflatedParentClass = parentClass;
+        }
+        return binding;
+    }
+
+    /**
+     * Inflates a binding layout and creates its binding on <code>executor</code>, then passes
+     * the binding to <code>listener</code> on the calling UI thread. This uses the
+     * DataBindingComponent set in {@link #setDefaultComponent(DataBindingComponent)}.
+     *
+     * @param inflater The LayoutInflater used to inflate the binding layout.
+     * @param layoutId The layout resource ID of the layout to inflate.
+     * @param parent Optional view that provides a set of LayoutParams values for root of the
+     *               inflated hierarchy. The hierarchy isn't added to it.
+     * @param executor The Executor to inflate the layout on.
+     * @param listener Called on the UI thread with the binding for the inflated layout.
+     * @see #inflateAsync(LayoutInflater, int, ViewGroup, Executor, OnBindingInflatedListener,
+     * DataBindingComponent)
+     */
+    public static <T extends ViewDataBinding> void inflateAsync(LayoutInflater inflater,
+            int layoutId, @Nullable ViewGroup parent, Executor executor,
+            OnBindingInflatedListener<T> listener) {
+        inflateAsync(inflater, layoutId, parent, executor, listener, sDefaultComponent);
+    }
+
+    /**
+     * Inflates a binding layout and creates its binding on <code>executor</code>, then passes
+     * the binding to <code>listener</code> on the calling UI thread.
+     * <p>
+     * Bindings created off of the UI thread schedule their rebinds once they are handed to the
+     * UI thread. Layouts containing Views that can't be created off of the UI thread, such as
+     * Views that need a Looper, are inflated again on the UI thread. A binding passed to
+     * {@link #recycle(ViewDataBinding)} is reused without inflating the layout. Merge layouts
+     * can't be inflated asynchronously because they need a parent to be attached to.
+     * <p>
+     * This <b>must</b> be called on the UI thread that will use the binding.
+     *
+     * @param inflater The LayoutInflater used to inflate the binding layout. The layout is
+     *                 inflated with a clone of it.
+     * @param layoutId The layout resource ID of the layout to inflate.
+     * @param parent Optional view that provides a set of LayoutParams values for root of the
+     *               inflated hierarchy. The hierarchy isn't added to it.
+     * @param executor The Executor to inflate the layout on.
+     * @param listener Called on the UI thread with the binding for the inflated layout.
+     * @param bindingComponent The DataBindingComponent to use in the binding.
+     */
+    public static <T extends ViewDataBinding> void inflateAsync(LayoutInflater inflater,
+            int layoutId, @Nullable ViewGroup parent, Executor executor,
+            OnBindingInflatedListener<T> listener, DataBindingComponent bindingComponent) {
+        final AsyncInflateRequest<T> request = new AsyncInflateRequest<T>(inflater, layoutId,
+                parent, listener, bindingComponent);
+        request.mBinding = BindingPool.getInstance().get(layoutId, inflater.getContext(),
+                bindingComponent, parent == null ? null : parent.getClass());
+        if (request.mBinding != null) {
+            request.mInflated = true;
+            request.mHandler.post(request);
+        } else {
+            executor.execute(request);
         }
     }
 
@@ -170,7 +271,7 @@ public class DataBindingUtil {
             if (layoutId == 0) {
                 throw new IllegalArgumentException("View is not a binding layout");
             }
-            return (T) sMapper.getDataBinder(bindingComponent, root, layoutId);
+            return bind(bindingComponent, root, layoutId);
         }
     }
 
@@ -182,7 +283,110 @@ public class DataBindingUtil {
 
     static <T extends ViewDataBinding> T bind(DataBindingComponent bindingComponent, View root,
             int layoutId) {
-        return (T) sMapper.getDataBinder(bindingComponent, root, layoutId);
+        final ViewDataBinding binding = sMapper.getDataBinder(bindingComponent, root, layoutId);
+        if (binding != null) {
+            binding.mLayoutId = layoutId;
+        }
+        return (T) binding;
+    }
+
+    /**
+     * Resets <code>binding</code> with {@link ViewDataBinding#reset()} and keeps it so that
+     * {@link #inflate(LayoutInflater, int, ViewGroup, boolean, DataBindingComponent)} and the
+     * generated Binding's inflate methods can return it instead of inflating its layout again.
+     * Only bindings of layouts that aren't merge layouts, that were inflated or bound through
+     * DataBindingUtil or a generated inflate method and that aren't contained in another
+     * binding are kept.
+     * <p>
+     * Recycled bindings hold on to the Context of their Views, so
+     * {@link #clearRecycledBindings()} should be called when that Context is destroyed. This
+     * <b>must</b> be run on the UI thread that the binding was created on.
+     *
+     * @param binding The binding to reset and reuse. Its root View must not have a parent.
+     * @return true if the binding will be reused or false if it was only reset.
+     * @throws IllegalStateException when the binding's root View still has a parent.
+     * @see #setMaxRecycledBindings(int, int)
+     */
+    public static boolean recycle(ViewDataBinding binding) {
+        if (binding.getRoot().getParent() != null) {
+            throw new IllegalStateException("The root View of a binding must be removed from " +
+                    "its parent before the binding is recycled");
+        }
+        binding.reset();
+        return BindingPool.getInstance().put(binding);
+    }
+
+    /**
+     * Sets the number of bindings for a layout that {@link #recycle(ViewDataBinding)} keeps
+     * on the calling thread. The default is 5.
+     *
+     * @param layoutId The layout resource ID of the recycled bindings.
+     * @param max The maximum number of bindings to keep for the layout.
+     */
+    public static void setMaxRecycledBindings(int layoutId, int max) {
+        BindingPool.getInstance().setMaxRecycled(layoutId, max);
+    }
+
+    /**
+     * Drops all of the bindings kept by {@link #recycle(ViewDataBinding)} on the calling thread.
+     */
+    public static void clearRecycledBindings() {
+        BindingPool.getInstance().clear();
+    }
+
+    /**
+     * Sets whether bindings created after this call stop observing their data while their root
+     * View is detached from its window. This is disabled by default.
+     *
+     * @param suspend true to unregister the observers of new bindings while their root View is
+     *                detached.
+     * @see ViewDataBinding#setSuspendObserversWhenDetached(boolean)
+     */
+    public static void setSuspendObserversWhenDetached(boolean suspend) {
+        ViewDataBinding.sSuspendObserversWhenDetached = suspend;
+    }
+
+    /**
+     * @return true if bindings created from now on stop observing their data while their root
+     * View is detached.
+     * @see #setSuspendObserversWhenDetached(boolean)
+     */
+    public static boolean getSuspendObserversWhenDetached() {
+        return ViewDataBinding.sSuspendObserversWhenDetached;
+    }
+
+    /**
+     * Enables or disables collecting {@link BindingStats} for all bindings. While enabled,
+     * bindings count how long evaluating their expressions and finding their Views takes, how
+     * many setters and BindingAdapters they call and how many change notifications and rebind
+     * requests they receive. Instrumentation is disabled by default and costs nothing then.
+     *
+     * @param enabled true to start collecting BindingStats or false to stop.
+     * @see #dumpBindingStats(boolean)
+     */
+    public static void setInstrumentationEnabled(boolean enabled) {
+        ViewDataBinding.sInstrumentationEnabled = enabled;
+    }
+
+    /**
+     * @return true if bindings are collecting {@link BindingStats}.
+     * @see #setInstrumentationEnabled(boolean)
+     */
+    public static boolean isInstrumentationEnabled() {
+        return ViewDataBinding.sInstrumentationEnabled;
+    }
+
+    /**
+     * Returns the {@link BindingStats} collected for each binding class since instrumentation
+     * was enabled or the counters were last reset.
+     *
+     * @param reset true to set the counters to 0 after copying them.
+     * @return Copies of the counters of each binding class that has been used while
+     * instrumentation was enabled.
+     * @see #setInstrumentationEnabled(boolean)
+     */
+    public static List<BindingStats> dumpBindingStats(boolean reset) {
+        return BindingStats.snapshot(reset);
     }
 
     /**
@@ -305,4 +509,85 @@ public class DataBindingUtil {
             return bind(component, children, layoutId);
         }
     }
+
+    /**
+     * Inflates and binds a layout when run on the Executor and then delivers the binding when
+     * run on the UI thread.
+     */
+    private static class AsyncInflateRequest<T extends ViewDataBinding> implements Runnable {
+        final Handler mHandler = new Handler(Looper.myLooper());
+        private final LayoutInflater mInflater;
+        private final int mLayoutId;
+        private final ViewGroup mParent;
+        private final OnBindingInflatedListener<T> mListener;
+        private final DataBindingComponent mBindingComponent;
+
+        /**
+         * Set when the layout has been inflated and bound or the inflation failed.
+         */
+        volatile boolean mInflated;
+        ViewDataBinding mBinding;
+        private List<ViewDataBinding> mDeferredBindings;
+
+        AsyncInflateRequest(LayoutInflater inflater, int layoutId, ViewGroup parent,
+                OnBindingInflatedListener<T> listener, DataBindingComponent bindingComponent) {
+            mInflater = inflater;
+            mLayoutId = layoutId;
+            mParent = parent;
+            mListener = listener;
+            mBindingComponent = bindingComponent;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void run() {
+            if (!mInflated) {
+                try {
+                    inflate();
+                } finally {
+                    // Errors are rethrown on the Executor, but the UI thread still inflates
+                    // the layout and delivers it or fails there.
+                    mInflated = true;
+                    mHandler.post(this);
+                }
+                return;
+            }
+            if (mDeferredBindings == null && mBinding == null) {
+                // The layout couldn't be inflated off of the UI thread.
+                mListener.onBindingInflated(DataBindingUtil.<T>inflate(mInflater, mLayoutId,
+                        mParent, false, mBindingComponent));
+                return;
+            }
+            if (mDeferredBindings != null) {
+                for (int i = 0; i < mDeferredBindings.size(); i++) {
+                    mDeferredBindings.get(i).attachToUiThread();
+                }
+            }
+            mListener.onBindingInflated((T) mBinding);
+        }
+
+        private void inflate() {
+            final LayoutInflater inflater = mInflater.cloneInContext(mInflater.getContext());
+            ViewDataBinding.startDeferredBindings();
+            boolean bound = false;
+            try {
+                final View view = inflater.inflate(mLayoutId, mParent, false);
+                mBinding = bind(mBindingComponent, view, mLayoutId);
+                if (mBinding != null && mParent != null) {
+                    mBinding.mInflatedParentClass = mParent.getClass();
+                }
+                bound = true;
+            } catch (RuntimeException e) {
+                // Some Views can only be created on the UI thread.
+            } finally {
+                // The Executor's thread may be reused, so the deferral must always end.
+                final List<ViewDataBinding> deferred = ViewDataBinding.endDeferredBindings();
+                if (bound) {
+                    mDeferredBindings = deferred;
+                } else {
+                    mBinding = null;
+                }
+            }
+        }
+    }
 }
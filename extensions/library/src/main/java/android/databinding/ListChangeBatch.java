@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.databinding;
+
+/**
+ * Collects the changes made to an {@link ObservableList} so that they can be sent to its
+ * callbacks together. A change is merged into the previous one when it extends the same
+ * range, so a run of adds or removes is sent as a single range.
+ */
+class ListChangeBatch {
+    // type, start, to, count for each change
+    private static final int FIELDS = 4;
+
+    private int[] mChanges = new int[FIELDS * 4];
+    private int mSize;
+
+    /**
+     * The array that mChanges is swapped with while dispatching, or null while it's in use.
+     */
+    private int[] mDispatching;
+
+    boolean isEmpty() {
+        return mSize == 0;
+    }
+
+    void clear() {
+        mSize = 0;
+    }
+
+    /**
+     * Adds a change using the notification types of {@link ListChangeRegistry}.
+     */
+    void add(int type, int start, int to, int count) {
+        if (type != ListChangeRegistry.ALL && count <= 0) {
+            return;
+        }
+        if (mSize != 0 && merge(type, start, count)) {
+            return;
+        }
+        if (mSize + FIELDS > mChanges.length) {
+            final int[] changes = new int[mChanges.length * 2];
+            System.arraycopy(mChanges, 0, changes, 0, mSize);
+            mChanges = changes;
+        }
+        mChanges[mSize] = type;
+        mChanges[mSize + 1] = start;
+        mChanges[mSize + 2] = to;
+        mChanges[mSize + 3] = count;
+        mSize += FIELDS;
+    }
+
+    private boolean merge(int type, int start, int count) {
+        final int last = mSize - FIELDS;
+        final int lastType = mChanges[last];
+        final int lastStart = mChanges[last + 1];
+        final int lastCount = mChanges[last + 3];
+        final int lastEnd = lastStart + lastCount;
+        if (lastType == ListChangeRegistry.ALL) {
+            // the callbacks will read the whole list anyway
+            return true;
+        }
+        switch (type) {
+            case ListChangeRegistry.INSERTED:
+                if (lastType == ListChangeRegistry.INSERTED && start >= lastStart &&
+                        start <= lastEnd) {
+                    mChanges[last + 3] = lastCount + count;
+                    return true;
+                }
+                break;
+            case ListChangeRegistry.REMOVED:
+                if (lastType == ListChangeRegistry.REMOVED) {
+                    if (start == lastStart) {
+                        mChanges[last + 3] = lastCount + count;
+                        return true;
+                    } else if (start + count == lastStart) {
+                        mChanges[last + 1] = start;
+                        mChanges[last + 3] = lastCount + count;
+                        return true;
+                    }
+                } else if (lastType == ListChangeRegistry.INSERTED && start >= lastStart &&
+                        start + count <= lastEnd) {
+                    // removing items that were just inserted
+                    if (lastCount == count) {
+                        mSize = last;
+                    } else {
+                        mChanges[last + 3] = lastCount - count;
+                    }
+                    return true;
+                }
+                break;
+            case ListChangeRegistry.CHANGED:
+                if ((lastType == ListChangeRegistry.CHANGED ||
+                        lastType == ListChangeRegistry.INSERTED) &&
+                        start >= lastStart && start + count <= lastEnd) {
+                    // already covered by the previous change
+                    return true;
+                } else if (lastType == ListChangeRegistry.CHANGED && start <= lastEnd &&
+                        start + count >= lastStart) {
+                    final int mergedStart = Math.min(start, lastStart);
+                    mChanges[last + 1] = mergedStart;
+                    mChanges[last + 3] = Math.max(start + count, lastEnd) - mergedStart;
+                    return true;
+                }
+                break;
+            case ListChangeRegistry.ALL:
+                mSize = 0;
+                return false;
+        }
+        return false;
+    }
+
+    /**
+     * Sends the collected changes to registry's callbacks and clears them. The callbacks may
+     * add changes to a new batch while the collected changes are being sent.
+     */
+    void dispatch(ListChangeRegistry registry, ObservableList list) {
+        final int size = mSize;
+        final int[] changes = mChanges;
+        mChanges = mDispatching != null ? mDispatching : new int[changes.length];
+        mDispatching = null;
+        mSize = 0;
+        for (int i = 0; i < size; i += FIELDS) {
+            final int start = changes[i + 1];
+            final int count = changes[i + 3];
+            switch (changes[i]) {
+                case ListChangeRegistry.CHANGED:
+                    registry.notifyChanged(list, start, count);
+                    break;
+                case ListChangeRegistry.INSERTED:
+                    registry.notifyInserted(list, start, count);
+                    break;
+                case ListChangeRegistry.MOVED:
+                    registry.notifyMoved(list, start, changes[i + 2], count);
+                    break;
+                case ListChangeRegistry.REMOVED:
+                    registry.notifyRemoved(list, start, count);
+                    break;
+                default:
+                    registry.notifyChanged(list);
+                    break;
+            }
+        }
+        mDispatching = changes;
+    }
+}
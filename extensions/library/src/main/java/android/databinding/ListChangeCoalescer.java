@@ -0,0 +1,341 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.databinding;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+
+/**
+ * Accumulates the changes notified for an {@link ObservableList} and reduces them to an
+ * equivalent, shorter sequence of changes.
+ * <p>
+ * The pending state is the list as it is now, described as a sequence of segments. Each
+ * segment is either a run of consecutive elements of the list as it was before the first
+ * change, or a run of inserted elements, and may be marked as changed. The last segment covers
+ * the rest of the original list, however long it is, so the size of the list never needs to be
+ * known. Each change only splits or rearranges the segments that it covers, so the state grows
+ * with the number of changes rather than with the size of the list, and elements that are
+ * inserted and then removed leave nothing behind.
+ * <p>
+ * The reduced changes are the removal of each run of original elements that is no longer in
+ * the list, from the last to the first, followed by the insertions, moves and changes that
+ * build the current list from front to back. Original elements that are still in their
+ * relative order are not moved.
+ */
+class ListChangeCoalescer {
+    // the length of the segment covering the rest of the original list
+    private static final int REST = Integer.MAX_VALUE / 2;
+
+    private static final Comparator<Segment> OLD_START_COMPARATOR = new Comparator<Segment>() {
+        @Override
+        public int compare(Segment lhs, Segment rhs) {
+            return lhs.oldStart < rhs.oldStart ? -1 : (lhs.oldStart == rhs.oldStart ? 0 : 1);
+        }
+    };
+
+    private final ArrayList<Segment> mSegments = new ArrayList<Segment>();
+    private boolean mHasChanges;
+    private boolean mChangedAll;
+
+    /**
+     * Receives the reduced changes, using the notification types of {@link ListChangeRegistry}.
+     */
+    interface Receiver {
+        void onChange(int type, int start, int to, int count);
+    }
+
+    ListChangeCoalescer() {
+        reset();
+    }
+
+    boolean isEmpty() {
+        return !mHasChanges;
+    }
+
+    private void reset() {
+        mSegments.clear();
+        mSegments.add(new Segment(0, REST));
+        mHasChanges = false;
+        mChangedAll = false;
+    }
+
+    /**
+     * Adds a change using the notification types of {@link ListChangeRegistry}.
+     */
+    void add(int type, int start, int to, int count) {
+        if (mChangedAll) {
+            return;
+        }
+        if (type == ListChangeRegistry.ALL) {
+            mChangedAll = true;
+            mHasChanges = true;
+            return;
+        }
+        if (count <= 0) {
+            return;
+        }
+        switch (type) {
+            case ListChangeRegistry.INSERTED:
+                insert(start, count);
+                break;
+            case ListChangeRegistry.REMOVED:
+                remove(start, count);
+                break;
+            case ListChangeRegistry.CHANGED:
+                change(start, count);
+                break;
+            case ListChangeRegistry.MOVED:
+                move(start, to, count);
+                break;
+            default:
+                return;
+        }
+        mHasChanges = true;
+    }
+
+    private void insert(int start, int count) {
+        final int index = split(start);
+        final Segment previous = index > 0 ? mSegments.get(index - 1) : null;
+        if (previous != null && previous.isInserted()) {
+            previous.count += count;
+        } else {
+            mSegments.add(index, new Segment(-1, count));
+            mergeAround(index + 1);
+        }
+    }
+
+    private void remove(int start, int count) {
+        final int from = split(start);
+        final int to = split(start + count);
+        mSegments.subList(from, to).clear();
+        mergeAround(from);
+    }
+
+    private void change(int start, int count) {
+        final int from = split(start);
+        final int to = split(start + count);
+        for (int i = from; i < to; i++) {
+            mSegments.get(i).changed = true;
+        }
+        mergeAround(to);
+        mergeAround(from);
+    }
+
+    /**
+     * Moves count elements from from so that the first of them is at to once they're moved.
+     */
+    private void move(int from, int to, int count) {
+        final int first = split(from);
+        final int end = split(from + count);
+        final ArrayList<Segment> moved = new ArrayList<Segment>(mSegments.subList(first, end));
+        mSegments.subList(first, end).clear();
+        mergeAround(first);
+        final int index = split(to);
+        mSegments.addAll(index, moved);
+        mergeAround(index + moved.size());
+        mergeAround(index);
+    }
+
+    /**
+     * Splits the segments so that one starts at position.
+     *
+     * @return The index of the segment that starts at position.
+     */
+    private int split(int position) {
+        int segmentStart = 0;
+        final int size = mSegments.size();
+        for (int i = 0; i < size; i++) {
+            final Segment segment = mSegments.get(i);
+            if (segmentStart == position) {
+                return i;
+            }
+            final int offset = position - segmentStart;
+            if (offset < segment.count) {
+                final Segment tail = new Segment(
+                        segment.isInserted() ? -1 : segment.oldStart + offset,
+                        segment.count - offset);
+                tail.changed = segment.changed;
+                segment.count = offset;
+                mSegments.add(i + 1, tail);
+                return i + 1;
+            }
+            segmentStart += segment.count;
+        }
+        throw new IndexOutOfBoundsException("No element at " + position);
+    }
+
+    /**
+     * Merges the segment at index with the one before it if they continue each other.
+     */
+    private void mergeAround(int index) {
+        if (index <= 0 || index >= mSegments.size()) {
+            return;
+        }
+        final Segment previous = mSegments.get(index - 1);
+        final Segment segment = mSegments.get(index);
+        final boolean continues;
+        if (previous.isInserted()) {
+            continues = segment.isInserted();
+        } else {
+            continues = previous.changed == segment.changed &&
+                    previous.oldStart + previous.count == segment.oldStart;
+        }
+        if (continues) {
+            previous.count += segment.count;
+            mSegments.remove(index);
+        }
+    }
+
+    /**
+     * Sends the reduced changes to receiver and clears them.
+     */
+    void dispatch(Receiver receiver) {
+        if (!mHasChanges) {
+            return;
+        }
+        if (mChangedAll) {
+            reset();
+            receiver.onChange(ListChangeRegistry.ALL, 0, 0, 0);
+            return;
+        }
+        final ArrayList<Segment> segments = new ArrayList<Segment>(mSegments);
+        reset();
+
+        // The original runs in their original order, which is the list once the original
+        // elements that are gone have been removed.
+        final ArrayList<Segment> current = new ArrayList<Segment>(segments.size());
+        for (Segment segment : segments) {
+            if (!segment.isInserted()) {
+                current.add(segment);
+            }
+        }
+        Collections.sort(current, OLD_START_COMPARATOR);
+        for (int i = current.size() - 1; i >= 0; i--) {
+            final int gapStart = i == 0 ? 0 : current.get(i - 1).oldStart +
+                    current.get(i - 1).count;
+            final int gapEnd = current.get(i).oldStart;
+            if (gapEnd > gapStart) {
+                receiver.onChange(ListChangeRegistry.REMOVED, gapStart, 0, gapEnd - gapStart);
+            }
+        }
+
+        markInOrder(segments);
+        int index = 0;
+        int currentIndex = 0;
+        for (Segment segment : segments) {
+            while (currentIndex < current.size() && !current.get(currentIndex).inOrder &&
+                    !current.get(currentIndex).placed) {
+                // skipped until its own turn comes
+                index += current.get(currentIndex).count;
+                currentIndex++;
+            }
+            if (segment.isInserted()) {
+                receiver.onChange(ListChangeRegistry.INSERTED, index, 0, segment.count);
+                segment.placed = true;
+                current.add(currentIndex++, segment);
+                index += segment.count;
+                continue;
+            }
+            int position = index;
+            if (currentIndex == current.size() || current.get(currentIndex) != segment) {
+                final int from = current.indexOf(segment);
+                int fromPosition = 0;
+                for (int i = 0; i < from; i++) {
+                    fromPosition += current.get(i).count;
+                }
+                current.remove(from);
+                if (from < currentIndex) {
+                    position = index - segment.count;
+                    currentIndex--;
+                    for (int i = 0; i < segment.count; i++) {
+                        receiver.onChange(ListChangeRegistry.MOVED, fromPosition, index - 1, 1);
+                    }
+                } else {
+                    for (int i = 0; i < segment.count; i++) {
+                        receiver.onChange(ListChangeRegistry.MOVED, fromPosition + i,
+                                index + i, 1);
+                    }
+                }
+                current.add(currentIndex, segment);
+            }
+            segment.placed = true;
+            if (segment.changed) {
+                receiver.onChange(ListChangeRegistry.CHANGED, position, 0, segment.count);
+            }
+            currentIndex++;
+            index = position + segment.count;
+        }
+    }
+
+    /**
+     * Marks the longest sequence of original runs that are still in their original order so
+     * that they are not moved.
+     */
+    private static void markInOrder(ArrayList<Segment> segments) {
+        final ArrayList<Segment> runs = new ArrayList<Segment>(segments.size());
+        for (Segment segment : segments) {
+            if (!segment.isInserted()) {
+                runs.add(segment);
+            }
+        }
+        final int size = runs.size();
+        // tails[i] is the index of the smallest run ending a sequence of length i + 1
+        final int[] tails = new int[size];
+        final int[] previous = new int[size];
+        int length = 0;
+        for (int i = 0; i < size; i++) {
+            final int oldStart = runs.get(i).oldStart;
+            int low = 0;
+            int high = length;
+            while (low < high) {
+                final int mid = (low + high) >>> 1;
+                if (runs.get(tails[mid]).oldStart < oldStart) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            previous[i] = low > 0 ? tails[low - 1] : -1;
+            tails[low] = i;
+            if (low == length) {
+                length++;
+            }
+        }
+        for (int i = length == 0 ? -1 : tails[length - 1]; i >= 0; i = previous[i]) {
+            runs.get(i).inOrder = true;
+        }
+    }
+
+    private static class Segment {
+        // the original position of the first element or -1 for inserted elements
+        final int oldStart;
+        int count;
+        boolean changed;
+        boolean inOrder;
+        boolean placed;
+
+        Segment(int oldStart, int count) {
+            this.oldStart = oldStart;
+            this.count = count;
+        }
+
+        boolean isInserted() {
+            return oldStart < 0;
+        }
+    }
+}
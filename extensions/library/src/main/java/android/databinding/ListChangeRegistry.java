@@ -15,10 +15,19 @@
  */
 package android.databinding;
 
+import android.os.Handler;
+import android.os.Looper;
 import android.support.v4.util.Pools;
+import android.view.Choreographer;
 
 /**
  * Utility class for managing ObservableList callbacks.
+ * <p>
+ * In deferred mode, set with {@link #setDeferred(boolean)}, notifications are collected and
+ * sent together once per frame or when {@link #flush()} is called. The collected changes are
+ * reduced to an equivalent sequence of ranges first, so a burst of single element changes
+ * reaches the callbacks as a few range changes and elements that were inserted and removed
+ * again aren't notified at all.
  */
 public class ListChangeRegistry
         extends
@@ -27,11 +36,15 @@ public class ListChangeRegistry
     private static final Pools.SynchronizedPool<ListChanges> sListChanges =
             new Pools.SynchronizedPool<ListChanges>(10);
 
-    private static final int ALL = 0;
-    private static final int CHANGED = 1;
-    private static final int INSERTED = 2;
-    private static final int MOVED = 3;
-    private static final int REMOVED = 4;
+    private static final boolean USE_CHOREOGRAPHER = ViewDataBinding.SDK_INT >= 16;
+
+    static final int ALL = 0;
+    static final int CHANGED = 1;
+    static final int INSERTED = 2;
+    static final int MOVED = 3;
+    static final int REMOVED = 4;
+
+    private volatile Deferral mDeferral;
 
     private static final CallbackRegistry.NotifierCallback<ObservableList.OnListChangedCallback,
             ObservableList, ListChanges> NOTIFIER_CALLBACK = new CallbackRegistry.NotifierCallback<
@@ -58,6 +71,20 @@ public class ListChangeRegistry
                     break;
             }
         }
+
+        @Override
+        public ListChanges retainArgument(ListChanges listChanges) {
+            if (listChanges == null) {
+                return null;
+            }
+            // listChanges is returned to the pool after notifyCallbacks, so queued
+            // notifications need their own instance.
+            ListChanges copy = new ListChanges();
+            copy.start = listChanges.start;
+            copy.to = listChanges.to;
+            copy.count = listChanges.count;
+            return copy;
+        }
     };
 
     /**
@@ -130,9 +157,70 @@ public class ListChangeRegistry
     }
 
     @Override
-    public synchronized void notifyCallbacks(ObservableList sender, int notificationType,
+    public void notifyCallbacks(ObservableList sender, int notificationType,
             ListChanges listChanges) {
-        super.notifyCallbacks(sender, notificationType, listChanges);
+        final Deferral deferral = mDeferral;
+        if (deferral == null || !deferral.add(sender, notificationType, listChanges)) {
+            super.notifyCallbacks(sender, notificationType, listChanges);
+        }
+        if (listChanges != null) {
+            sListChanges.release(listChanges);
+        }
+    }
+
+    /**
+     * Sets whether notifications are collected and sent to the callbacks once per frame
+     * instead of as they're made. The frame is scheduled on the thread of the first collected
+     * notification if it has a Looper or on the main thread otherwise. Collected notifications
+     * are sent when deferred mode is turned off.
+     * <p>
+     * The list must not change without notifying while notifications are deferred.
+     * Notifications for a different sender first send the ones collected for the previous one.
+     *
+     * @param deferred true to collect notifications until the next frame or {@link #flush()}.
+     */
+    public void setDeferred(boolean deferred) {
+        final Deferral previous;
+        synchronized (this) {
+            previous = mDeferral;
+            if (deferred == (previous != null)) {
+                return;
+            }
+            mDeferral = deferred ? new Deferral() : null;
+        }
+        if (previous != null) {
+            previous.flush();
+        }
+    }
+
+    /**
+     * @return true if notifications are collected until the next frame or {@link #flush()}.
+     * @see #setDeferred(boolean)
+     */
+    public boolean isDeferred() {
+        return mDeferral != null;
+    }
+
+    /**
+     * Sends the notifications collected in deferred mode to the callbacks now.
+     */
+    public void flush() {
+        final Deferral deferral = mDeferral;
+        if (deferral != null) {
+            deferral.flush();
+        }
+    }
+
+    @Override
+    public synchronized ListChangeRegistry clone() {
+        final ListChangeRegistry clone = (ListChangeRegistry) super.clone();
+        clone.mDeferral = mDeferral == null ? null : clone.new Deferral();
+        return clone;
+    }
+
+    private void notifyNow(ObservableList sender, int type, int start, int to, int count) {
+        final ListChanges listChanges = type == ALL ? null : acquire(start, to, count);
+        super.notifyCallbacks(sender, type, listChanges);
         if (listChanges != null) {
             sListChanges.release(listChanges);
         }
@@ -142,6 +230,124 @@ public class ListChangeRegistry
         super(NOTIFIER_CALLBACK);
     }
 
+    /**
+     * Creates a ListChangeRegistry.
+     *
+     * @param copyOnWrite true if notifications should not lock the registry. This is useful
+     *                    when the list changes on a background thread while callbacks are
+     *                    added and removed on the UI thread.
+     * @see CallbackRegistry#CallbackRegistry(CallbackRegistry.NotifierCallback, boolean)
+     */
+    public ListChangeRegistry(boolean copyOnWrite) {
+        super(NOTIFIER_CALLBACK, copyOnWrite);
+    }
+
+    /**
+     * The notifications collected in deferred mode.
+     */
+    private class Deferral implements ListChangeCoalescer.Receiver {
+        private final ListChangeCoalescer mPending = new ListChangeCoalescer();
+        private ObservableList mSender;
+        private boolean mFlushPosted;
+        private Choreographer.FrameCallback mFrameCallback;
+        private Runnable mFlushRunnable;
+        // the reduced changes as type, start, to and count while flushing
+        private int[] mFlushed = new int[16];
+        private int mFlushedSize;
+
+        /**
+         * @return false if the notification must be sent now because deferred mode ended.
+         */
+        boolean add(ObservableList sender, int type, ListChanges listChanges) {
+            boolean flushPrevious;
+            synchronized (this) {
+                if (mDeferral != this) {
+                    return false;
+                }
+                flushPrevious = !mPending.isEmpty() && mSender != sender;
+            }
+            if (flushPrevious) {
+                flush();
+            }
+            final boolean post;
+            synchronized (this) {
+                mSender = sender;
+                if (listChanges == null) {
+                    mPending.add(type, 0, 0, 0);
+                } else {
+                    mPending.add(type, listChanges.start, listChanges.to, listChanges.count);
+                }
+                post = !mFlushPosted;
+                mFlushPosted = true;
+            }
+            if (post) {
+                postFlush();
+            }
+            return true;
+        }
+
+        private void postFlush() {
+            final Looper looper = Looper.myLooper();
+            if (USE_CHOREOGRAPHER && looper != null) {
+                if (mFrameCallback == null) {
+                    mFrameCallback = new Choreographer.FrameCallback() {
+                        @Override
+                        public void doFrame(long frameTimeNanos) {
+                            flush();
+                        }
+                    };
+                }
+                Choreographer.getInstance().postFrameCallback(mFrameCallback);
+            } else {
+                if (mFlushRunnable == null) {
+                    mFlushRunnable = new Runnable() {
+                        @Override
+                        public void run() {
+                            flush();
+                        }
+                    };
+                }
+                new Handler(looper == null ? Looper.getMainLooper() : looper)
+                        .post(mFlushRunnable);
+            }
+        }
+
+        void flush() {
+            final ObservableList sender;
+            final int[] flushed;
+            final int size;
+            synchronized (this) {
+                mFlushPosted = false;
+                if (mPending.isEmpty()) {
+                    return;
+                }
+                sender = mSender;
+                mSender = null;
+                mFlushedSize = 0;
+                mPending.dispatch(this);
+                flushed = mFlushed;
+                size = mFlushedSize;
+                mFlushed = new int[flushed.length];
+            }
+            for (int i = 0; i < size; i += 4) {
+                notifyNow(sender, flushed[i], flushed[i + 1], flushed[i + 2], flushed[i + 3]);
+            }
+        }
+
+        @Override
+        public void onChange(int type, int start, int to, int count) {
+            if (mFlushedSize + 4 > mFlushed.length) {
+                final int[] flushed = new int[mFlushed.length * 2];
+                System.arraycopy(mFlushed, 0, flushed, 0, mFlushedSize);
+                mFlushed = flushed;
+            }
+            mFlushed[mFlushedSize++] = type;
+            mFlushed[mFlushedSize++] = start;
+            mFlushed[mFlushedSize++] = to;
+            mFlushed[mFlushedSize++] = count;
+        }
+    }
+
     static class ListChanges {
         public int start;
         public int count;
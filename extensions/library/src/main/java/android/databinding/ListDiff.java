@@ -0,0 +1,438 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.databinding;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Computes the changes that turn one list into another so that an {@link ObservableArrayList}
+ * can be updated with them and only notify the elements that were inserted, removed, moved or
+ * changed, instead of replacing all of its elements.
+ * <p>
+ * The difference is computed with Myers' algorithm in linear space, after the elements that
+ * both lists start and end with are matched. It takes O((N + M) * D) time for lists of N and M
+ * elements that differ by D insertions and removals. {@link #calculate(List, List, Callback)}
+ * only reads the lists that it is given, so it may run on a background thread with copies of
+ * the data, and the {@link Result} can be applied later on the thread that owns the list:
+ * <pre><code>
+ * // background thread
+ * ListDiff.Result&lt;Item> result = ListDiff.calculate(oldItems, newItems, callback);
+ * // UI thread
+ * result.applyTo(observableItems);
+ * </code></pre>
+ */
+public class ListDiff {
+    /**
+     * The edit distance of {@link #calculate(List, List, Callback)}, which finds the minimal
+     * changes however much the lists differ.
+     */
+    public static final int UNLIMITED = Integer.MAX_VALUE;
+
+    // Moves are detected by comparing each removed element with each inserted element, so
+    // detection is skipped when that would take more comparisons than this.
+    private static final long MAX_MOVE_COMPARISONS = 1L << 20;
+
+    private ListDiff() {
+    }
+
+    /**
+     * Compares the elements of two lists.
+     */
+    public static abstract class Callback<T> {
+        /**
+         * @return true if oldItem and newItem represent the same element, such as two versions
+         * of an item with the same ID.
+         */
+        public abstract boolean areItemsTheSame(T oldItem, T newItem);
+
+        /**
+         * Called for elements that {@link #areItemsTheSame(Object, Object)} matched.
+         *
+         * @return true if oldItem and newItem would be displayed the same way, so that the
+         * element doesn't need to be notified as changed.
+         */
+        public abstract boolean areContentsTheSame(T oldItem, T newItem);
+    }
+
+    /**
+     * Computes the changes from oldList to newList, including moved elements.
+     */
+    public static <T> Result<T> calculate(List<? extends T> oldList, List<? extends T> newList,
+            Callback<? super T> callback) {
+        return calculate(oldList, newList, callback, true, UNLIMITED);
+    }
+
+    /**
+     * Computes the changes from oldList to newList.
+     *
+     * @param detectMoves Whether removed elements that are inserted elsewhere should be
+     *                    notified as moved instead.
+     * @param maxEditDistance The number of insertions and removals after which the search for
+     *                        a minimal difference stops. Parts of the lists that differ by
+     *                        more are replaced instead, which keeps large, unrelated lists
+     *                        cheap to compare.
+     */
+    public static <T> Result<T> calculate(List<? extends T> oldList, List<? extends T> newList,
+            Callback<? super T> callback, boolean detectMoves, int maxEditDistance) {
+        final Object[] oldItems = oldList.toArray();
+        final Object[] newItems = newList.toArray();
+        final Differ differ = new Differ(oldItems, newItems, callback, maxEditDistance);
+        differ.match();
+        if (detectMoves) {
+            differ.matchMoves();
+        }
+        return new Result<T>(oldItems, newItems, differ.mOldToNew, differ.mNewToOld,
+                differ.mMoved, differ.changedContents());
+    }
+
+    /**
+     * The changes between two lists, computed by {@link #calculate(List, List, Callback)}.
+     */
+    public static class Result<T> {
+        private final Object[] mOldItems;
+        private final Object[] mNewItems;
+        // the matching position in the other list or -1
+        private final int[] mOldToNew;
+        private final int[] mNewToOld;
+        // indexed by old position
+        private final boolean[] mMoved;
+        // indexed by new position
+        private final boolean[] mChanged;
+
+        Result(Object[] oldItems, Object[] newItems, int[] oldToNew, int[] newToOld,
+                boolean[] moved, boolean[] changed) {
+            mOldItems = oldItems;
+            mNewItems = newItems;
+            mOldToNew = oldToNew;
+            mNewToOld = newToOld;
+            mMoved = moved;
+            mChanged = changed;
+        }
+
+        /**
+         * Updates list so that it holds the elements of the new list, notifying its callbacks
+         * of the removed, inserted, moved and changed ranges. Elements that are the same item
+         * are replaced with the new object without notifying them when their contents are the
+         * same.
+         * <p>
+         * If list no longer holds the elements of the old list, because it was modified since
+         * the changes were computed, its elements are replaced with
+         * {@link ObservableArrayList#setAll(java.util.Collection)} instead.
+         */
+        @SuppressWarnings("unchecked")
+        public void applyTo(ObservableArrayList<T> list) {
+            if (!holdsOldItems(list)) {
+                list.setAll((List<T>) Arrays.asList(mNewItems));
+                return;
+            }
+            list.beginBatchedUpdates();
+            try {
+                removeUnmatched(list);
+                // the old positions of the elements in list, or -1 for inserted elements
+                final int[] current = new int[Math.max(list.size(), mNewItems.length)];
+                int size = 0;
+                for (int i = 0; i < mOldToNew.length; i++) {
+                    if (mOldToNew[i] >= 0) {
+                        current[size++] = i;
+                    }
+                }
+                // Elements that stay in order keep their place. Moved elements are skipped
+                // until their new position is reached and then moved there once.
+                int index = 0;
+                int newPos = 0;
+                while (newPos < mNewItems.length) {
+                    while (index < size && current[index] >= 0 && mMoved[current[index]] &&
+                            mOldToNew[current[index]] > newPos) {
+                        index++;
+                    }
+                    final int oldPos = mNewToOld[newPos];
+                    if (oldPos < 0) {
+                        int end = newPos + 1;
+                        while (end < mNewItems.length && mNewToOld[end] < 0) {
+                            end++;
+                        }
+                        final int count = end - newPos;
+                        list.addAll(index, (List<T>) Arrays.asList(mNewItems).subList(newPos,
+                                end));
+                        System.arraycopy(current, index, current, index + count, size - index);
+                        Arrays.fill(current, index, index + count, -1);
+                        size += count;
+                        index += count;
+                        newPos = end;
+                        continue;
+                    }
+                    int position = index;
+                    if (index == size || current[index] != oldPos) {
+                        int from = 0;
+                        while (current[from] != oldPos) {
+                            from++;
+                        }
+                        if (from < index) {
+                            // a skipped element: the elements after it shift back by one
+                            position = index - 1;
+                            System.arraycopy(current, from + 1, current, from, position - from);
+                        } else {
+                            System.arraycopy(current, index, current, index + 1, from - index);
+                        }
+                        current[position] = oldPos;
+                        list.move(from, position);
+                    }
+                    list.replace(position, (T) mNewItems[newPos], mChanged[newPos]);
+                    index = position + 1;
+                    newPos++;
+                }
+            } finally {
+                list.endBatchedUpdates();
+            }
+        }
+
+        private boolean holdsOldItems(List<T> list) {
+            if (list.size() != mOldItems.length) {
+                return false;
+            }
+            for (int i = 0; i < mOldItems.length; i++) {
+                if (list.get(i) != mOldItems[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void removeUnmatched(ObservableArrayList<T> list) {
+            // from the end so that the positions of earlier runs don't change
+            int end = mOldToNew.length;
+            while (end > 0) {
+                if (mOldToNew[end - 1] >= 0) {
+                    end--;
+                    continue;
+                }
+                int start = end - 1;
+                while (start > 0 && mOldToNew[start - 1] < 0) {
+                    start--;
+                }
+                list.removeRange(start, end);
+                end = start;
+            }
+        }
+    }
+
+    /**
+     * Matches the elements of two lists.
+     */
+    private static class Differ {
+        private final Object[] mOldItems;
+        private final Object[] mNewItems;
+        @SuppressWarnings("rawtypes")
+        private final Callback mCallback;
+        private final int mMaxEditDistance;
+        final int[] mOldToNew;
+        final int[] mNewToOld;
+        final boolean[] mMoved;
+        // furthest reaching paths of the forward and backward searches, by diagonal
+        private final int[] mForward;
+        private final int[] mBackward;
+        private final int mOffset;
+
+        // the snake found by findMiddleSnake
+        private int mSnakeStartX;
+        private int mSnakeStartY;
+        private int mSnakeEndX;
+        private int mSnakeEndY;
+
+        Differ(Object[] oldItems, Object[] newItems, Callback<?> callback,
+                int maxEditDistance) {
+            mOldItems = oldItems;
+            mNewItems = newItems;
+            mCallback = callback;
+            mMaxEditDistance = maxEditDistance;
+            mOldToNew = new int[oldItems.length];
+            mNewToOld = new int[newItems.length];
+            Arrays.fill(mOldToNew, -1);
+            Arrays.fill(mNewToOld, -1);
+            mMoved = new boolean[oldItems.length];
+            final int maxD = (oldItems.length + newItems.length + 1) / 2 + 1;
+            mOffset = maxD + 1;
+            mForward = new int[2 * mOffset + 1];
+            mBackward = new int[2 * mOffset + 1];
+        }
+
+        @SuppressWarnings("unchecked")
+        private boolean same(int oldPos, int newPos) {
+            return mCallback.areItemsTheSame(mOldItems[oldPos], mNewItems[newPos]);
+        }
+
+        private void matchDiagonal(int x, int y, int count) {
+            for (int i = 0; i < count; i++) {
+                mOldToNew[x + i] = y + i;
+                mNewToOld[y + i] = x + i;
+            }
+        }
+
+        void match() {
+            // pending ranges as oldStart, oldEnd, newStart, newEnd
+            final ArrayList<int[]> ranges = new ArrayList<int[]>();
+            ranges.add(new int[] {0, mOldItems.length, 0, mNewItems.length});
+            while (!ranges.isEmpty()) {
+                final int[] range = ranges.remove(ranges.size() - 1);
+                int oldStart = range[0];
+                int oldEnd = range[1];
+                int newStart = range[2];
+                int newEnd = range[3];
+                while (oldStart < oldEnd && newStart < newEnd && same(oldStart, newStart)) {
+                    matchDiagonal(oldStart++, newStart++, 1);
+                }
+                while (oldStart < oldEnd && newStart < newEnd && same(oldEnd - 1, newEnd - 1)) {
+                    matchDiagonal(--oldEnd, --newEnd, 1);
+                }
+                if (oldStart == oldEnd || newStart == newEnd) {
+                    continue;
+                }
+                if (!findMiddleSnake(oldStart, oldEnd, newStart, newEnd)) {
+                    // too different: the remaining elements are removed and inserted
+                    continue;
+                }
+                final int startX = mSnakeStartX;
+                final int startY = mSnakeStartY;
+                final int endX = mSnakeEndX;
+                final int endY = mSnakeEndY;
+                matchDiagonal(startX, startY, endX - startX);
+                ranges.add(new int[] {oldStart, startX, newStart, startY});
+                ranges.add(new int[] {endX, oldEnd, endY, newEnd});
+            }
+        }
+
+        /**
+         * Finds the snake in the middle of the shortest edit script of the range, which
+         * starts and ends with different elements, and stores it in the mSnake fields.
+         *
+         * @return false if the range differs by more than the maximum edit distance.
+         */
+        private boolean findMiddleSnake(int oldStart, int oldEnd, int newStart, int newEnd) {
+            final int n = oldEnd - oldStart;
+            final int m = newEnd - newStart;
+            final int delta = n - m;
+            final boolean odd = (delta & 1) != 0;
+            final int[] forward = mForward;
+            final int[] backward = mBackward;
+            final int offset = mOffset;
+            forward[offset + 1] = 0;
+            backward[offset + 1] = 0;
+            final int maxD = Math.min((n + m + 1) / 2, mMaxEditDistance / 2 + 1);
+            for (int d = 0; d <= maxD; d++) {
+                for (int k = -d; k <= d; k += 2) {
+                    int x;
+                    if (k == -d || (k != d && forward[offset + k - 1] < forward[offset + k + 1])) {
+                        x = forward[offset + k + 1];
+                    } else {
+                        x = forward[offset + k - 1] + 1;
+                    }
+                    int y = x - k;
+                    final int snakeStartX = x;
+                    final int snakeStartY = y;
+                    while (x < n && y < m && same(oldStart + x, newStart + y)) {
+                        x++;
+                        y++;
+                    }
+                    forward[offset + k] = x;
+                    final int backwardK = delta - k;
+                    if (odd && backwardK >= -(d - 1) && backwardK <= d - 1 &&
+                            x + backward[offset + backwardK] >= n) {
+                        mSnakeStartX = oldStart + snakeStartX;
+                        mSnakeStartY = newStart + snakeStartY;
+                        mSnakeEndX = oldStart + x;
+                        mSnakeEndY = newStart + y;
+                        return true;
+                    }
+                }
+                for (int k = -d; k <= d; k += 2) {
+                    int u;
+                    if (k == -d ||
+                            (k != d && backward[offset + k - 1] < backward[offset + k + 1])) {
+                        u = backward[offset + k + 1];
+                    } else {
+                        u = backward[offset + k - 1] + 1;
+                    }
+                    int v = u - k;
+                    final int snakeStartU = u;
+                    final int snakeStartV = v;
+                    while (u < n && v < m && same(oldEnd - 1 - u, newEnd - 1 - v)) {
+                        u++;
+                        v++;
+                    }
+                    backward[offset + k] = u;
+                    final int forwardK = delta - k;
+                    if (!odd && forwardK >= -d && forwardK <= d &&
+                            u + forward[offset + forwardK] >= n) {
+                        mSnakeStartX = oldEnd - u;
+                        mSnakeStartY = newEnd - v;
+                        mSnakeEndX = oldEnd - snakeStartU;
+                        mSnakeEndY = newEnd - snakeStartV;
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Matches removed elements with inserted elements that are the same item.
+         */
+        void matchMoves() {
+            int removed = 0;
+            for (int i = 0; i < mOldToNew.length; i++) {
+                if (mOldToNew[i] < 0) {
+                    removed++;
+                }
+            }
+            int inserted = 0;
+            for (int i = 0; i < mNewToOld.length; i++) {
+                if (mNewToOld[i] < 0) {
+                    inserted++;
+                }
+            }
+            if ((long) removed * inserted > MAX_MOVE_COMPARISONS) {
+                return;
+            }
+            for (int newPos = 0; newPos < mNewToOld.length; newPos++) {
+                if (mNewToOld[newPos] >= 0) {
+                    continue;
+                }
+                for (int oldPos = 0; oldPos < mOldToNew.length; oldPos++) {
+                    if (mOldToNew[oldPos] < 0 && same(oldPos, newPos)) {
+                        mOldToNew[oldPos] = newPos;
+                        mNewToOld[newPos] = oldPos;
+                        mMoved[oldPos] = true;
+                        break;
+                    }
+                }
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        boolean[] changedContents() {
+            final boolean[] changed = new boolean[mNewItems.length];
+            for (int i = 0; i < mNewItems.length; i++) {
+                final int oldPos = mNewToOld[i];
+                changed[i] = oldPos >= 0 &&
+                        !mCallback.areContentsTheSame(mOldItems[oldPos], mNewItems[i]);
+            }
+            return changed;
+        }
+    }
+}
@@ -15,8 +15,17 @@
  */
 package android.databinding;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
 /**
  * Utility class for managing ObservableMap callbacks.
+ * <p>
+ * A callback added with {@link #add(ObservableMap.OnMapChangedCallback, Object[])} is only
+ * notified of changes to the given keys and of changes with a <code>null</code> key, which
+ * {@link ObservableArrayMap} uses when the whole map changes.
  */
 public class MapChangeRegistry
         extends CallbackRegistry<ObservableMap.OnMapChangedCallback, ObservableMap, Object> {
@@ -30,10 +39,28 @@ public class MapChangeRegistry
                 }
             };
 
+    /**
+     * Maps each callback that was added with keys to the FilteredCallback that is registered
+     * in its place. This is null until a callback is added with keys.
+     */
+    private HashMap<ObservableMap.OnMapChangedCallback, FilteredCallback> mFilteredCallbacks;
+
     public MapChangeRegistry() {
         super(NOTIFIER_CALLBACK);
     }
 
+    /**
+     * Creates a MapChangeRegistry.
+     *
+     * @param copyOnWrite true if notifications should not lock the registry. This is useful
+     *                    when the map changes on a background thread while callbacks are
+     *                    added and removed on the UI thread.
+     * @see CallbackRegistry#CallbackRegistry(CallbackRegistry.NotifierCallback, boolean)
+     */
+    public MapChangeRegistry(boolean copyOnWrite) {
+        super(NOTIFIER_CALLBACK, copyOnWrite);
+    }
+
     /**
      * Notifies registered callbacks that an element has been added, removed, or changed.
      *
@@ -43,4 +70,114 @@ public class MapChangeRegistry
     public void notifyChange(ObservableMap sender, Object key) {
         notifyCallbacks(sender, 0, key);
     }
+
+    /**
+     * Adds a callback that is notified only when the value of one of <code>keys</code> or the
+     * whole map changes. Notifications for other keys skip the callback entirely. If the
+     * callback was already added, its keys are replaced.
+     *
+     * @param callback The callback to add.
+     * @param keys The keys whose values callback observes.
+     */
+    public synchronized void add(ObservableMap.OnMapChangedCallback callback, Object[] keys) {
+        removeFilteredCallback(callback);
+        super.remove(callback);
+        FilteredCallback filteredCallback = new FilteredCallback(callback, keys);
+        if (mFilteredCallbacks == null) {
+            mFilteredCallbacks =
+                    new HashMap<ObservableMap.OnMapChangedCallback, FilteredCallback>();
+        }
+        mFilteredCallbacks.put(callback, filteredCallback);
+        super.add(filteredCallback);
+    }
+
+    /**
+     * Adds a callback that is notified of changes to all keys. If the callback was already
+     * added with keys, it is no longer limited to them.
+     *
+     * @param callback The callback to add.
+     */
+    @Override
+    public synchronized void add(ObservableMap.OnMapChangedCallback callback) {
+        removeFilteredCallback(callback);
+        super.add(callback);
+    }
+
+    @Override
+    public synchronized void remove(ObservableMap.OnMapChangedCallback callback) {
+        removeFilteredCallback(callback);
+        super.remove(callback);
+    }
+
+    private void removeFilteredCallback(ObservableMap.OnMapChangedCallback callback) {
+        if (mFilteredCallbacks != null) {
+            FilteredCallback filteredCallback = mFilteredCallbacks.remove(callback);
+            if (filteredCallback != null) {
+                super.remove(filteredCallback);
+            }
+        }
+    }
+
+    @Override
+    public synchronized ArrayList<ObservableMap.OnMapChangedCallback> copyCallbacks() {
+        ArrayList<ObservableMap.OnMapChangedCallback> callbacks = super.copyCallbacks();
+        unwrapFilteredCallbacks(callbacks);
+        return callbacks;
+    }
+
+    @Override
+    public synchronized void copyCallbacks(List<ObservableMap.OnMapChangedCallback> callbacks) {
+        super.copyCallbacks(callbacks);
+        unwrapFilteredCallbacks(callbacks);
+    }
+
+    private static void unwrapFilteredCallbacks(
+            List<ObservableMap.OnMapChangedCallback> callbacks) {
+        for (int i = callbacks.size() - 1; i >= 0; i--) {
+            ObservableMap.OnMapChangedCallback callback = callbacks.get(i);
+            if (callback instanceof FilteredCallback) {
+                callbacks.set(i, ((FilteredCallback) callback).mCallback);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void clear() {
+        mFilteredCallbacks = null;
+        super.clear();
+    }
+
+    @Override
+    public synchronized MapChangeRegistry clone() {
+        MapChangeRegistry clone = (MapChangeRegistry) super.clone();
+        if (mFilteredCallbacks != null) {
+            clone.mFilteredCallbacks =
+                    new HashMap<ObservableMap.OnMapChangedCallback, FilteredCallback>(
+                            mFilteredCallbacks);
+        }
+        return clone;
+    }
+
+    /**
+     * Registered in place of a callback that only observes some keys.
+     */
+    private static class FilteredCallback extends ObservableMap.OnMapChangedCallback {
+        final ObservableMap.OnMapChangedCallback mCallback;
+        private final HashSet<Object> mKeys;
+
+        public FilteredCallback(ObservableMap.OnMapChangedCallback callback, Object[] keys) {
+            mCallback = callback;
+            mKeys = new HashSet<Object>(keys.length * 2);
+            for (Object key : keys) {
+                mKeys.add(key);
+            }
+        }
+
+        @Override
+        public void onMapChanged(ObservableMap sender, Object key) {
+            if (key == null || mKeys.contains(key)) {
+                mCallback.onMapChanged(sender, key);
+            }
+        }
+    }
 }
@@ -16,13 +16,46 @@
 package android.databinding;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Comparator;
 
 /**
  * An {@link ObservableList} implementation using ArrayList as an implementation.
+ * <p>
+ * The bulk operations {@link #setAll(Collection)}, {@link #removeAll(Collection)},
+ * {@link #retainAll(Collection)}, {@link #removeMatching(Filter)},
+ * {@link #replaceEach(Operator)} and {@link #sort(Comparator)} notify one range for each run
+ * of affected elements. The removeIf and replaceAll methods inherited from ArrayList on newer
+ * platforms bypass the notifications; use removeMatching and replaceEach instead. Changes made between {@link #beginBatchedUpdates()} and
+ * {@link #endBatchedUpdates()} are merged and sent to the callbacks when the batch ends.
+ * With {@link #setDeferredNotifications(boolean)}, changes are instead collected until the
+ * next frame.
  */
 public class ObservableArrayList<T> extends ArrayList<T> implements ObservableList<T> {
     private transient ListChangeRegistry mListeners = new ListChangeRegistry();
+    private transient ListChangeBatch mBatch;
+    private transient int mBatchDepth;
+
+    /**
+     * Decides which elements {@link #removeMatching(Filter)} removes.
+     */
+    public interface Filter<T> {
+        /**
+         * @return true if item should be removed.
+         */
+        boolean matches(T item);
+    }
+
+    /**
+     * Computes the replacement of each element for {@link #replaceEach(Operator)}.
+     */
+    public interface Operator<T> {
+        /**
+         * @return The element to replace item with. Returning item itself leaves it unchanged.
+         */
+        T apply(T item);
+    }
 
     @Override
     public void addOnListChangedCallback(OnListChangedCallback listener) {
@@ -101,9 +134,7 @@ public class ObservableArrayList<T> extends ArrayList<T> implements ObservableLi
     @Override
     public T set(int index, T object) {
         T val = super.set(index, object);
-        if (mListeners != null) {
-            mListeners.notifyChanged(this, index, 1);
-        }
+        notifyChange(index, 1);
         return val;
     }
 
@@ -113,15 +144,285 @@ public class ObservableArrayList<T> extends ArrayList<T> implements ObservableLi
         notifyRemove(fromIndex, toIndex - fromIndex);
     }
 
-    private void notifyAdd(int start, int count) {
+    @Override
+    public boolean removeAll(Collection<?> collection) {
+        return removeContained(collection, true);
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> collection) {
+        return removeContained(collection, false);
+    }
+
+    /**
+     * Removes the elements that filter matches. One removal is notified for each run of
+     * removed elements, starting with the last. All elements are checked before the list is
+     * modified, so the list is unchanged if filter throws.
+     *
+     * @return true if any element was removed.
+     */
+    public boolean removeMatching(Filter<? super T> filter) {
+        final int size = size();
+        boolean[] removed = null;
+        for (int i = 0; i < size; i++) {
+            if (filter.matches(get(i))) {
+                if (removed == null) {
+                    removed = new boolean[size];
+                }
+                removed[i] = true;
+            }
+        }
+        return removeMarked(removed);
+    }
+
+    /**
+     * Replaces each element with the result of operator. One change is notified for each run
+     * of elements that were replaced with a different object. All replacements are computed
+     * before the list is modified, so the list is unchanged if operator throws.
+     */
+    public void replaceEach(Operator<T> operator) {
+        final int size = size();
+        final Object[] elements = new Object[size];
+        for (int i = 0; i < size; i++) {
+            elements[i] = operator.apply(get(i));
+        }
+        setElements(elements, size);
+    }
+
+    /**
+     * Sorts the elements with comparator. One change is notified for each run of positions
+     * that hold a different element after sorting.
+     */
+    @SuppressWarnings("unchecked")
+    public void sort(Comparator<? super T> comparator) {
+        final Object[] sorted = toArray();
+        Arrays.sort(sorted, (Comparator<Object>) comparator);
+        setElements(sorted, sorted.length);
+    }
+
+    /**
+     * Replaces the contents of the list with the elements of collection. Positions that hold
+     * a different object afterwards are notified as changed, and the difference in size as a
+     * single insertion or removal at the end of the list.
+     */
+    @SuppressWarnings("unchecked")
+    public void setAll(Collection<? extends T> collection) {
+        final Object[] elements = collection.toArray();
+        final int oldSize = size();
+        final int newSize = elements.length;
+        final int common = Math.min(oldSize, newSize);
+        setElements(elements, common);
+        if (newSize > oldSize) {
+            ensureCapacity(newSize);
+            for (int i = oldSize; i < newSize; i++) {
+                super.add((T) elements[i]);
+            }
+            notifyAdd(oldSize, newSize - oldSize);
+        } else if (newSize < oldSize) {
+            super.removeRange(newSize, oldSize);
+            notifyRemove(newSize, oldSize - newSize);
+        }
+    }
+
+    /**
+     * Replaces the contents of the list with the elements of collection, notifying only the
+     * elements that were inserted, removed, moved or changed according to callback. This
+     * computes the difference on the calling thread; use {@link ListDiff} to compute it on
+     * another thread.
+     *
+     * @see ListDiff#calculate(java.util.List, java.util.List, ListDiff.Callback)
+     */
+    public void setAll(Collection<? extends T> collection, ListDiff.Callback<? super T> callback) {
+        ListDiff.calculate(this, new ArrayList<T>(collection), callback).applyTo(this);
+    }
+
+    /**
+     * Starts collecting the changes to the list instead of notifying the callbacks of each
+     * one. Adjacent changes are merged into single ranges and the result is sent when the
+     * matching {@link #endBatchedUpdates()} is called. Batches may be nested.
+     */
+    public void beginBatchedUpdates() {
+        if (mBatch == null) {
+            mBatch = new ListChangeBatch();
+        }
+        mBatchDepth++;
+    }
+
+    /**
+     * Ends a batch started with {@link #beginBatchedUpdates()}. The outermost batch sends the
+     * changes collected during the batch to the callbacks.
+     */
+    public void endBatchedUpdates() {
+        if (mBatchDepth == 0) {
+            throw new IllegalStateException("endBatchedUpdates called without a batch");
+        }
+        mBatchDepth--;
+        if (mBatchDepth == 0) {
+            if (mListeners == null) {
+                mBatch.clear();
+            } else {
+                mBatch.dispatch(mListeners, this);
+            }
+        }
+    }
+
+    /**
+     * Sets whether the callbacks are notified once per frame with the reduced changes made
+     * since the last notification instead of as each change is made.
+     *
+     * @see ListChangeRegistry#setDeferred(boolean)
+     */
+    public void setDeferredNotifications(boolean deferred) {
+        if (mListeners == null) {
+            if (!deferred) {
+                return;
+            }
+            mListeners = new ListChangeRegistry();
+        }
+        mListeners.setDeferred(deferred);
+    }
+
+    /**
+     * Notifies the callbacks of the changes collected since the last notification when
+     * notifications are deferred.
+     *
+     * @see #setDeferredNotifications(boolean)
+     */
+    public void flushNotifications() {
         if (mListeners != null) {
+            mListeners.flush();
+        }
+    }
+
+    /**
+     * Moves the element at from to the position to, notifying the move.
+     */
+    void move(int from, int to) {
+        final T item = super.remove(from);
+        super.add(to, item);
+        notifyMove(from, to, 1);
+    }
+
+    /**
+     * Sets the element at index, only notifying the change when notify is true.
+     */
+    void replace(int index, T item, boolean notify) {
+        super.set(index, item);
+        if (notify) {
+            notifyChange(index, 1);
+        }
+    }
+
+    /**
+     * Sets the first count elements to elements, notifying runs of changed positions.
+     */
+    @SuppressWarnings("unchecked")
+    private void setElements(Object[] elements, int count) {
+        int changeStart = -1;
+        for (int i = 0; i < count; i++) {
+            if (get(i) != elements[i]) {
+                super.set(i, (T) elements[i]);
+                if (changeStart < 0) {
+                    changeStart = i;
+                }
+            } else if (changeStart >= 0) {
+                notifyChange(changeStart, i - changeStart);
+                changeStart = -1;
+            }
+        }
+        if (changeStart >= 0) {
+            notifyChange(changeStart, count - changeStart);
+        }
+    }
+
+    /**
+     * Removes the elements for which collection.contains() is equal to contained. All elements
+     * are checked before the list is modified, so the list is unchanged if contains() throws.
+     */
+    private boolean removeContained(Collection<?> collection, boolean contained) {
+        final int size = size();
+        boolean[] removed = null;
+        for (int i = 0; i < size; i++) {
+            if (collection.contains(get(i)) == contained) {
+                if (removed == null) {
+                    removed = new boolean[size];
+                }
+                removed[i] = true;
+            }
+        }
+        return removeMarked(removed);
+    }
+
+    /**
+     * Removes the elements whose position is true in removed, notifying each run of removed
+     * elements.
+     *
+     * @return false if removed is null and nothing was removed.
+     */
+    private boolean removeMarked(boolean[] removed) {
+        if (removed == null) {
+            return false;
+        }
+        final int size = removed.length;
+        // start and count of each run of removed elements
+        int[] runs = new int[8];
+        int runCount = 0;
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            if (!removed[i]) {
+                if (kept != i) {
+                    super.set(kept, get(i));
+                }
+                kept++;
+            } else if (runCount > 0 && runs[runCount - 2] + runs[runCount - 1] == i) {
+                runs[runCount - 1]++;
+            } else {
+                if (runCount == runs.length) {
+                    final int[] grown = new int[runCount * 2];
+                    System.arraycopy(runs, 0, grown, 0, runCount);
+                    runs = grown;
+                }
+                runs[runCount++] = i;
+                runs[runCount++] = 1;
+            }
+        }
+        super.removeRange(kept, size);
+        // the last run is notified first so that the positions of the others are unchanged
+        for (int i = runCount - 2; i >= 0; i -= 2) {
+            notifyRemove(runs[i], runs[i + 1]);
+        }
+        return true;
+    }
+
+    private void notifyAdd(int start, int count) {
+        if (mBatchDepth > 0) {
+            mBatch.add(ListChangeRegistry.INSERTED, start, 0, count);
+        } else if (mListeners != null) {
             mListeners.notifyInserted(this, start, count);
         }
     }
 
     private void notifyRemove(int start, int count) {
-        if (mListeners != null) {
+        if (mBatchDepth > 0) {
+            mBatch.add(ListChangeRegistry.REMOVED, start, 0, count);
+        } else if (mListeners != null) {
             mListeners.notifyRemoved(this, start, count);
         }
     }
+
+    private void notifyMove(int from, int to, int count) {
+        if (mBatchDepth > 0) {
+            mBatch.add(ListChangeRegistry.MOVED, from, to, count);
+        } else if (mListeners != null) {
+            mListeners.notifyMoved(this, from, to, count);
+        }
+    }
+
+    private void notifyChange(int start, int count) {
+        if (mBatchDepth > 0) {
+            mBatch.add(ListChangeRegistry.CHANGED, start, 0, count);
+        } else if (mListeners != null) {
+            mListeners.notifyChanged(this, start, count);
+        }
+    }
 }
@@ -16,12 +16,33 @@
 package android.databinding;
 
 import android.support.v4.util.ArrayMap;
+import android.support.v4.util.SimpleArrayMap;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Map;
 
+/**
+ * An {@link ObservableMap} backed by an {@link ArrayMap}.
+ * <p>
+ * {@link #putAll(Map)}, {@link #removeAll(Collection)} and {@link #retainAll(Collection)}
+ * notify each changed key once after all of the changes are made. Changes made between
+ * {@link #beginBatchedUpdates()} and {@link #endBatchedUpdates()} are collected the same way.
+ * When more than {@link #MAX_BATCHED_KEYS} keys change together, the callbacks are notified
+ * once with a <code>null</code> key, as they are when the map is cleared.
+ */
 public class ObservableArrayMap<K, V> extends ArrayMap<K, V> implements ObservableMap<K, V> {
+    /**
+     * The number of changed keys above which a batch notifies a single change with a
+     * <code>null</code> key.
+     */
+    public static final int MAX_BATCHED_KEYS = 8;
 
     private transient MapChangeRegistry mListeners;
+    private transient int mBatchDepth;
+    // the distinct keys changed in the current batch unless mBatchChangedAll is set
+    private transient ArrayList<Object> mBatchedKeys;
+    private transient boolean mBatchChangedAll;
 
     @Override
     public void addOnMapChangedCallback(
@@ -32,6 +53,21 @@ public class ObservableArrayMap<K, V> extends ArrayMap<K, V> implements Observab
         mListeners.add(listener);
     }
 
+    /**
+     * Adds a callback that is notified only when the value of one of <code>keys</code> changes
+     * or when the map is cleared. This avoids calling callbacks that ignore most keys.
+     *
+     * @param listener The callback to start listening.
+     * @param keys The keys whose values <code>listener</code> observes.
+     */
+    public void addOnMapChangedCallback(
+            OnMapChangedCallback<? extends ObservableMap<K, V>, K, V> listener, Object[] keys) {
+        if (mListeners == null) {
+            mListeners = new MapChangeRegistry();
+        }
+        mListeners.add(listener, keys);
+    }
+
     @Override
     public void removeOnMapChangedCallback(
             OnMapChangedCallback<? extends ObservableMap<K, V>, K, V> listener) {
@@ -55,15 +91,45 @@ public class ObservableArrayMap<K, V> extends ArrayMap<K, V> implements Observab
         return v;
     }
 
+    @Override
+    public void putAll(Map<? extends K, ? extends V> map) {
+        beginBatchedUpdates();
+        try {
+            super.putAll(map);
+        } finally {
+            endBatchedUpdates();
+        }
+    }
+
+    @Override
+    public void putAll(SimpleArrayMap<? extends K, ? extends V> array) {
+        beginBatchedUpdates();
+        try {
+            // SimpleArrayMap copies into an empty map without calling put
+            final int size = array.size();
+            ensureCapacity(size() + size);
+            for (int i = 0; i < size; i++) {
+                put(array.keyAt(i), array.valueAt(i));
+            }
+        } finally {
+            endBatchedUpdates();
+        }
+    }
+
     @Override
     public boolean removeAll(Collection<?> collection) {
         boolean removed = false;
-        for (Object key : collection) {
-            int index = indexOfKey(key);
-            if (index >= 0) {
-                removed = true;
-                removeAt(index);
+        beginBatchedUpdates();
+        try {
+            for (Object key : collection) {
+                int index = indexOfKey(key);
+                if (index >= 0) {
+                    removed = true;
+                    removeAt(index);
+                }
             }
+        } finally {
+            endBatchedUpdates();
         }
         return removed;
     }
@@ -71,16 +137,55 @@ public class ObservableArrayMap<K, V> extends ArrayMap<K, V> implements Observab
     @Override
     public boolean retainAll(Collection<?> collection) {
         boolean removed = false;
-        for (int i = size() - 1; i >= 0; i--) {
-            Object key = keyAt(i);
-            if (!collection.contains(key)) {
-                removeAt(i);
-                removed = true;
+        beginBatchedUpdates();
+        try {
+            for (int i = size() - 1; i >= 0; i--) {
+                Object key = keyAt(i);
+                if (!collection.contains(key)) {
+                    removeAt(i);
+                    removed = true;
+                }
             }
+        } finally {
+            endBatchedUpdates();
         }
         return removed;
     }
 
+    /**
+     * Starts collecting the changed keys instead of notifying the callbacks of each change.
+     * Each changed key is notified once when the matching {@link #endBatchedUpdates()} is
+     * called, or a single <code>null</code> key is notified if more than
+     * {@link #MAX_BATCHED_KEYS} keys changed. Batches may be nested.
+     */
+    public void beginBatchedUpdates() {
+        mBatchDepth++;
+    }
+
+    /**
+     * Ends a batch started with {@link #beginBatchedUpdates()}. The outermost batch notifies
+     * the callbacks of the keys changed during the batch.
+     */
+    public void endBatchedUpdates() {
+        if (mBatchDepth == 0) {
+            throw new IllegalStateException("endBatchedUpdates called without a batch");
+        }
+        mBatchDepth--;
+        if (mBatchDepth == 0) {
+            final boolean changedAll = mBatchChangedAll;
+            final ArrayList<Object> keys = mBatchedKeys;
+            mBatchChangedAll = false;
+            mBatchedKeys = null;
+            if (changedAll) {
+                dispatchChange(null);
+            } else if (keys != null) {
+                for (int i = 0; i < keys.size(); i++) {
+                    dispatchChange(keys.get(i));
+                }
+            }
+        }
+    }
+
     @Override
     public V removeAt(int index) {
         K key = keyAt(index);
@@ -100,6 +205,23 @@ public class ObservableArrayMap<K, V> extends ArrayMap<K, V> implements Observab
     }
 
     private void notifyChange(Object key) {
+        if (mBatchDepth == 0) {
+            dispatchChange(key);
+        } else if (!mBatchChangedAll) {
+            if (mBatchedKeys == null) {
+                mBatchedKeys = new ArrayList<Object>();
+            }
+            if (key == null || (!mBatchedKeys.contains(key) &&
+                    mBatchedKeys.size() == MAX_BATCHED_KEYS)) {
+                mBatchChangedAll = true;
+                mBatchedKeys = null;
+            } else if (!mBatchedKeys.contains(key)) {
+                mBatchedKeys.add(key);
+            }
+        }
+    }
+
+    private void dispatchChange(Object key) {
         if (mListeners != null) {
             mListeners.notifyCallbacks(this, 0, key);
         }
@@ -0,0 +1,31 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package android.databinding;
+
+/**
+ * Listener passed to {@link DataBindingUtil#inflateAsync(android.view.LayoutInflater, int,
+ * android.view.ViewGroup, java.util.concurrent.Executor, OnBindingInflatedListener)} that is
+ * called on the UI thread with the binding of the inflated layout.
+ */
+public interface OnBindingInflatedListener<T extends ViewDataBinding> {
+    /**
+     * Called on the UI thread when the layout has been inflated and bound.
+     *
+     * @param binding The binding for the inflated layout or <code>null</code> if the layout
+     *                wasn't a binding layout. Its root View hasn't been added to a parent.
+     */
+    void onBindingInflated(T binding);
+}
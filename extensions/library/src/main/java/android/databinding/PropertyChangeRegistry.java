@@ -15,8 +15,18 @@
  */
 package android.databinding;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
 /**
  * Utility class for managing Observable callbacks.
+ * <p>
+ * A callback added with {@link #add(Observable.OnPropertyChangedCallback, int[])} is only
+ * notified of changes to the given properties and of changes to all properties. These
+ * callbacks are kept in a separate list for each property id, so a notification only visits
+ * the callbacks that observe its property. Callbacks are notified in the order that they
+ * were added, whether or not they observe specific properties.
  */
 public class PropertyChangeRegistry extends
         CallbackRegistry<Observable.OnPropertyChangedCallback, Observable, Void> {
@@ -29,8 +39,40 @@ public class PropertyChangeRegistry extends
         }
     };
 
+    private static final FilteredCallbacks[] NO_FILTERED_CALLBACKS = new FilteredCallbacks[0];
+
+    private final boolean mCopyOnWrite;
+
+    /**
+     * The callbacks to notify of each property id, in the order that they were added: those
+     * added with the id and those added without ids. Index 0, BR._all, holds every callback.
+     * Only ids observed by some callback have a list; the others notify the callbacks in this
+     * registry, which are those added without ids. The array is replaced instead of modified
+     * so that it can be read without locking.
+     */
+    private volatile FilteredCallbacks[] mFilteredCallbacks = NO_FILTERED_CALLBACKS;
+
+    /**
+     * Maps each callback that was added with property ids to those ids. This is null until a
+     * callback is added with property ids. Guarded by this.
+     */
+    private HashMap<Observable.OnPropertyChangedCallback, int[]> mPropertyIds;
+
     public PropertyChangeRegistry() {
-        super(NOTIFIER_CALLBACK);
+        this(false);
+    }
+
+    /**
+     * Creates a PropertyChangeRegistry.
+     *
+     * @param copyOnWrite true if notifications should not lock the registry. This is useful
+     *                    when properties change on a background thread while callbacks are
+     *                    added and removed on the UI thread.
+     * @see CallbackRegistry#CallbackRegistry(CallbackRegistry.NotifierCallback, boolean)
+     */
+    public PropertyChangeRegistry(boolean copyOnWrite) {
+        super(NOTIFIER_CALLBACK, copyOnWrite);
+        mCopyOnWrite = copyOnWrite;
     }
 
     /**
@@ -43,4 +85,199 @@ public class PropertyChangeRegistry extends
     public void notifyChange(Observable observable, int propertyId) {
         notifyCallbacks(observable, propertyId, null);
     }
+
+    @Override
+    public void notifyCallbacks(Observable sender, int propertyId, Void notUsed) {
+        final FilteredCallbacks[] filteredCallbacks = mFilteredCallbacks;
+        final FilteredCallbacks callbacks =
+                propertyId >= 0 && propertyId < filteredCallbacks.length ?
+                        filteredCallbacks[propertyId] : null;
+        if (callbacks == null) {
+            super.notifyCallbacks(sender, propertyId, notUsed);
+        } else if (mCopyOnWrite) {
+            callbacks.notifyCallbacks(sender, propertyId, null);
+        } else {
+            // The filtered callbacks are locked after this, like in add and remove.
+            synchronized (this) {
+                callbacks.notifyCallbacks(sender, propertyId, null);
+            }
+        }
+    }
+
+    /**
+     * Adds a callback that is notified only when one of <code>propertyIds</code> or BR._all
+     * changes. Notifications for other properties skip the callback entirely. If the callback
+     * was already added, its property ids are replaced.
+     * <p>
+     * propertyIds is kept, not copied, so that bindings of the same class can share one
+     * array. It must not be modified afterward.
+     *
+     * @param callback The callback to add.
+     * @param propertyIds The BR ids of the properties that callback observes.
+     */
+    public synchronized void add(Observable.OnPropertyChangedCallback callback,
+            int[] propertyIds) {
+        removeFilteredCallback(callback);
+        removeUnfilteredCallback(callback);
+        if (mPropertyIds == null) {
+            mPropertyIds = new HashMap<Observable.OnPropertyChangedCallback, int[]>();
+        }
+        mPropertyIds.put(callback, propertyIds);
+        getFilteredCallbacks(0).add(callback);
+        for (int propertyId : propertyIds) {
+            if (propertyId > 0) {
+                getFilteredCallbacks(propertyId).add(callback);
+            }
+        }
+    }
+
+    /**
+     * Adds a callback that is notified of changes to all properties. If the callback was
+     * already added with property ids, it is no longer limited to them.
+     *
+     * @param callback The callback to add.
+     */
+    @Override
+    public synchronized void add(Observable.OnPropertyChangedCallback callback) {
+        removeFilteredCallback(callback);
+        super.add(callback);
+        for (FilteredCallbacks callbacks : mFilteredCallbacks) {
+            if (callbacks != null) {
+                callbacks.add(callback);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void remove(Observable.OnPropertyChangedCallback callback) {
+        removeFilteredCallback(callback);
+        removeUnfilteredCallback(callback);
+    }
+
+    /**
+     * @return The callbacks observing propertyId, creating them if they don't exist yet.
+     */
+    private FilteredCallbacks getFilteredCallbacks(int propertyId) {
+        FilteredCallbacks[] filteredCallbacks = mFilteredCallbacks;
+        if (propertyId < filteredCallbacks.length && filteredCallbacks[propertyId] != null) {
+            return filteredCallbacks[propertyId];
+        }
+        final FilteredCallbacks[] newFilteredCallbacks =
+                new FilteredCallbacks[Math.max(propertyId + 1, filteredCallbacks.length)];
+        System.arraycopy(filteredCallbacks, 0, newFilteredCallbacks, 0,
+                filteredCallbacks.length);
+        final FilteredCallbacks callbacks = new FilteredCallbacks(this);
+        // The callbacks added without ids were all added before those that will be added
+        // to this list.
+        for (Observable.OnPropertyChangedCallback callback : super.copyCallbacks()) {
+            callbacks.add(callback);
+        }
+        newFilteredCallbacks[propertyId] = callbacks;
+        mFilteredCallbacks = newFilteredCallbacks;
+        return callbacks;
+    }
+
+    private void removeUnfilteredCallback(Observable.OnPropertyChangedCallback callback) {
+        super.remove(callback);
+        for (FilteredCallbacks callbacks : mFilteredCallbacks) {
+            if (callbacks != null) {
+                callbacks.remove(callback);
+            }
+        }
+    }
+
+    private void removeFilteredCallback(Observable.OnPropertyChangedCallback callback) {
+        if (mPropertyIds == null) {
+            return;
+        }
+        final int[] propertyIds = mPropertyIds.remove(callback);
+        if (propertyIds == null) {
+            return;
+        }
+        final FilteredCallbacks[] filteredCallbacks = mFilteredCallbacks;
+        filteredCallbacks[0].remove(callback);
+        for (int propertyId : propertyIds) {
+            if (propertyId > 0) {
+                filteredCallbacks[propertyId].remove(callback);
+            }
+        }
+    }
+
+    @Override
+    public synchronized ArrayList<Observable.OnPropertyChangedCallback> copyCallbacks() {
+        final FilteredCallbacks[] filteredCallbacks = mFilteredCallbacks;
+        if (filteredCallbacks.length == 0) {
+            return super.copyCallbacks();
+        }
+        return filteredCallbacks[0].copyCallbacks();
+    }
+
+    @Override
+    public synchronized void copyCallbacks(List<Observable.OnPropertyChangedCallback> callbacks) {
+        final FilteredCallbacks[] filteredCallbacks = mFilteredCallbacks;
+        if (filteredCallbacks.length == 0) {
+            super.copyCallbacks(callbacks);
+        } else {
+            filteredCallbacks[0].copyCallbacks(callbacks);
+        }
+    }
+
+    @Override
+    public synchronized boolean isEmpty() {
+        return super.isEmpty() && (mPropertyIds == null || mPropertyIds.isEmpty());
+    }
+
+    @Override
+    public synchronized void clear() {
+        mPropertyIds = null;
+        // Cleared instead of dropped so that notifications in progress stop notifying them.
+        for (FilteredCallbacks callbacks : mFilteredCallbacks) {
+            if (callbacks != null) {
+                callbacks.clear();
+            }
+        }
+        super.clear();
+    }
+
+    @Override
+    public synchronized PropertyChangeRegistry clone() {
+        PropertyChangeRegistry clone = (PropertyChangeRegistry) super.clone();
+        if (mPropertyIds != null) {
+            clone.mPropertyIds =
+                    new HashMap<Observable.OnPropertyChangedCallback, int[]>(mPropertyIds);
+            final FilteredCallbacks[] filteredCallbacks = mFilteredCallbacks;
+            final FilteredCallbacks[] cloneCallbacks =
+                    new FilteredCallbacks[filteredCallbacks.length];
+            for (int i = 0; i < filteredCallbacks.length; i++) {
+                if (filteredCallbacks[i] != null) {
+                    cloneCallbacks[i] = new FilteredCallbacks(clone);
+                    for (Observable.OnPropertyChangedCallback callback :
+                            filteredCallbacks[i].copyCallbacks()) {
+                        cloneCallbacks[i].add(callback);
+                    }
+                }
+            }
+            clone.mFilteredCallbacks = cloneCallbacks;
+        } else {
+            clone.mFilteredCallbacks = NO_FILTERED_CALLBACKS;
+        }
+        return clone;
+    }
+
+    /**
+     * The callbacks that observe one property id. They are notified through the registry
+     * that owns the list so that callbacks added with an Executor are notified on it.
+     */
+    private static class FilteredCallbacks extends
+            CallbackRegistry<Observable.OnPropertyChangedCallback, Observable, Void> {
+        FilteredCallbacks(final PropertyChangeRegistry registry) {
+            super(new NotifierCallback<Observable.OnPropertyChangedCallback, Observable, Void>() {
+                @Override
+                public void onNotifyCallback(Observable.OnPropertyChangedCallback callback,
+                        Observable sender, int arg, Void notUsed) {
+                    registry.notifyCallback(callback, sender, arg, notUsed);
+                }
+            }, registry.mCopyOnWrite);
+        }
+    }
 }
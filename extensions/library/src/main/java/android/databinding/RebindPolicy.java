@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.databinding;
+
+/**
+ * Limits the time spent rebinding dirty bindings in a single frame. Set with
+ * {@link DataBindingUtil#setRebindPolicy(RebindPolicy)}.
+ * <p>
+ * Without a RebindPolicy, all bindings with pending bindings are rebound on the next frame.
+ * With one, bindings whose root View is shown are rebound first and once the frame budget
+ * has been spent, the remaining bindings are deferred to the following frame. A binding is
+ * never interrupted once it starts rebinding, so a frame may exceed the budget by the time
+ * that the last binding takes. Explicit calls to
+ * {@link ViewDataBinding#executePendingBindings()} are not affected.
+ */
+public class RebindPolicy {
+    private final long mFrameBudgetNanos;
+
+    /**
+     * Creates a RebindPolicy.
+     *
+     * @param frameBudgetNanos The time, in nanoseconds, that may be spent rebinding in a frame
+     *                         before the remaining bindings are deferred to the next frame.
+     *                         At least one binding is rebound in every frame.
+     */
+    public RebindPolicy(long frameBudgetNanos) {
+        if (frameBudgetNanos < 0) {
+            throw new IllegalArgumentException("frameBudgetNanos must not be negative");
+        }
+        mFrameBudgetNanos = frameBudgetNanos;
+    }
+
+    /**
+     * @return The time, in nanoseconds, that may be spent rebinding in a frame.
+     */
+    public long getFrameBudgetNanos() {
+        return mFrameBudgetNanos;
+    }
+
+    /**
+     * Called on the UI thread after each frame in which bindings were rebound under this
+     * policy.
+     * <p>
+     * The default implementation does nothing.
+     *
+     * @param reboundCount The number of bindings that were rebound in the frame.
+     * @param deferredCount The number of bindings that didn't fit in the frame budget and were
+     *                      deferred to the next frame.
+     */
+    public void onFrameRebound(int reboundCount, int deferredCount) {
+    }
+}
@@ -0,0 +1,303 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.databinding;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+
+/**
+ * Rebinds all of the ViewDataBindings created on a UI thread from a single frame callback.
+ * <p>
+ * Bindings that request a rebind are kept in a linked list threaded through
+ * {@link ViewDataBinding#mNextPendingRebind}, so scheduling a rebind doesn't allocate and only
+ * the first rebind requested in a frame posts a Choreographer frame callback (or a Handler
+ * message before API 16). When the frame runs, containing bindings are rebound before the
+ * bindings of their include tags and ViewStubs. Rebinding a containing binding executes the
+ * pending bindings of its included bindings, so they have nothing left to do by the time
+ * their own turn comes and are skipped.
+ * <p>
+ * When a {@link RebindPolicy} is set, bindings whose root is shown are rebound first and the
+ * bindings that don't fit in the policy's frame budget are moved to the front of the queue
+ * for the next frame.
+ */
+class RebindScheduler {
+    private static final boolean USE_CHOREOGRAPHER = ViewDataBinding.SDK_INT >= 16;
+
+    private static final ThreadLocal<RebindScheduler> sScheduler =
+            new ThreadLocal<RebindScheduler>();
+
+    private static volatile RebindPolicy sPolicy;
+
+    /**
+     * Sorts bindings so that containing bindings come before the bindings that they contain.
+     * The sort is stable, so bindings at the same depth are rebound in request order.
+     */
+    private static final Comparator<ViewDataBinding> DEPTH_COMPARATOR =
+            new Comparator<ViewDataBinding>() {
+                @Override
+                public int compare(ViewDataBinding lhs, ViewDataBinding rhs) {
+                    return depth(lhs) - depth(rhs);
+                }
+            };
+
+    // null api < 16
+    private final Choreographer mChoreographer;
+
+    private final Choreographer.FrameCallback mFrameCallback;
+
+    // null api >= 16
+    private final Handler mUIThreadHandler;
+
+    private final Runnable mRebindRunnable = new Runnable() {
+        @Override
+        public void run() {
+            rebind();
+        }
+    };
+
+    /**
+     * The first binding waiting to be rebound. Guarded by this.
+     */
+    private ViewDataBinding mHead;
+
+    /**
+     * The last binding waiting to be rebound. Guarded by this.
+     */
+    private ViewDataBinding mTail;
+
+    /**
+     * true when a frame callback or message has been posted and hasn't run yet.
+     * Guarded by this.
+     */
+    private boolean mRebindPosted;
+
+    /**
+     * Reused to sort the bindings rebound in a frame. Only accessed on the UI thread.
+     */
+    private final ArrayList<ViewDataBinding> mRebinding = new ArrayList<ViewDataBinding>();
+
+    /**
+     * Reused to order the bindings whose root isn't shown after those whose root is when
+     * rebinding under a RebindPolicy. Only accessed on the UI thread.
+     */
+    private final ArrayList<ViewDataBinding> mNotShown = new ArrayList<ViewDataBinding>();
+
+    private RebindScheduler() {
+        if (USE_CHOREOGRAPHER) {
+            mChoreographer = Choreographer.getInstance();
+            mFrameCallback = new Choreographer.FrameCallback() {
+                @Override
+                public void doFrame(long frameTimeNanos) {
+                    rebind();
+                }
+            };
+            mUIThreadHandler = null;
+        } else {
+            mChoreographer = null;
+            mFrameCallback = null;
+            mUIThreadHandler = new Handler(Looper.myLooper());
+        }
+    }
+
+    /**
+     * Returns the RebindScheduler for the calling thread, which must have a Looper.
+     *
+     * @return The RebindScheduler for the calling thread.
+     */
+    static RebindScheduler getInstance() {
+        RebindScheduler scheduler = sScheduler.get();
+        if (scheduler == null) {
+            scheduler = new RebindScheduler();
+            sScheduler.set(scheduler);
+        }
+        return scheduler;
+    }
+
+    static void setPolicy(RebindPolicy policy) {
+        sPolicy = policy;
+    }
+
+    static RebindPolicy getPolicy() {
+        return sPolicy;
+    }
+
+    /**
+     * Queues binding to be rebound on the next frame. This may be called from any thread.
+     *
+     * @param binding The binding that has pending bindings.
+     */
+    void schedule(ViewDataBinding binding) {
+        synchronized (this) {
+            if (binding.mNextPendingRebind != null || binding == mTail) {
+                return; // already queued
+            }
+            if (mTail == null) {
+                mHead = binding;
+            } else {
+                mTail.mNextPendingRebind = binding;
+            }
+            mTail = binding;
+            if (mRebindPosted) {
+                return;
+            }
+            mRebindPosted = true;
+        }
+        postRebind();
+    }
+
+    private void postRebind() {
+        if (USE_CHOREOGRAPHER) {
+            mChoreographer.postFrameCallback(mFrameCallback);
+        } else {
+            mUIThreadHandler.post(mRebindRunnable);
+        }
+    }
+
+    /**
+     * Rebinds all queued bindings, containing bindings first. Bindings queued while this runs
+     * are rebound on the following frame. If a binding throws, the bindings that haven't been
+     * rebound yet are queued for the next frame before the exception is rethrown.
+     */
+    private void rebind() {
+        ViewDataBinding.processReferenceQueue();
+        final RebindPolicy policy = sPolicy;
+        final ArrayList<ViewDataBinding> rebinding = mRebinding;
+        synchronized (this) {
+            ViewDataBinding binding = mHead;
+            mHead = null;
+            mTail = null;
+            mRebindPosted = false;
+            while (binding != null) {
+                final ViewDataBinding next = binding.mNextPendingRebind;
+                binding.mNextPendingRebind = null;
+                rebinding.add(binding);
+                binding = next;
+            }
+        }
+        try {
+            if (policy != null) {
+                rebindWithinBudget(rebinding, policy);
+                return;
+            }
+            if (rebinding.size() > 1) {
+                Collections.sort(rebinding, DEPTH_COMPARATOR);
+            }
+            final int count = rebinding.size();
+            int reboundCount = 0;
+            try {
+                while (reboundCount < count) {
+                    rebinding.get(reboundCount++).mRebindRunnable.run();
+                }
+            } finally {
+                if (reboundCount < count) {
+                    defer(rebinding, reboundCount);
+                }
+            }
+        } finally {
+            rebinding.clear();
+        }
+    }
+
+    /**
+     * Rebinds bindings whose root is shown and then the rest until the policy's frame budget
+     * is spent. The bindings that weren't rebound are queued ahead of any bindings queued
+     * while this ran.
+     *
+     * @param rebinding The bindings to rebind in request order.
+     * @param policy The RebindPolicy to rebind under.
+     */
+    private void rebindWithinBudget(ArrayList<ViewDataBinding> rebinding, RebindPolicy policy) {
+        final long startTime = System.nanoTime();
+        final int count = rebinding.size();
+        final ArrayList<ViewDataBinding> notShown = mNotShown;
+        int shownCount = 0;
+        for (int i = 0; i < count; i++) {
+            final ViewDataBinding binding = rebinding.get(i);
+            if (binding.getRoot().isShown()) {
+                rebinding.set(shownCount++, binding);
+            } else {
+                notShown.add(binding);
+            }
+        }
+        for (int i = shownCount; i < count; i++) {
+            rebinding.set(i, notShown.get(i - shownCount));
+        }
+        notShown.clear();
+        if (shownCount > 1) {
+            Collections.sort(rebinding.subList(0, shownCount), DEPTH_COMPARATOR);
+        }
+        if (count - shownCount > 1) {
+            Collections.sort(rebinding.subList(shownCount, count), DEPTH_COMPARATOR);
+        }
+
+        final long budget = policy.getFrameBudgetNanos();
+        int reboundCount = 0;
+        try {
+            while (reboundCount < count &&
+                    (reboundCount == 0 || System.nanoTime() - startTime < budget)) {
+                rebinding.get(reboundCount++).mRebindRunnable.run();
+            }
+        } finally {
+            if (reboundCount < count) {
+                defer(rebinding, reboundCount);
+            }
+        }
+        policy.onFrameRebound(reboundCount, count - reboundCount);
+    }
+
+    /**
+     * Queues the bindings from start to the end of deferred ahead of all queued bindings,
+     * keeping their order.
+     *
+     * @param deferred The bindings, some of which were not rebound.
+     * @param start The index of the first binding that was not rebound.
+     */
+    private void defer(ArrayList<ViewDataBinding> deferred, int start) {
+        synchronized (this) {
+            for (int i = deferred.size() - 1; i >= start; i--) {
+                final ViewDataBinding binding = deferred.get(i);
+                if (binding.mNextPendingRebind != null || binding == mTail) {
+                    continue; // already queued
+                }
+                binding.mNextPendingRebind = mHead;
+                mHead = binding;
+                if (mTail == null) {
+                    mTail = binding;
+                }
+            }
+            if (mRebindPosted) {
+                return;
+            }
+            mRebindPosted = true;
+        }
+        postRebind();
+    }
+
+    private static int depth(ViewDataBinding binding) {
+        int depth = 0;
+        for (ViewDataBinding parent = binding.mContainingBinding; parent != null;
+                parent = parent.mContainingBinding) {
+            depth++;
+        }
+        return depth;
+    }
+}
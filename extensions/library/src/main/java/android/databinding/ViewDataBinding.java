@@ -24,13 +24,13 @@ import android.os.Build.VERSION;
 import android.os.Build.VERSION_CODES;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.Parcelable;
 import android.text.TextUtils;
 import android.util.LongSparseArray;
 import android.util.SparseArray;
 import android.util.SparseBooleanArray;
 import android.util.SparseIntArray;
 import android.util.SparseLongArray;
-import android.view.Choreographer;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.View.OnAttachStateChangeListener;
@@ -38,9 +38,18 @@ import android.view.ViewGroup;
 
 import com.android.databinding.library.R;
 
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
 import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 
 /**
  * Base class for generated data binding classes. If possible, the generated binding should
@@ -74,8 +83,6 @@ public abstract class ViewDataBinding extends BaseObservable {
     // ICS (v 14) fixes a leak when using setTag(int, Object)
     private static final boolean USE_TAG_ID = DataBinderMapper.TARGET_MIN_SDK >= 14;
 
-    private static final boolean USE_CHOREOGRAPHER = SDK_INT >= 16;
-
     /**
      * Method object extracted out to attach a listener to a bound Observable object.
      */
@@ -127,6 +134,33 @@ public abstract class ViewDataBinding extends BaseObservable {
         }
     };
 
+    /**
+     * The WeakListeners of garbage collected bindings are enqueued here so that they can be
+     * unregistered from their observables without giving every binding a finalizer.
+     */
+    private static final ReferenceQueue<ViewDataBinding> sReferenceQueue =
+            new ReferenceQueue<ViewDataBinding>();
+
+    /**
+     * Collects the bindings created on a thread that is inflating layouts for
+     * {@link DataBindingUtil#inflateAsync}. Those threads may not have a Looper.
+     */
+    private static final ThreadLocal<List<ViewDataBinding>> sDeferredBindings =
+            new ThreadLocal<List<ViewDataBinding>>();
+
+    /**
+     * Set by {@link DataBindingUtil#setInstrumentationEnabled(boolean)}. Generated code checks
+     * this before collecting {@link BindingStats} so that instrumentation costs nothing when
+     * it is disabled. It is volatile so that bindings on other threads, such as those
+     * inflated asynchronously, see it change.
+     *
+     * @hide
+     */
+    protected static volatile boolean sInstrumentationEnabled;
+
+    private static final AtomicIntegerFieldUpdater<ViewDataBinding> PENDING_REBIND_UPDATER =
+            AtomicIntegerFieldUpdater.newUpdater(ViewDataBinding.class, "mPendingRebind");
+
     private static final OnAttachStateChangeListener ROOT_REATTACHED_LISTENER;
 
     static {
@@ -150,15 +184,48 @@ public abstract class ViewDataBinding extends BaseObservable {
         }
     }
 
+    /**
+     * Suspends the observers of bindings whose root View is detached from its window and
+     * resumes them when it is attached again.
+     */
+    private static final OnAttachStateChangeListener OBSERVER_SUSPENDING_LISTENER;
+
+    static {
+        if (VERSION.SDK_INT < VERSION_CODES.HONEYCOMB_MR1) {
+            OBSERVER_SUSPENDING_LISTENER = null;
+        } else {
+            OBSERVER_SUSPENDING_LISTENER = new OnAttachStateChangeListener() {
+                @Override
+                public void onViewAttachedToWindow(View v) {
+                    final ViewDataBinding binding = getBinding(v);
+                    if (binding != null && binding.mContainingBinding == null) {
+                        binding.resumeObservers();
+                    }
+                }
+
+                @Override
+                public void onViewDetachedFromWindow(View v) {
+                    final ViewDataBinding binding = getBinding(v);
+                    if (binding != null && binding.mContainingBinding == null) {
+                        binding.suspendObservers();
+                    }
+                }
+            };
+        }
+    }
+
+    /**
+     * The default for {@link #setSuspendObserversWhenDetached(boolean)} of new bindings.
+     */
+    static boolean sSuspendObserversWhenDetached;
+
     /**
      * Runnable executed on animation heartbeat to rebind the dirty Views.
      */
-    private final Runnable mRebindRunnable = new Runnable() {
+    final Runnable mRebindRunnable = new Runnable() {
         @Override
         public void run() {
-            synchronized (this) {
-                mPendingRebind = false;
-            }
+            mPendingRebind = 0;
             if (VERSION.SDK_INT >= VERSION_CODES.KITKAT) {
                 // Nested so that we don't get a lint warning in IntelliJ
                 if (!mRoot.isAttachedToWindow()) {
@@ -169,14 +236,15 @@ public abstract class ViewDataBinding extends BaseObservable {
                     return;
                 }
             }
-            executePendingBindings();
+            executePendingBindings(true);
         }
     };
 
     /**
-     * Flag indicates that there are pending bindings that need to be reevaluated.
+     * 1 when a rebind has been scheduled and hasn't run yet or 0 otherwise. This is an int
+     * so that requestRebind can set it with PENDING_REBIND_UPDATER instead of locking.
      */
-    private boolean mPendingRebind = false;
+    private volatile int mPendingRebind;
 
     /**
      * Indicates that a onPreBind has stopped the executePendingBindings call.
@@ -203,13 +271,75 @@ public abstract class ViewDataBinding extends BaseObservable {
      */
     private boolean mIsExecutingPendingBindings;
 
-    // null api < 16
-    private Choreographer mChoreographer;
+    /**
+     * Runs mRebindRunnable on the UI thread that this binding was created on. This is null
+     * until {@link #attachToUiThread()} is called for bindings that are created by
+     * {@link DataBindingUtil#inflateAsync} off of the UI thread.
+     */
+    private volatile RebindScheduler mRebindScheduler;
+
+    /**
+     * The next binding waiting in mRebindScheduler's queue. Guarded by mRebindScheduler.
+     */
+    ViewDataBinding mNextPendingRebind;
+
+    /**
+     * The binding whose layout contains this binding's layout through an include tag or
+     * ViewStub or null if this binding isn't contained in another binding.
+     */
+    ViewDataBinding mContainingBinding;
+
+    /**
+     * The layout resource ID that this binding was inflated from or 0 if it is unknown. Only
+     * bindings with a known layout can be kept in the {@link BindingPool}.
+     */
+    int mLayoutId;
+
+    /**
+     * The class of the parent that the root View was inflated for or null if it was inflated
+     * without a parent or bound after it was inflated. The parent decides which LayoutParams
+     * the root View has, so the {@link BindingPool} only reuses the binding for the same class
+     * of parent.
+     */
+    Class<?> mInflatedParentClass;
+
+    /**
+     * The bindings of included layouts and inflated ViewStubs that this binding contains or
+     * null if it contains none. These are suspended along with this binding.
+     */
+    private List<ViewDataBinding> mContainedBindings;
+
+    /**
+     * true if the observers are unregistered when the root View is detached.
+     */
+    private boolean mSuspendObserversWhenDetached;
+
+    /**
+     * true while the observers are unregistered because the root View is detached.
+     */
+    private boolean mObserversSuspended;
+
+    /**
+     * The counters shared by all bindings of this class. This is looked up the first time
+     * that something is counted while instrumentation is enabled.
+     */
+    private BindingStats mStats;
 
-    private final Choreographer.FrameCallback mFrameCallback;
+    /**
+     * Evaluates the binding expressions of layouts that support asynchronous bindings or null
+     * to evaluate them on the UI thread.
+     */
+    private Executor mEvaluationExecutor;
 
-    // null api >= 16
-    private Handler mUIThreadHandler;
+    /**
+     * Posts evaluated BindingValues back to the UI thread to be applied.
+     */
+    private Handler mApplyHandler;
+
+    /**
+     * The BindingValues being evaluated by mEvaluationExecutor or null if there are none.
+     */
+    private BindingValues mPendingValues;
 
     /**
      * The DataBindingComponent used by this data binding. This is used for BindingAdapters
@@ -227,20 +357,48 @@ public abstract class ViewDataBinding extends BaseObservable {
         mBindingComponent = bindingComponent;
         mLocalFieldObservers = new WeakListener[localFieldCount];
         this.mRoot = root;
-        if (Looper.myLooper() == null) {
+        final List<ViewDataBinding> deferred = sDeferredBindings.get();
+        if (deferred != null) {
+            deferred.add(this);
+        } else if (Looper.myLooper() == null) {
             throw new IllegalStateException("DataBinding must be created in view's UI Thread");
-        }
-        if (USE_CHOREOGRAPHER) {
-            mChoreographer = Choreographer.getInstance();
-            mFrameCallback = new Choreographer.FrameCallback() {
-                @Override
-                public void doFrame(long frameTimeNanos) {
-                    mRebindRunnable.run();
-                }
-            };
         } else {
-            mFrameCallback = null;
-            mUIThreadHandler = new Handler(Looper.myLooper());
+            mRebindScheduler = RebindScheduler.getInstance();
+        }
+        if (sSuspendObserversWhenDetached) {
+            setSuspendObserversWhenDetached(true);
+        }
+        processReferenceQueue();
+    }
+
+    /**
+     * Makes the calling thread create bindings without a UI thread. The bindings created
+     * until {@link #endDeferredBindings()} is called are collected so that they can be
+     * attached to their UI thread with {@link #attachToUiThread()}.
+     */
+    static void startDeferredBindings() {
+        sDeferredBindings.set(new ArrayList<ViewDataBinding>());
+    }
+
+    /**
+     * @return The bindings created since {@link #startDeferredBindings()} was called. Their
+     * rebinds aren't scheduled until they are attached to their UI thread.
+     */
+    static List<ViewDataBinding> endDeferredBindings() {
+        final List<ViewDataBinding> deferred = sDeferredBindings.get();
+        sDeferredBindings.remove();
+        return deferred;
+    }
+
+    /**
+     * Binds a binding created off of the UI thread to the calling UI thread and schedules the
+     * rebind that was requested while it had none.
+     */
+    void attachToUiThread() {
+        final RebindScheduler scheduler = RebindScheduler.getInstance();
+        mRebindScheduler = scheduler;
+        if (mPendingRebind != 0) {
+            scheduler.schedule(this);
         }
     }
 
@@ -329,16 +487,144 @@ public abstract class ViewDataBinding extends BaseObservable {
         }
     }
 
+    /**
+     * Sets the Executor that evaluates the binding expressions when this binding is rebound
+     * on the next frame. The values are then set on the Views on the UI thread. Only layouts
+     * whose data tag has <code>asyncBindings="true"</code> and whose expressions don't read
+     * Views, resources or the Context can be evaluated asynchronously. Other layouts ignore
+     * the Executor.
+     * <p>
+     * The expressions are evaluated with the values that the variables had when the rebind
+     * started, but the objects they refer to must be safe to read from the Executor's threads.
+     * When any of the observed data changes during the evaluation, its result is dropped and
+     * the expressions are evaluated again. {@link #executePendingBindings()} always evaluates
+     * the expressions on the calling thread. This <b>must</b> be run on the UI thread.
+     *
+     * @param executor The Executor to evaluate expressions with or null to evaluate them on
+     *                 the UI thread.
+     */
+    public void setEvaluationExecutor(Executor executor) {
+        if (executor == null) {
+            cancelEvaluation();
+        } else if (mApplyHandler == null) {
+            mApplyHandler = new Handler(Looper.myLooper());
+        }
+        mEvaluationExecutor = executor;
+    }
+
+    /**
+     * Returns the Executor set in {@link #setEvaluationExecutor(Executor)}.
+     *
+     * @return The Executor that evaluates binding expressions or null if they are evaluated on
+     * the UI thread.
+     */
+    public Executor getEvaluationExecutor() {
+        return mEvaluationExecutor;
+    }
+
+    /**
+     * Sets whether this binding stops observing its data while its root View is detached from
+     * its window. When the root View is detached, all observed data is unregistered so that
+     * changes to it aren't processed at all. When it is attached again, the observers are
+     * registered again and all expressions are evaluated once. Included layouts are suspended
+     * along with the binding that contains them.
+     * <p>
+     * Without this, a detached binding keeps processing changes and only postpones setting
+     * them on the Views until it is attached again. Calling {@link #executePendingBindings()}
+     * while the observers are suspended updates the Views without registering any observers.
+     * Observers are never suspended before API 12.
+     *
+     * @param suspend true to unregister observers while the root View is detached.
+     * @see DataBindingUtil#setSuspendObserversWhenDetached(boolean)
+     */
+    @TargetApi(VERSION_CODES.HONEYCOMB_MR1)
+    public void setSuspendObserversWhenDetached(boolean suspend) {
+        if (OBSERVER_SUSPENDING_LISTENER == null || suspend == mSuspendObserversWhenDetached) {
+            return;
+        }
+        mSuspendObserversWhenDetached = suspend;
+        if (suspend) {
+            mRoot.addOnAttachStateChangeListener(OBSERVER_SUSPENDING_LISTENER);
+        } else {
+            mRoot.removeOnAttachStateChangeListener(OBSERVER_SUSPENDING_LISTENER);
+            resumeObservers();
+        }
+    }
+
+    /**
+     * @return true if this binding stops observing its data while its root View is detached.
+     * @see #setSuspendObserversWhenDetached(boolean)
+     */
+    public boolean getSuspendObserversWhenDetached() {
+        return mSuspendObserversWhenDetached;
+    }
+
+    /**
+     * Unregisters the observers of this binding and the bindings it contains.
+     */
+    private void suspendObservers() {
+        if (mObserversSuspended) {
+            return;
+        }
+        mObserversSuspended = true;
+        cancelEvaluation();
+        unbind();
+        if (mContainedBindings != null) {
+            for (int i = mContainedBindings.size() - 1; i >= 0; i--) {
+                mContainedBindings.get(i).suspendObservers();
+            }
+        }
+    }
+
+    /**
+     * Invalidates this binding and the bindings it contains if they have been suspended and
+     * rebinds them so that their observers are registered again.
+     */
+    private void resumeObservers() {
+        if (!mObserversSuspended) {
+            return;
+        }
+        markObserversResumed();
+        invalidateAll();
+        if (mContainingBinding == null) {
+            executePendingBindings();
+        }
+    }
+
+    private void markObserversResumed() {
+        mObserversSuspended = false;
+        if (mContainedBindings != null) {
+            for (int i = mContainedBindings.size() - 1; i >= 0; i--) {
+                final ViewDataBinding contained = mContainedBindings.get(i);
+                if (contained.mObserversSuspended) {
+                    contained.markObserversResumed();
+                    contained.invalidateAll();
+                }
+            }
+        }
+    }
+
     /**
      * Evaluates the pending bindings, updating any Views that have expressions bound to
      * modified variables. This <b>must</b> be run on the UI thread.
      */
     public void executePendingBindings() {
+        if (!mIsExecutingPendingBindings) {
+            cancelEvaluation();
+        }
+        executePendingBindings(false);
+    }
+
+    /**
+     * @param allowEvaluation true if the expressions may be evaluated by mEvaluationExecutor.
+     */
+    private void executePendingBindings(boolean allowEvaluation) {
         if (mIsExecutingPendingBindings) {
             requestRebind();
             return;
         }
-        if (!hasPendingBindings()) {
+        if (mPendingValues != null || !hasPendingBindings()) {
+            // applyValues requests another rebind if anything changed during the evaluation.
             return;
         }
         mIsExecutingPendingBindings = true;
@@ -352,16 +638,165 @@ public abstract class ViewDataBinding extends BaseObservable {
             }
         }
         if (!mRebindHalted) {
-            executeBindings();
-            if (mRebindCallbacks != null) {
-                mRebindCallbacks.notifyCallbacks(this, REBOUND, null);
+            final BindingValues values = allowEvaluation && mEvaluationExecutor != null ?
+                    snapshotBindings() : null;
+            if (values == null || !evaluate(values)) {
+                final long start = sInstrumentationEnabled ? System.nanoTime() : 0;
+                executeBindings();
+                if (start != 0) {
+                    recordExecuteBindings(start);
+                }
+                if (mRebindCallbacks != null) {
+                    mRebindCallbacks.notifyCallbacks(this, REBOUND, null);
+                }
             }
         }
         mIsExecutingPendingBindings = false;
     }
 
+    /**
+     * Starts evaluating values with mEvaluationExecutor.
+     *
+     * @return false if the Executor rejected values and the bindings must be executed now.
+     */
+    private boolean evaluate(BindingValues values) {
+        mPendingValues = values;
+        try {
+            mEvaluationExecutor.execute(values);
+            return true;
+        } catch (RejectedExecutionException e) {
+            mPendingValues = null;
+            values.restoreDirtyFlags();
+            return false;
+        }
+    }
+
+    /**
+     * Sets the evaluated values on the Views unless they were canceled or the observed data
+     * has changed since they were taken, in which case they are evaluated again.
+     */
+    private void applyValues(BindingValues values) {
+        if (values != mPendingValues) {
+            values.dropRegistrations();
+            return; // canceled
+        }
+        mPendingValues = null;
+        if (values.mError != null) {
+            values.dropRegistrations();
+            values.restoreDirtyFlags();
+            throw values.mError;
+        }
+        if (values.isStale()) {
+            values.dropRegistrations();
+            values.restoreDirtyFlags();
+            requestRebind();
+            return;
+        }
+        mIsExecutingPendingBindings = true;
+        values.applyRegistrations();
+        final long start = sInstrumentationEnabled ? System.nanoTime() : 0;
+        values.apply();
+        if (start != 0) {
+            recordExecuteBindings(start);
+        }
+        if (mRebindCallbacks != null) {
+            mRebindCallbacks.notifyCallbacks(this, REBOUND, null);
+        }
+        mIsExecutingPendingBindings = false;
+    }
+
+    /**
+     * Drops the values being evaluated, if any, and marks their expressions dirty again.
+     * Generated variable setters call this because the values would be stale anyway.
+     * @hide
+     */
+    protected void cancelEvaluation() {
+        final BindingValues values = mPendingValues;
+        if (values != null) {
+            mPendingValues = null;
+            synchronized (values) {
+                values.mCanceled = true;
+            }
+            values.restoreDirtyFlags();
+        }
+    }
+
+    /**
+     * Takes the dirty flags and the values of the variables so that the expressions can be
+     * evaluated by the evaluation Executor.
+     *
+     * @return The values to evaluate or null if this layout can only be evaluated by
+     * {@link #executeBindings()}.
+     * @hide
+     */
+    protected BindingValues snapshotBindings() {
+        return null;
+    }
+
     void forceExecuteBindings() {
+        final long start = sInstrumentationEnabled ? System.nanoTime() : 0;
         executeBindings();
+        if (start != 0) {
+            recordExecuteBindings(start);
+        }
+    }
+
+    BindingStats getStats() {
+        if (mStats == null) {
+            mStats = BindingStats.forClass(getClass());
+        }
+        return mStats;
+    }
+
+    private void recordExecuteBindings(long startNanos) {
+        final BindingStats stats = getStats();
+        stats.mExecuteBindingsCount.incrementAndGet();
+        stats.mExecuteBindingsNanos.addAndGet(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Counts the dirty flags that executeBindings is about to evaluate. Generated code only
+     * calls this when instrumentation is enabled.
+     *
+     * @hide
+     */
+    protected void recordDirtyFlags(int dirtyFlagCount) {
+        getStats().mDirtyFlagCount.addAndGet(dirtyFlagCount);
+    }
+
+    /**
+     * Counts the setters and BindingAdapters that executeBindings called for one group of
+     * dirty flags. Generated code only calls this when instrumentation is enabled.
+     *
+     * @hide
+     */
+    protected void recordSetterCalls(int setterCount, int adapterCount) {
+        final BindingStats stats = getStats();
+        stats.mSetterCount.addAndGet(setterCount);
+        stats.mAdapterCount.addAndGet(adapterCount);
+    }
+
+    /**
+     * @return The current time to pass to {@link #recordMapBindings(long)} or 0 when
+     * instrumentation is disabled.
+     * @hide
+     */
+    protected static long startMapBindings() {
+        return sInstrumentationEnabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Records the time spent finding the Views of this binding since startNanos, which was
+     * returned by {@link #startMapBindings()}.
+     *
+     * @hide
+     */
+    protected void recordMapBindings(long startNanos) {
+        if (startNanos != 0) {
+            final BindingStats stats = getStats();
+            stats.mMapBindingsCount.incrementAndGet();
+            stats.mMapBindingsNanos.addAndGet(System.nanoTime() - startNanos);
+        }
     }
 
     /**
@@ -392,9 +827,119 @@ public abstract class ViewDataBinding extends BaseObservable {
         }
     }
 
-    @Override
-    protected void finalize() throws Throwable {
+    /**
+     * Returns this binding to the state it had after it was created so that it can be reused
+     * for other data. The variables are set to their default values, the observed variables
+     * are unregistered and the listeners created for listener expressions are cleared of their
+     * values. Included layouts are reset as well. The listener objects are kept so that
+     * rebinding with {@link #setVariable(int, Object)} and {@link #executePendingBindings()}
+     * doesn't need to create them again.
+     * <p>
+     * The Views keep showing the old data until the bindings are evaluated again. This
+     * <b>must</b> be run on the UI thread.
+     *
+     * @see DataBindingUtil#recycle(ViewDataBinding)
+     */
+    public void reset() {
+        cancelEvaluation();
         unbind();
+        resetVariables();
+        invalidateAll();
+    }
+
+    /**
+     * Sets the variables and the values kept from the previous evaluation to their defaults
+     * and resets the bindings of included layouts.
+     *
+     * @hide
+     */
+    protected abstract void resetVariables();
+
+    /**
+     * Saves the variables of this binding and the values that its expressions last evaluated
+     * to, so that the binding created for the same layout after a configuration change can
+     * restore them with {@link #restoreBindingState(Parcelable)} and only evaluate the
+     * expressions whose inputs differ.
+     * <p>
+     * Only layouts with <code>&lt;data restorableBindings="true"&gt;</code> keep their values
+     * and only variables and values of primitive, boxed primitive and String types are saved.
+     * Values of included layouts are not saved.
+     *
+     * @return The state of this binding or null if the layout doesn't keep its values or the
+     * bindings have not been executed yet.
+     */
+    public Parcelable saveBindingState() {
+        return onSaveBindingState();
+    }
+
+    /**
+     * Restores the values saved with {@link #saveBindingState()}. Variables that are set to
+     * the same values as when the state was saved keep their saved values, so only the
+     * expressions that depend on other variables are evaluated when the bindings are next
+     * executed. All values are set on the Views of this binding. This <b>must</b> be run on
+     * the UI thread after the variables are set and before the bindings are executed.
+     *
+     * @param state The state returned by {@link #saveBindingState()}.
+     * @return true if the state was restored or false if it was saved by a binding of another
+     * class, such as the binding of another configuration of the layout. All expressions are
+     * evaluated when the state isn't restored.
+     */
+    public boolean restoreBindingState(Parcelable state) {
+        if (!(state instanceof BindingState)) {
+            return false;
+        }
+        final BindingState bindingState = (BindingState) state;
+        if (!getClass().getName().equals(bindingState.mBindingClassName)) {
+            return false;
+        }
+        return onRestoreBindingState(bindingState.mVariables, bindingState.mValues,
+                bindingState.mDirtyFlags);
+    }
+
+    /**
+     * @hide
+     */
+    protected Parcelable onSaveBindingState() {
+        return null;
+    }
+
+    /**
+     * @hide
+     */
+    protected boolean onRestoreBindingState(Object[] variables, Object[] values,
+            long[] dirtyFlags) {
+        return false;
+    }
+
+    /**
+     * @hide
+     */
+    protected final Parcelable createBindingState(Object[] variables, Object[] values,
+            long[] dirtyFlags) {
+        return new BindingState(getClass().getName(), variables, values, dirtyFlags);
+    }
+
+    /**
+     * @hide
+     */
+    protected static boolean isRestoredValueChanged(Object value, Object restored) {
+        return value == null ? restored != null : !value.equals(restored);
+    }
+
+    /**
+     * Unregisters the listeners of bindings that have been garbage collected. This is only
+     * called when a binding is created and on each rebind frame, so while an app is idle the
+     * listeners of collected bindings stay registered. They are small and ignore
+     * notifications until then, and any change that leads to a rebind drains them.
+     */
+    static void processReferenceQueue() {
+        Reference<? extends ViewDataBinding> ref;
+        while ((ref = sReferenceQueue.poll()) != null) {
+            if (ref instanceof WeakListener) {
+                WeakListener listener = (WeakListener) ref;
+                listener.unregister();
+            }
+        }
     }
 
     static ViewDataBinding getBinding(View v) {
@@ -408,24 +953,83 @@ public abstract class ViewDataBinding extends BaseObservable {
                 }
             }
         }
-        return null;
+        return null;
+    }
+
+    /**
+     * Returns the outermost View in the layout file associated with the Binding. If this
+     * binding is for a merge layout file, this will return the first root in the merge tag.
+     *
+     * @return the outermost View in the layout file associated with the Binding.
+     */
+    public View getRoot() {
+        return mRoot;
+    }
+
+    /**
+     * Looks up a View that the generated binding resolves when it is first accessed instead of
+     * in its constructor.
+     *
+     * @param path The child indices leading from the root View to the View.
+     * @param id The ID of the View. If the View at the end of path doesn't have this ID, for
+     *           example because a View added or reordered its children when inflated, the
+     *           View is found with {@link View#findViewById(int)} instead.
+     * @return The View with the given ID.
+     * @hide
+     */
+    protected View findViewByPath(int[] path, int id) {
+        View view = mRoot;
+        for (int i = 0; i < path.length && view != null; i++) {
+            if (view instanceof ViewGroup && path[i] < ((ViewGroup) view).getChildCount()) {
+                view = ((ViewGroup) view).getChildAt(path[i]);
+            } else {
+                view = null;
+            }
+        }
+        if (view == null || view.getId() != id) {
+            view = mRoot.findViewById(id);
+        }
+        return view;
+    }
+
+    private void handleFieldChange(int mLocalFieldId, Object object, int fieldId) {
+        boolean result = onFieldChange(mLocalFieldId, object, fieldId);
+        if (sInstrumentationEnabled) {
+            final BindingStats stats = getStats();
+            stats.mFieldChangeCount.incrementAndGet();
+            if (result) {
+                stats.mFieldInvalidationCount.incrementAndGet();
+            }
+        }
+        if (result) {
+            requestRebind();
+        }
     }
 
     /**
-     * Returns the outermost View in the layout file associated with the Binding. If this
-     * binding is for a merge layout file, this will return the first root in the merge tag.
+     * Returns the BR ids of the properties that this binding reads from the Observable in
+     * localFieldId. The binding is then only notified when those properties or BR._all
+     * change. Returns null when the binding must be notified of all property changes.
      *
-     * @return the outermost View in the layout file associated with the Binding.
+     * @param localFieldId The index into mLocalFieldObservers of the Observable.
+     * @return The BR ids of the observed properties or null to observe all properties.
+     * @hide
      */
-    public View getRoot() {
-        return mRoot;
+    protected int[] getObservedPropertyIds(int localFieldId) {
+        return null;
     }
 
-    private void handleFieldChange(int mLocalFieldId, Object object, int fieldId) {
-        boolean result = onFieldChange(mLocalFieldId, object, fieldId);
-        if (result) {
-            requestRebind();
-        }
+    /**
+     * Returns the keys that this binding reads from the ObservableMap in localFieldId. The
+     * binding is then only notified when the values of those keys change or the map is
+     * cleared. Returns null when the binding must be notified of changes to any key.
+     *
+     * @param localFieldId The index into mLocalFieldObservers of the ObservableMap.
+     * @return The observed keys or null to observe all keys.
+     * @hide
+     */
+    protected Object[] getObservedMapKeys(int localFieldId) {
+        return null;
     }
 
     /**
@@ -443,18 +1047,55 @@ public abstract class ViewDataBinding extends BaseObservable {
      * @hide
      */
     protected void requestRebind() {
-        synchronized (this) {
-            if (mPendingRebind) {
-                return;
+        if (mPendingRebind != 0 || !PENDING_REBIND_UPDATER.compareAndSet(this, 0, 1)) {
+            if (sInstrumentationEnabled) {
+                getStats().mCoalescedRebindCount.incrementAndGet();
             }
-            mPendingRebind = true;
+            return;
         }
-        if (USE_CHOREOGRAPHER) {
-            mChoreographer.postFrameCallback(mFrameCallback);
-        } else {
-            mUIThreadHandler.post(mRebindRunnable);
+        if (sInstrumentationEnabled) {
+            getStats().mRebindRequestCount.incrementAndGet();
         }
+        final RebindScheduler scheduler = mRebindScheduler;
+        if (scheduler != null) {
+            scheduler.schedule(this);
+        } // else attachToUiThread schedules the rebind
+    }
+
+    /**
+     * Sets <code>flags</code> in a dirty flag field of a generated binding without locking.
+     *
+     * @param updater The updater for the dirty flag field.
+     * @param binding The binding whose dirty flags should be set.
+     * @param flags The flags to set.
+     * @hide
+     */
+    protected static <T extends ViewDataBinding> void orDirtyFlags(
+            AtomicLongFieldUpdater<T> updater, T binding, long flags) {
+        long current;
+        do {
+            current = updater.get(binding);
+            if ((current & flags) == flags) {
+                return;
+            }
+        } while (!updater.compareAndSet(binding, current, current | flags));
+    }
 
+    /**
+     * Records that this binding contains <code>binding</code> through an include tag so that
+     * this binding is rebound before it when both have pending bindings.
+     *
+     * @param binding The binding of the included layout. May be null.
+     * @hide
+     */
+    protected void setContainedBinding(ViewDataBinding binding) {
+        if (binding != null) {
+            binding.mContainingBinding = this;
+            if (mContainedBindings == null) {
+                mContainedBindings = new ArrayList<ViewDataBinding>();
+            }
+            mContainedBindings.add(binding);
+        }
     }
 
     /**
@@ -470,6 +1111,10 @@ public abstract class ViewDataBinding extends BaseObservable {
 
     private boolean updateRegistration(int localFieldId, Object observable,
             CreateWeakListener listenerCreator) {
+        if (mObserversSuspended) {
+            // resumeObservers invalidates the binding and registers the observables then.
+            return false;
+        }
         if (observable == null) {
             return unregisterFrom(localFieldId);
         }
@@ -887,6 +1532,43 @@ public abstract class ViewDataBinding extends BaseObservable {
         }
     }
 
+    /**
+     * Finds the tagged Views, includes, and views with IDs under root by following viewPaths
+     * instead of walking the whole view hierarchy. Each View found is checked against its
+     * expected tag or ID. When a path doesn't lead to the expected View, for example because a
+     * View added or reordered its children when inflated, the whole view hierarchy is walked
+     * instead. The layout writer only emits viewPaths when the path of every View is known.
+     * <p>
+     * viewPaths is a single walk down the view hierarchy, starting at root, that visits each
+     * View whose path is known at compile time. Each element is a step of the walk:
+     * <ul>
+     *     <li>n &gt;= 0: move to the child at index n of the current View.</li>
+     *     <li>-1: move back to the parent of the current View.</li>
+     *     <li>n &lt;= -2: the current View is the one at index -2 - n in the returned array.</li>
+     * </ul>
+     *
+     * @param bindingComponent The binding component to use with this binding.
+     * @param root The root of the view hierarchy to walk.
+     * @param numBindings The total number of ID'd views, views with expressions, and includes
+     * @param includes The include layout information, indexed by their container's index.
+     * @param viewsWithIds Indexes of views that don't have tags, but have IDs.
+     * @param viewPaths The steps of the walk to the Views whose paths are known.
+     * @return An array of size numBindings containing all Views in the hierarchy that have IDs
+     * (with elements in viewsWithIds), are tagged containing expressions, or the bindings for
+     * included layouts.
+     * @hide
+     */
+    protected static Object[] mapBindings(DataBindingComponent bindingComponent, View root,
+            int numBindings, IncludedLayouts includes, SparseIntArray viewsWithIds,
+            int[] viewPaths) {
+        Object[] bindings = new Object[numBindings];
+        if (viewPaths == null || !mapBindingsByPath(bindingComponent, root, null, bindings,
+                includes, viewsWithIds, viewPaths)) {
+            mapBindings(bindingComponent, root, bindings, includes, viewsWithIds, true);
+        }
+        return bindings;
+    }
+
     /**
      * Walks the view hierarchy under roots and pulls out tagged Views, includes, and views with
      * IDs into an Object[] that is returned. This is used to walk the view hierarchy once to find
@@ -911,6 +1593,174 @@ public abstract class ViewDataBinding extends BaseObservable {
         return bindings;
     }
 
+    /**
+     * Finds the tagged Views, includes, and views with IDs under roots by following viewPaths,
+     * or walking the whole view hierarchy when a path doesn't lead to the expected View.
+     * The first step of each path from the start of the walk is an index
+     * into roots. See {@link #mapBindings(DataBindingComponent, View, int, IncludedLayouts,
+     * SparseIntArray, int[])} for the encoding of viewPaths.
+     *
+     * @param bindingComponent The binding component to use with this binding.
+     * @param roots The root Views of the view hierarchy to walk. This is used with merge tags.
+     * @param numBindings The total number of ID'd views, views with expressions, and includes
+     * @param includes The include layout information, indexed by their container's index.
+     * @param viewsWithIds Indexes of views that don't have tags, but have IDs.
+     * @param viewPaths The steps of the walk to the Views whose paths are known.
+     * @return An array of size numBindings containing all Views in the hierarchy that have IDs
+     * (with elements in viewsWithIds), are tagged containing expressions, or the bindings for
+     * included layouts.
+     * @hide
+     */
+    protected static Object[] mapBindings(DataBindingComponent bindingComponent, View[] roots,
+            int numBindings, IncludedLayouts includes, SparseIntArray viewsWithIds,
+            int[] viewPaths) {
+        Object[] bindings = new Object[numBindings];
+        if (viewPaths == null || !mapBindingsByPath(bindingComponent, null, roots, bindings,
+                includes, viewsWithIds, viewPaths)) {
+            for (int i = 0; i < roots.length; i++) {
+                mapBindings(bindingComponent, roots[i], bindings, includes, viewsWithIds, true);
+            }
+        }
+        return bindings;
+    }
+
+    /**
+     * Fills bindings with the Views and included bindings found by following viewPaths.
+     * Every View is checked before any include is bound, so nothing is bound when a path
+     * doesn't lead to the expected View.
+     *
+     * @return true if every element of bindings was found or false if bindings was left empty
+     * and the view hierarchy must be walked instead.
+     */
+    private static boolean mapBindingsByPath(DataBindingComponent bindingComponent, View root,
+            View[] roots, Object[] bindings, IncludedLayouts includes,
+            SparseIntArray viewsWithIds, int[] viewPaths) {
+        int depth = 0;
+        int maxDepth = 0;
+        for (int step : viewPaths) {
+            if (step >= 0) {
+                depth++;
+                if (depth > maxDepth) {
+                    maxDepth = depth;
+                }
+            } else if (step == -1) {
+                depth--;
+            }
+        }
+        final View[] ancestors = new View[maxDepth + 1];
+        ancestors[0] = root;
+        depth = 0;
+        for (int step : viewPaths) {
+            if (step >= 0) {
+                final View parent = ancestors[depth];
+                View child = null;
+                if (depth == 0 && roots != null) {
+                    if (step < roots.length) {
+                        child = roots[step];
+                    }
+                } else if (parent instanceof ViewGroup &&
+                        step < ((ViewGroup) parent).getChildCount()) {
+                    child = ((ViewGroup) parent).getChildAt(step);
+                }
+                ancestors[++depth] = child;
+            } else if (step == -1) {
+                depth--;
+            } else {
+                bindings[-2 - step] = ancestors[depth];
+            }
+        }
+
+        for (int i = 0; i < bindings.length; i++) {
+            final View view = (View) bindings[i];
+            if (view == null || !isExpectedView(view, i, includes, viewsWithIds)) {
+                Arrays.fill(bindings, null);
+                return false;
+            }
+        }
+
+        if (includes != null) {
+            for (int i = 0; i < includes.layouts.length; i++) {
+                final String[] layouts = includes.layouts[i];
+                if (layouts == null) {
+                    continue;
+                }
+                for (int j = 0; j < layouts.length; j++) {
+                    final int index = includes.indexes[i][j];
+                    final View view = (View) bindings[index];
+                    final ViewGroup parent = (ViewGroup) view.getParent();
+                    final int childIndex = parent.indexOfChild(view);
+                    final int lastMatchingIndex = findLastMatching(parent, childIndex);
+                    if (lastMatchingIndex == childIndex) {
+                        bindings[index] = DataBindingUtil.bind(bindingComponent, view,
+                                includes.layoutIds[i][j]);
+                    } else {
+                        final View[] included = new View[lastMatchingIndex - childIndex + 1];
+                        for (int k = 0; k < included.length; k++) {
+                            included[k] = parent.getChildAt(childIndex + k);
+                        }
+                        bindings[index] = DataBindingUtil.bind(bindingComponent, included,
+                                includes.layoutIds[i][j]);
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return true if view is the View at index in a layout's bindings: an include of the
+     * expected layout, a View tagged with index or a View with the expected ID.
+     */
+    private static boolean isExpectedView(View view, int index, IncludedLayouts includes,
+            SparseIntArray viewsWithIds) {
+        final Object tag = view.getTag();
+        if (includes != null) {
+            for (int i = 0; i < includes.layouts.length; i++) {
+                final String[] layouts = includes.layouts[i];
+                if (layouts == null) {
+                    continue;
+                }
+                for (int j = 0; j < layouts.length; j++) {
+                    if (includes.indexes[i][j] == index) {
+                        return view.getParent() instanceof ViewGroup &&
+                                tag instanceof String && isIncludeTag((String) tag, layouts[j]);
+                    }
+                }
+            }
+        }
+        if (tag instanceof String && isBindingTag((String) tag, index)) {
+            return true;
+        }
+        final int id = view.getId();
+        return id > 0 && viewsWithIds != null && viewsWithIds.get(id, -1) == index;
+    }
+
+    /**
+     * @return true if tag is the tag of the View at index in a layout's bindings: either
+     * "binding_index" or a root tag ending in "_index".
+     */
+    private static boolean isBindingTag(String tag, int index) {
+        if (tag.startsWith(BINDING_TAG_PREFIX)) {
+            return parseTagInt(tag, BINDING_NUMBER_START) == index;
+        }
+        if (tag.startsWith("layout")) {
+            final int underscoreIndex = tag.lastIndexOf('_');
+            return underscoreIndex > 0 && isNumeric(tag, underscoreIndex + 1) &&
+                    parseTagInt(tag, underscoreIndex + 1) == index;
+        }
+        return false;
+    }
+
+    /**
+     * @return true if tag is the root tag of the first View of an included layout named layout.
+     */
+    private static boolean isIncludeTag(String tag, String layout) {
+        final int slashIndex = tag.indexOf('/');
+        return slashIndex > 0 && tag.startsWith("layout") && tag.endsWith("_0") &&
+                tag.length() - 2 - (slashIndex + 1) == layout.length() &&
+                tag.regionMatches(slashIndex + 1, layout, 0, layout.length());
+    }
+
     private static void mapBindings(DataBindingComponent bindingComponent, View view,
             Object[] bindings, IncludedLayouts includes, SparseIntArray viewsWithIds,
             boolean isRoot) {
@@ -1080,7 +1930,7 @@ public abstract class ViewDataBinding extends BaseObservable {
 
         public WeakListener(ViewDataBinding binder, int localFieldId,
                 ObservableReference<T> observable) {
-            super(binder);
+            super(binder, sReferenceQueue);
             mLocalFieldId = localFieldId;
             mObservable = observable;
         }
@@ -1116,6 +1966,31 @@ public abstract class ViewDataBinding extends BaseObservable {
         }
     }
 
+    /**
+     * Whether each BaseObservable subclass overrides addOnPropertyChangedCallback(callback).
+     * The filtered add would bypass such an override while removal still goes through
+     * removeOnPropertyChangedCallback, so those classes get the plain add. Guarded by itself.
+     */
+    private static final HashMap<Class<?>, Boolean> sOverridesAddCallback =
+            new HashMap<Class<?>, Boolean>();
+
+    private static boolean overridesAddCallback(Class<?> observableClass) {
+        synchronized (sOverridesAddCallback) {
+            Boolean overrides = sOverridesAddCallback.get(observableClass);
+            if (overrides == null) {
+                try {
+                    overrides = observableClass.getMethod("addOnPropertyChangedCallback",
+                            Observable.OnPropertyChangedCallback.class).getDeclaringClass()
+                            != BaseObservable.class;
+                } catch (NoSuchMethodException e) {
+                    overrides = true; // renamed, so don't assume anything
+                }
+                sOverridesAddCallback.put(observableClass, overrides);
+            }
+            return overrides;
+        }
+    }
+
     private static class WeakPropertyListener extends Observable.OnPropertyChangedCallback
             implements ObservableReference<Observable> {
         final WeakListener<Observable> mListener;
@@ -1131,7 +2006,15 @@ public abstract class ViewDataBinding extends BaseObservable {
 
         @Override
         public void addListener(Observable target) {
-            target.addOnPropertyChangedCallback(this);
+            ViewDataBinding binder = mListener.get();
+            int[] propertyIds = binder == null ? null
+                    : binder.getObservedPropertyIds(mListener.mLocalFieldId);
+            if (propertyIds != null && target instanceof BaseObservable
+                    && !overridesAddCallback(target.getClass())) {
+                ((BaseObservable) target).addOnPropertyChangedCallback(this, propertyIds);
+            } else {
+                target.addOnPropertyChangedCallback(this);
+            }
         }
 
         @Override
@@ -1226,7 +2109,14 @@ public abstract class ViewDataBinding extends BaseObservable {
 
         @Override
         public void addListener(ObservableMap target) {
-            target.addOnMapChangedCallback(this);
+            ViewDataBinding binder = mListener.get();
+            Object[] keys = binder == null ? null
+                    : binder.getObservedMapKeys(mListener.mLocalFieldId);
+            if (keys != null && target instanceof ObservableArrayMap) {
+                ((ObservableArrayMap) target).addOnMapChangedCallback(this, keys);
+            } else {
+                target.addOnMapChangedCallback(this);
+            }
         }
 
         @Override
@@ -1272,6 +2162,280 @@ public abstract class ViewDataBinding extends BaseObservable {
         }
     }
 
+    /**
+     * This class is used by generated subclasses of {@link ViewDataBinding} to evaluate binding
+     * expressions on the evaluation Executor. The generated subclass keeps the dirty flags, the
+     * variables and the evaluated expressions in its fields. It is evaluated on the Executor
+     * and then posted back to the UI thread to be applied.
+     * @hide
+     */
+    protected static abstract class BindingValues implements Runnable {
+        private final ViewDataBinding mBinding;
+
+        /**
+         * Set when the binding no longer needs these values. Guarded by this.
+         */
+        private boolean mCanceled;
+
+        private volatile boolean mEvaluated;
+
+        RuntimeException mError;
+
+        /**
+         * The local field id, Observable, listener creator and ChangeWatcher of each Observable
+         * read by evaluate(), in the order that they were read. This is only touched by the
+         * evaluating thread until the values are posted back to the UI thread.
+         */
+        private ArrayList<Object> mRegistrations;
+
+        /**
+         * The local field id, sender and property id of each change that a ChangeWatcher saw
+         * before the binding's own listener was registered. Guarded by this.
+         */
+        private ArrayList<Object> mChanges;
+
+        protected BindingValues(ViewDataBinding binding) {
+            mBinding = binding;
+        }
+
+        @Override
+        public final void run() {
+            if (mEvaluated) {
+                mBinding.applyValues(this);
+                return;
+            }
+            try {
+                if (!isCanceled() && !isStale()) {
+                    evaluate();
+                }
+            } catch (RuntimeException e) {
+                mError = e;
+            } finally {
+                mEvaluated = true;
+                mBinding.mApplyHandler.post(this);
+            }
+        }
+
+        private synchronized boolean isCanceled() {
+            return mCanceled;
+        }
+
+        /**
+         * The Observables read while the expressions are evaluated are only recorded here.
+         * The listeners belong to the UI thread, so they are registered by
+         * {@link #applyRegistrations()} just before the values are applied. Until then a
+         * ChangeWatcher records the changes made after the Observable was read.
+         */
+        protected void updateRegistration(int localFieldId, Observable observable) {
+            recordRegistration(localFieldId, observable, CREATE_PROPERTY_LISTENER,
+                    observable == null ? null :
+                            new PropertyWatcher(this, localFieldId, observable));
+        }
+
+        protected void updateRegistration(int localFieldId, ObservableList observable) {
+            recordRegistration(localFieldId, observable, CREATE_LIST_LISTENER,
+                    observable == null ? null : new ListWatcher(this, localFieldId, observable));
+        }
+
+        protected void updateRegistration(int localFieldId, ObservableMap observable) {
+            recordRegistration(localFieldId, observable, CREATE_MAP_LISTENER,
+                    observable == null ? null : new MapWatcher(this, localFieldId, observable));
+        }
+
+        private void recordRegistration(int localFieldId, Object observable,
+                CreateWeakListener listenerCreator, ChangeWatcher watcher) {
+            if (mRegistrations == null) {
+                mRegistrations = new ArrayList<Object>();
+            }
+            mRegistrations.add(localFieldId);
+            mRegistrations.add(observable);
+            mRegistrations.add(listenerCreator);
+            mRegistrations.add(watcher);
+        }
+
+        synchronized void recordChange(int localFieldId, Object sender, int propertyId) {
+            if (mChanges == null) {
+                mChanges = new ArrayList<Object>();
+            }
+            mChanges.add(localFieldId);
+            mChanges.add(sender);
+            mChanges.add(propertyId);
+        }
+
+        /**
+         * Registers the Observables that were read by evaluate() and then replays the changes
+         * made to them since they were read, so that none is lost. This runs on the UI thread.
+         */
+        void applyRegistrations() {
+            final ArrayList<Object> registrations = mRegistrations;
+            if (registrations == null) {
+                return;
+            }
+            mRegistrations = null;
+            for (int i = 0; i < registrations.size(); i += 4) {
+                mBinding.updateRegistration((Integer) registrations.get(i),
+                        registrations.get(i + 1), (CreateWeakListener) registrations.get(i + 2));
+            }
+            unwatch(registrations);
+            final ArrayList<Object> changes;
+            synchronized (this) {
+                changes = mChanges;
+                mChanges = null;
+            }
+            if (changes != null) {
+                for (int i = 0; i < changes.size(); i += 3) {
+                    mBinding.handleFieldChange((Integer) changes.get(i), changes.get(i + 1),
+                            (Integer) changes.get(i + 2));
+                }
+            }
+        }
+
+        /**
+         * Removes the ChangeWatchers of values that will not be applied. This runs on the UI
+         * thread.
+         */
+        void dropRegistrations() {
+            final ArrayList<Object> registrations = mRegistrations;
+            if (registrations != null) {
+                mRegistrations = null;
+                unwatch(registrations);
+            }
+        }
+
+        private static void unwatch(ArrayList<Object> registrations) {
+            for (int i = 3; i < registrations.size(); i += 4) {
+                final ChangeWatcher watcher = (ChangeWatcher) registrations.get(i);
+                if (watcher != null) {
+                    watcher.unwatch();
+                }
+            }
+        }
+
+        /**
+         * Evaluates the dirty expressions. This runs on the evaluation Executor.
+         */
+        protected abstract void evaluate();
+
+        /**
+         * Sets the evaluated values on the Views. This runs on the UI thread.
+         */
+        protected abstract void apply();
+
+        /**
+         * @return true if any of the binding's dirty flags were set after these values were
+         * taken.
+         */
+        protected abstract boolean isStale();
+
+        /**
+         * Sets the dirty flags that were taken with these values again.
+         */
+        protected abstract void restoreDirtyFlags();
+    }
+
+    /**
+     * Listens to an Observable read by {@link BindingValues#evaluate()} until the binding's
+     * own listener is registered on the UI thread.
+     */
+    private interface ChangeWatcher {
+        void unwatch();
+    }
+
+    private static class PropertyWatcher extends Observable.OnPropertyChangedCallback
+            implements ChangeWatcher {
+        private final BindingValues mValues;
+        private final int mLocalFieldId;
+        private final Observable mObservable;
+
+        public PropertyWatcher(BindingValues values, int localFieldId, Observable observable) {
+            mValues = values;
+            mLocalFieldId = localFieldId;
+            mObservable = observable;
+            observable.addOnPropertyChangedCallback(this);
+        }
+
+        @Override
+        public void onPropertyChanged(Observable sender, int propertyId) {
+            mValues.recordChange(mLocalFieldId, sender, propertyId);
+        }
+
+        @Override
+        public void unwatch() {
+            mObservable.removeOnPropertyChangedCallback(this);
+        }
+    }
+
+    private static class ListWatcher extends ObservableList.OnListChangedCallback
+            implements ChangeWatcher {
+        private final BindingValues mValues;
+        private final int mLocalFieldId;
+        private final ObservableList mObservable;
+
+        public ListWatcher(BindingValues values, int localFieldId, ObservableList observable) {
+            mValues = values;
+            mLocalFieldId = localFieldId;
+            mObservable = observable;
+            observable.addOnListChangedCallback(this);
+        }
+
+        @Override
+        public void onChanged(ObservableList sender) {
+            mValues.recordChange(mLocalFieldId, sender, 0);
+        }
+
+        @Override
+        public void onItemRangeChanged(ObservableList sender, int positionStart, int itemCount) {
+            onChanged(sender);
+        }
+
+        @Override
+        public void onItemRangeInserted(ObservableList sender, int positionStart,
+                int itemCount) {
+            onChanged(sender);
+        }
+
+        @Override
+        public void onItemRangeMoved(ObservableList sender, int fromPosition, int toPosition,
+                int itemCount) {
+            onChanged(sender);
+        }
+
+        @Override
+        public void onItemRangeRemoved(ObservableList sender, int positionStart,
+                int itemCount) {
+            onChanged(sender);
+        }
+
+        @Override
+        public void unwatch() {
+            mObservable.removeOnListChangedCallback(this);
+        }
+    }
+
+    private static class MapWatcher extends ObservableMap.OnMapChangedCallback
+            implements ChangeWatcher {
+        private final BindingValues mValues;
+        private final int mLocalFieldId;
+        private final ObservableMap mObservable;
+
+        public MapWatcher(BindingValues values, int localFieldId, ObservableMap observable) {
+            mValues = values;
+            mLocalFieldId = localFieldId;
+            mObservable = observable;
+            observable.addOnMapChangedCallback(this);
+        }
+
+        @Override
+        public void onMapChanged(ObservableMap sender, Object key) {
+            mValues.recordChange(mLocalFieldId, sender, 0);
+        }
+
+        @Override
+        public void unwatch() {
+            mObservable.removeOnMapChangedCallback(this);
+        }
+    }
+
     /**
      * This class is used by generated subclasses of {@link ViewDataBinding} to listen for
      * changes on variables of Bindings. This is important for two-way data binding on variables
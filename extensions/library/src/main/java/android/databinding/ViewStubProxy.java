@@ -38,6 +38,7 @@ public class ViewStubProxy {
             mRoot = inflated;
             mViewDataBinding = DataBindingUtil.bind(mContainingBinding.mBindingComponent,
                     inflated, stub.getLayoutResource());
+            mContainingBinding.setContainedBinding(mViewDataBinding);
             mViewStub = null;
 
             if (mOnInflateListener != null) {
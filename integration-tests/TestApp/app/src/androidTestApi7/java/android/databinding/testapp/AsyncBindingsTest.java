@@ -0,0 +1,205 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package android.databinding.testapp;
+
+import android.databinding.ObservableField;
+import android.databinding.testapp.databinding.AsyncBindingsBinding;
+
+import android.os.Looper;
+import android.test.UiThreadTest;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class AsyncBindingsTest extends BaseDataBinderTest<AsyncBindingsBinding> {
+    private final AtomicInteger mEvaluations = new AtomicInteger();
+    private volatile CountDownLatch mEvaluationGate;
+    private volatile CountDownLatch mEvaluationDone;
+    private volatile boolean mEvaluatedOnUiThread;
+
+    private final Executor mExecutor = new Executor() {
+        @Override
+        public void execute(final Runnable command) {
+            new Thread() {
+                @Override
+                public void run() {
+                    mEvaluatedOnUiThread |= Looper.myLooper() == Looper.getMainLooper();
+                    mEvaluations.incrementAndGet();
+                    final CountDownLatch gate = mEvaluationGate;
+                    if (gate != null) {
+                        try {
+                            gate.await(2, TimeUnit.SECONDS);
+                        } catch (InterruptedException e) {
+                        }
+                    }
+                    command.run();
+                    final CountDownLatch done = mEvaluationDone;
+                    if (done != null) {
+                        done.countDown();
+                    }
+                }
+            }.start();
+        }
+    };
+
+    public AsyncBindingsTest() {
+        super(AsyncBindingsBinding.class);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        initBinder(new Runnable() {
+            @Override
+            public void run() {
+                mBinder.setSuffix(new ObservableField<String>("!"));
+                mBinder.setName("hello");
+                mBinder.executePendingBindings();
+                mBinder.setEvaluationExecutor(mExecutor);
+            }
+        });
+    }
+
+    @UiThreadTest
+    public void testExecutePendingBindingsIsSynchronous() {
+        mBinder.setName("world");
+        mBinder.executePendingBindings();
+        assertEquals("world", mBinder.nameText.getText().toString());
+        assertEquals("world!", mBinder.fullText.getText().toString());
+        assertEquals(0, mEvaluations.get());
+    }
+
+    public void testEvaluateOnExecutor() throws Throwable {
+        runTestOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                mBinder.setName("world");
+            }
+        });
+        waitForText("world!");
+        assertEquals("world", mBinder.nameText.getText().toString());
+        assertTrue(mEvaluations.get() > 0);
+        assertFalse(mEvaluatedOnUiThread);
+
+        runTestOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                mBinder.getSuffix().set("?");
+            }
+        });
+        waitForText("world?");
+    }
+
+    public void testStaleValuesAreDropped() throws Throwable {
+        mEvaluationGate = new CountDownLatch(1);
+        runTestOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                mBinder.setName("stale");
+            }
+        });
+        while (mEvaluations.get() == 0) {
+            Thread.sleep(10);
+        }
+        runTestOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                mBinder.setName("fresh");
+            }
+        });
+        mEvaluationGate.countDown();
+        waitForText("fresh!");
+        assertEquals("fresh", mBinder.nameText.getText().toString());
+        assertTrue(mEvaluations.get() >= 2);
+    }
+
+    public void testSetterDuringEvaluationRegistersNewObservable() throws Throwable {
+        final ObservableField<String> oldSuffix = mBinder.getSuffix();
+        final ObservableField<String> newSuffix = new ObservableField<String>("#");
+        mEvaluationGate = new CountDownLatch(1);
+        runTestOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                mBinder.setName("world");
+            }
+        });
+        while (mEvaluations.get() == 0) {
+            Thread.sleep(10);
+        }
+        runTestOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                mBinder.setSuffix(newSuffix);
+            }
+        });
+        mEvaluationGate.countDown();
+        waitForText("world#");
+
+        runTestOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                oldSuffix.set("?");
+                assertFalse(mBinder.hasPendingBindings());
+                newSuffix.set("%");
+            }
+        });
+        waitForText("world%");
+    }
+
+    public void testChangeBeforeRegistrationIsApplied() throws Throwable {
+        final ObservableField<String> newSuffix = new ObservableField<String>("#");
+        mEvaluationGate = new CountDownLatch(1);
+        mEvaluationDone = new CountDownLatch(1);
+        runTestOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                mBinder.setSuffix(newSuffix);
+            }
+        });
+        while (mEvaluations.get() == 0) {
+            Thread.sleep(10);
+        }
+        runTestOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                mEvaluationGate.countDown();
+                // The evaluated values can't be applied while the UI thread is blocked, so
+                // newSuffix is read but not registered yet when it changes.
+                try {
+                    assertTrue(mEvaluationDone.await(2, TimeUnit.SECONDS));
+                } catch (InterruptedException e) {
+                    fail();
+                }
+                newSuffix.set("%");
+            }
+        });
+        waitForText("hello%");
+    }
+
+    private void waitForText(String expected) throws Throwable {
+        final String[] text = new String[1];
+        final long end = System.currentTimeMillis() + 2000;
+        do {
+            getInstrumentation().waitForIdleSync();
+            runTestOnUiThread(new Runnable() {
+                @Override
+                public void run() {
+                    text[0] = mBinder.fullText.getText().toString();
+                }
+            });
+        } while (!expected.equals(text[0]) && System.currentTimeMillis() < end);
+        assertEquals(expected, text[0]);
+    }
+}
@@ -82,4 +82,58 @@ public class BaseObservableTest extends BaseDataBinderTest<BasicBindingBinding>
         assertEquals(1, mNotifications.size());
         assertEquals(expectedId, (int) mNotifications.get(0));
     }
+
+    public void testBatchCoalescesNotifications() {
+        mObservable.addOnPropertyChangedCallback(mCallback);
+        mObservable.beginBatch();
+        mObservable.notifyPropertyChanged(3);
+        mObservable.notifyPropertyChanged(1);
+        mObservable.beginBatch();
+        mObservable.notifyPropertyChanged(3);
+        mObservable.endBatch();
+        assertTrue(mNotifications.isEmpty());
+        mObservable.endBatch();
+        assertEquals(2, mNotifications.size());
+        assertEquals(1, (int) mNotifications.get(0));
+        assertEquals(3, (int) mNotifications.get(1));
+
+        mNotifications.clear();
+        mObservable.notifyPropertyChanged(3);
+        assertEquals(1, mNotifications.size());
+    }
+
+    public void testBatchNotifyAll() {
+        mObservable.addOnPropertyChangedCallback(mCallback);
+        mObservable.runBatch(new Runnable() {
+            @Override
+            public void run() {
+                mObservable.notifyPropertyChanged(1);
+                mObservable.notifyChange();
+                mObservable.notifyPropertyChanged(2);
+            }
+        });
+        assertEquals(1, mNotifications.size());
+        assertEquals(0, (int) mNotifications.get(0));
+
+        mNotifications.clear();
+        mObservable.runBatch(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 1; i <= 20; i++) {
+                    mObservable.notifyPropertyChanged(i);
+                }
+            }
+        });
+        assertEquals(1, mNotifications.size());
+        assertEquals(0, (int) mNotifications.get(0));
+    }
+
+    public void testUnbalancedEndBatch() {
+        try {
+            mObservable.endBatch();
+            fail("Expected IllegalStateException");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
 }
@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package android.databinding.testapp;
+
+import android.databinding.testapp.databinding.ChainedInverseBinding;
+
+import android.test.UiThreadTest;
+
+public class ChainedInverseTest extends BaseDataBinderTest<ChainedInverseBinding> {
+    public ChainedInverseTest() {
+        super(ChainedInverseBinding.class);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        initBinder(new Runnable() {
+            @Override
+            public void run() {
+                mBinder.executePendingBindings();
+            }
+        });
+    }
+
+    @UiThreadTest
+    public void testReadsOtherViewAttribute() {
+        assertEquals("off", mBinder.state.getText().toString());
+
+        mBinder.checkbox.setChecked(true);
+        assertTrue(mBinder.hasPendingBindings());
+        mBinder.executePendingBindings();
+        assertEquals("on", mBinder.state.getText().toString());
+
+        mBinder.checkbox.setChecked(false);
+        mBinder.executePendingBindings();
+        assertEquals("off", mBinder.state.getText().toString());
+    }
+}
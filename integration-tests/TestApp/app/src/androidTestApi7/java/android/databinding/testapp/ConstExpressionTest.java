@@ -38,4 +38,24 @@ public class ConstExpressionTest extends BaseDataBinderTest<ConstExpressionTestB
         mBinder.executePendingBindings();
         assertEquals("1000", mBinder.textView.getText().toString());
     }
+
+    @UiThreadTest
+    public void testConstantInLayout() throws Throwable {
+        // the stripped layout sets the constant so the binding doesn't need to
+        assertEquals("Constant text", mBinder.constantText.getText().toString());
+        mBinder.executePendingBindings();
+        assertEquals("Constant text", mBinder.constantText.getText().toString());
+
+        mBinder.constantText.setText("changed");
+        mBinder.invalidateAll();
+        mBinder.executePendingBindings();
+        assertEquals("Constant text", mBinder.constantText.getText().toString());
+    }
+
+    @UiThreadTest
+    public void testConstantWithCustomAdapter() throws Throwable {
+        // the layout only has the raw string; the adapter must still format it
+        mBinder.executePendingBindings();
+        assertEquals("[Adapted text]", mBinder.adaptedText.getText().toString());
+    }
 }
@@ -13,16 +13,28 @@
 
 package android.databinding.testapp;
 
+import android.databinding.BindingStats;
 import android.databinding.DataBindingUtil;
+import android.databinding.OnBindingInflatedListener;
 import android.databinding.testapp.databinding.BasicBindingBinding;
 import android.databinding.testapp.databinding.CenteredContentBinding;
 import android.databinding.testapp.databinding.MergeLayoutBinding;
+import android.content.Context;
 import android.test.ActivityInstrumentationTestCase2;
+import android.os.Looper;
 import android.test.UiThreadTest;
 import android.view.InflateException;
+import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.view.ViewGroup.LayoutParams;
+import android.widget.FrameLayout;
+import android.widget.LinearLayout;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 public class DataBindingUtilTest
         extends ActivityInstrumentationTestCase2<TestActivity> {
@@ -102,4 +114,218 @@ public class DataBindingUtilTest
             // You can't inflate a merge layout without a root.
         }
     }
+
+    @UiThreadTest
+    public void testRecycle() throws Throwable {
+        BasicBindingBinding binding = BasicBindingBinding.inflate(getActivity().getLayoutInflater());
+        binding.setA("hello");
+        binding.setB(" world");
+        binding.executePendingBindings();
+        assertEquals("hello world", binding.textView.getText().toString());
+
+        assertTrue(DataBindingUtil.recycle(binding));
+        assertNull(binding.getA());
+        assertNull(binding.getB());
+        assertTrue(binding.hasPendingBindings());
+
+        BasicBindingBinding reused = BasicBindingBinding.inflate(
+                getActivity().getLayoutInflater());
+        assertSame(binding, reused);
+        reused.setA("a");
+        reused.executePendingBindings();
+        assertEquals("anull", reused.textView.getText().toString());
+
+        assertNotSame(binding, BasicBindingBinding.inflate(getActivity().getLayoutInflater()));
+    }
+
+    @UiThreadTest
+    public void testRecycleAttached() throws Throwable {
+        getActivity().getWindow().getDecorView(); // force a content to exist.
+        ViewGroup content = (ViewGroup) getActivity().findViewById(android.R.id.content);
+        BasicBindingBinding binding = DataBindingUtil.inflate(getActivity().getLayoutInflater(),
+                R.layout.basic_binding, content, true);
+        try {
+            DataBindingUtil.recycle(binding);
+            fail("Recycling a binding whose root has a parent should fail");
+        } catch (IllegalStateException e) {
+            // The root must be removed first.
+        }
+        content.removeView(binding.getRoot());
+        assertTrue(DataBindingUtil.recycle(binding));
+
+        // The recycled root was inflated with LayoutParams, so it isn't used without a parent.
+        assertNotSame(binding, BasicBindingBinding.inflate(getActivity().getLayoutInflater()));
+        BasicBindingBinding reused = DataBindingUtil.inflate(getActivity().getLayoutInflater(),
+                R.layout.basic_binding, content, true);
+        assertSame(binding, reused);
+        assertSame(content, reused.getRoot().getParent());
+        DataBindingUtil.clearRecycledBindings();
+    }
+
+    @UiThreadTest
+    public void testRecycleDifferentParent() throws Throwable {
+        FrameLayout frame = new FrameLayout(getActivity());
+        LinearLayout linear = new LinearLayout(getActivity());
+        BasicBindingBinding binding = DataBindingUtil.inflate(getActivity().getLayoutInflater(),
+                R.layout.basic_binding, frame, false);
+        assertTrue(binding.getRoot().getLayoutParams() instanceof FrameLayout.LayoutParams);
+        assertTrue(DataBindingUtil.recycle(binding));
+
+        // The root has FrameLayout.LayoutParams, so it can't be used for a LinearLayout.
+        BasicBindingBinding other = DataBindingUtil.inflate(getActivity().getLayoutInflater(),
+                R.layout.basic_binding, linear, false);
+        assertNotSame(binding, other);
+        assertTrue(other.getRoot().getLayoutParams() instanceof LinearLayout.LayoutParams);
+
+        BasicBindingBinding reused = DataBindingUtil.inflate(getActivity().getLayoutInflater(),
+                R.layout.basic_binding, new FrameLayout(getActivity()), false);
+        assertSame(binding, reused);
+        DataBindingUtil.clearRecycledBindings();
+    }
+
+    public void testInflateAsync() throws Throwable {
+        final Executor executor = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                new Thread(command).start();
+            }
+        };
+        final CountDownLatch latch = new CountDownLatch(1);
+        final BasicBindingBinding[] inflated = new BasicBindingBinding[1];
+        final boolean[] onUiThread = new boolean[1];
+        runTestOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                DataBindingUtil.inflateAsync(getActivity().getLayoutInflater(),
+                        R.layout.basic_binding, null, executor,
+                        new OnBindingInflatedListener<BasicBindingBinding>() {
+                            @Override
+                            public void onBindingInflated(BasicBindingBinding binding) {
+                                onUiThread[0] = Looper.myLooper() == Looper.getMainLooper();
+                                inflated[0] = binding;
+                                latch.countDown();
+                            }
+                        });
+            }
+        });
+        assertTrue(latch.await(2, TimeUnit.SECONDS));
+        assertTrue(onUiThread[0]);
+        final BasicBindingBinding binding = inflated[0];
+        assertNotNull(binding);
+        assertNotNull(binding.textView);
+        assertNull(binding.getRoot().getParent());
+        runTestOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                binding.setA("a");
+                binding.setB("b");
+                binding.executePendingBindings();
+                assertEquals("ab", binding.textView.getText().toString());
+            }
+        });
+    }
+
+    public void testInflateAsyncError() throws Throwable {
+        final Throwable[] thrown = new Throwable[1];
+        final CountDownLatch failed = new CountDownLatch(1);
+        final Executor executor = new Executor() {
+            @Override
+            public void execute(final Runnable command) {
+                new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            command.run();
+                        } catch (Throwable t) {
+                            thrown[0] = t;
+                        }
+                        failed.countDown();
+                    }
+                }).start();
+            }
+        };
+        final CountDownLatch latch = new CountDownLatch(1);
+        final BasicBindingBinding[] inflated = new BasicBindingBinding[1];
+        runTestOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                DataBindingUtil.inflateAsync(
+                        new UiThreadOnlyInflater(getActivity().getLayoutInflater()),
+                        R.layout.basic_binding, null, executor,
+                        new OnBindingInflatedListener<BasicBindingBinding>() {
+                            @Override
+                            public void onBindingInflated(BasicBindingBinding binding) {
+                                inflated[0] = binding;
+                                latch.countDown();
+                            }
+                        });
+            }
+        });
+        // The layout is inflated on the UI thread instead.
+        assertTrue(latch.await(2, TimeUnit.SECONDS));
+        assertNotNull(inflated[0]);
+        // The Error still reaches the Executor.
+        assertTrue(failed.await(2, TimeUnit.SECONDS));
+        assertTrue(thrown[0] instanceof AssertionError);
+    }
+
+    /**
+     * Throws an Error when inflating off of the UI thread.
+     */
+    private static class UiThreadOnlyInflater extends LayoutInflater {
+        private final LayoutInflater mInflater;
+
+        UiThreadOnlyInflater(LayoutInflater inflater) {
+            super(inflater, inflater.getContext());
+            mInflater = inflater;
+        }
+
+        @Override
+        public LayoutInflater cloneInContext(Context newContext) {
+            return new UiThreadOnlyInflater(mInflater.cloneInContext(newContext));
+        }
+
+        @Override
+        public View inflate(int resource, ViewGroup root, boolean attachToRoot) {
+            if (Looper.myLooper() != Looper.getMainLooper()) {
+                throw new AssertionError("Not on the UI thread");
+            }
+            return mInflater.inflate(resource, root, attachToRoot);
+        }
+    }
+
+    @UiThreadTest
+    public void testBindingStats() throws Throwable {
+        DataBindingUtil.dumpBindingStats(true);
+        DataBindingUtil.setInstrumentationEnabled(true);
+        try {
+            assertTrue(DataBindingUtil.isInstrumentationEnabled());
+            BasicBindingBinding binding =
+                    BasicBindingBinding.inflate(getActivity().getLayoutInflater());
+            binding.setA("a");
+            binding.setB("b");
+            binding.executePendingBindings();
+            assertEquals("ab", binding.textView.getText().toString());
+        } finally {
+            DataBindingUtil.setInstrumentationEnabled(false);
+        }
+        BindingStats stats = null;
+        for (BindingStats classStats : DataBindingUtil.dumpBindingStats(true)) {
+            if (classStats.getBindingClassName().startsWith(BasicBindingBinding.class.getName())) {
+                stats = classStats;
+            }
+        }
+        assertNotNull(stats);
+        assertEquals(1, stats.getMapBindingsCount());
+        assertEquals(1, stats.getExecuteBindingsCount());
+        assertTrue(stats.getDirtyFlagCount() > 0);
+        assertEquals(1, stats.getSetterCount() + stats.getAdapterCount());
+        assertTrue(stats.getRebindRequestCount() > 0);
+        assertTrue(stats.getCoalescedRebindCount() > 0);
+
+        List<BindingStats> reset = DataBindingUtil.dumpBindingStats(false);
+        for (BindingStats classStats : reset) {
+            assertEquals(0, classStats.getExecuteBindingsCount());
+        }
+    }
 }
@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package android.databinding.testapp;
+
+import android.databinding.testapp.databinding.LazyViewsBinding;
+
+import android.test.UiThreadTest;
+import android.widget.FrameLayout;
+import android.widget.LinearLayout;
+
+public class LazyViewsTest extends BaseDataBinderTest<LazyViewsBinding> {
+    public LazyViewsTest() {
+        super(LazyViewsBinding.class);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        initBinder(new Runnable() {
+            @Override
+            public void run() {
+                mBinder.setName("hello");
+                mBinder.executePendingBindings();
+            }
+        });
+    }
+
+    @UiThreadTest
+    public void testBoundViewIsField() {
+        assertEquals("hello", mBinder.boundText.getText().toString());
+    }
+
+    @UiThreadTest
+    public void testLazyViews() {
+        LinearLayout root = (LinearLayout) mBinder.getRoot();
+        assertSame(root.getChildAt(1), mBinder.getEdit());
+        assertSame(root.getChildAt(2), mBinder.getFrame());
+        assertEquals("nested", mBinder.getNestedText().getText().toString());
+        assertSame(mBinder.getNestedText(), mBinder.getNestedText());
+    }
+
+    @UiThreadTest
+    public void testLazyViewAfterHierarchyChange() {
+        FrameLayout frame = mBinder.getFrame();
+        frame.addView(new FrameLayout(frame.getContext()), 0);
+        assertEquals("nested", mBinder.getNestedText().getText().toString());
+    }
+}
@@ -13,12 +13,16 @@
 
 package android.databinding.testapp;
 
+import android.databinding.Observable.OnPropertyChangedCallback;
+import android.databinding.testapp.databinding.InnerCannotReadDependencyBinding;
 import android.databinding.testapp.databinding.LeakTestBinding;
+import android.databinding.testapp.vo.BasicObject;
 import android.test.ActivityInstrumentationTestCase2;
 import android.util.Log;
 import android.widget.FrameLayout;
 
 import java.lang.ref.WeakReference;
+import java.util.ArrayList;
 
 public class LeakTest extends ActivityInstrumentationTestCase2<TestActivity> {
     WeakReference<LeakTestBinding> mWeakReference = new WeakReference<LeakTestBinding>(null);
@@ -70,6 +74,49 @@ public class LeakTest extends ActivityInstrumentationTestCase2<TestActivity> {
         assertNull(mWeakReference.get());
     }
 
+    public void testListenersRemovedAfterCollection() throws Throwable {
+        final ArrayList<OnPropertyChangedCallback> callbacks =
+                new ArrayList<OnPropertyChangedCallback>();
+        final BasicObject object = new BasicObject() {
+            @Override
+            public synchronized void addOnPropertyChangedCallback(
+                    OnPropertyChangedCallback callback) {
+                callbacks.add(callback);
+                super.addOnPropertyChangedCallback(callback);
+            }
+
+            @Override
+            public synchronized void removeOnPropertyChangedCallback(
+                    OnPropertyChangedCallback callback) {
+                callbacks.remove(callback);
+                super.removeOnPropertyChangedCallback(callback);
+            }
+        };
+        runTestOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                InnerCannotReadDependencyBinding binding =
+                        InnerCannotReadDependencyBinding.inflate(getActivity().getLayoutInflater());
+                binding.setObj(object);
+                binding.executePendingBindings();
+            }
+        });
+        assertEquals(1, callbacks.size());
+        final long end = System.currentTimeMillis() + 5000;
+        while (!callbacks.isEmpty() && System.currentTimeMillis() < end) {
+            byte[] b = new byte[1024 * 1024];
+            System.gc();
+            // Creating a binding drains the listeners of the collected ones.
+            runTestOnUiThread(new Runnable() {
+                @Override
+                public void run() {
+                    LeakTestBinding.inflate(getActivity().getLayoutInflater());
+                }
+            });
+        }
+        assertTrue(callbacks.isEmpty());
+    }
+
     // Test to ensure that when the View is detached that it doesn't rebind
     // the dirty Views. The rebind should happen only after the root view is
     // reattached.
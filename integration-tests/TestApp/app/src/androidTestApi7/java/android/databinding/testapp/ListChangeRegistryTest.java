@@ -20,6 +20,10 @@ import android.databinding.ObservableList;
 import android.databinding.ObservableList.OnListChangedCallback;
 import android.databinding.testapp.databinding.BasicBindingBinding;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
 public class ListChangeRegistryTest extends BaseDataBinderTest<BasicBindingBinding> {
 
     private ListChangeRegistry mListChangeRegistry;
@@ -234,4 +238,185 @@ public class ListChangeRegistryTest extends BaseDataBinderTest<BasicBindingBindi
         mListChangeRegistry.notifyRemoved(null, expectedStart, expectedCount);
         assertEquals(1, mCallCount);
     }
+
+    public void testDeferredInsertsAreCoalesced() {
+        final ReplayCallback callback = new ReplayCallback(new ArrayList<Object>());
+        mListChangeRegistry.add(callback);
+        mListChangeRegistry.setDeferred(true);
+        assertTrue(mListChangeRegistry.isDeferred());
+        for (int i = 0; i < 500; i++) {
+            mListChangeRegistry.notifyInserted(null, i, 1);
+        }
+        assertEquals(0, callback.mCallCount);
+        mListChangeRegistry.flush();
+        assertEquals(1, callback.mCallCount);
+        assertEquals(500, callback.mList.size());
+        mListChangeRegistry.flush();
+        assertEquals(1, callback.mCallCount);
+    }
+
+    public void testDeferredInsertThenRemove() {
+        final ReplayCallback callback = new ReplayCallback(new ArrayList<Object>());
+        mListChangeRegistry.add(callback);
+        mListChangeRegistry.setDeferred(true);
+        for (int i = 0; i < 10; i++) {
+            mListChangeRegistry.notifyInserted(null, 0, 1);
+            mListChangeRegistry.notifyChanged(null, 0, 1);
+        }
+        mListChangeRegistry.notifyRemoved(null, 0, 10);
+        mListChangeRegistry.flush();
+        assertEquals(0, callback.mCallCount);
+    }
+
+    public void testDeferredChangedAll() {
+        final ReplayCallback callback = new ReplayCallback(new ArrayList<Object>());
+        mListChangeRegistry.add(callback);
+        mListChangeRegistry.setDeferred(true);
+        mListChangeRegistry.notifyInserted(null, 0, 1);
+        mListChangeRegistry.notifyChanged(null);
+        mListChangeRegistry.notifyRemoved(null, 3, 1);
+        mListChangeRegistry.flush();
+        assertEquals(1, callback.mCallCount);
+        assertEquals(1, callback.mChangedAllCount);
+    }
+
+    public void testSetDeferredFalseFlushes() {
+        final ReplayCallback callback = new ReplayCallback(new ArrayList<Object>());
+        mListChangeRegistry.add(callback);
+        mListChangeRegistry.setDeferred(true);
+        mListChangeRegistry.notifyInserted(null, 0, 2);
+        mListChangeRegistry.notifyInserted(null, 2, 3);
+        assertEquals(0, callback.mCallCount);
+        mListChangeRegistry.setDeferred(false);
+        assertFalse(mListChangeRegistry.isDeferred());
+        assertEquals(1, callback.mCallCount);
+        assertEquals(5, callback.mList.size());
+        mListChangeRegistry.notifyInserted(null, 0, 1);
+        assertEquals(2, callback.mCallCount);
+    }
+
+    public void testDeferredChangesAreEquivalent() {
+        final Random random = new Random(0);
+        for (int iteration = 0; iteration < 2000; iteration++) {
+            final int size = random.nextInt(12);
+            final ArrayList<Object> original = new ArrayList<Object>();
+            for (int i = 0; i < size; i++) {
+                original.add(i);
+            }
+            final ReplayCallback expected = new ReplayCallback(new ArrayList<Object>(original));
+            final ReplayCallback actual = new ReplayCallback(new ArrayList<Object>(original));
+            final ListChangeRegistry immediate = new ListChangeRegistry();
+            immediate.add(expected);
+            mListChangeRegistry = new ListChangeRegistry();
+            mListChangeRegistry.add(actual);
+            mListChangeRegistry.setDeferred(true);
+
+            final int changes = 1 + random.nextInt(10);
+            for (int i = 0; i < changes; i++) {
+                final int currentSize = expected.mList.size();
+                final int type = currentSize == 0 ? 0 : random.nextInt(4);
+                if (type == 0) {
+                    final int start = random.nextInt(currentSize + 1);
+                    final int count = 1 + random.nextInt(3);
+                    immediate.notifyInserted(null, start, count);
+                    mListChangeRegistry.notifyInserted(null, start, count);
+                    continue;
+                }
+                final int start = random.nextInt(currentSize);
+                final int count = 1 + random.nextInt(Math.min(3, currentSize - start));
+                if (type == 1) {
+                    immediate.notifyRemoved(null, start, count);
+                    mListChangeRegistry.notifyRemoved(null, start, count);
+                } else if (type == 2) {
+                    immediate.notifyChanged(null, start, count);
+                    mListChangeRegistry.notifyChanged(null, start, count);
+                } else {
+                    final int to = random.nextInt(currentSize - count + 1);
+                    immediate.notifyMoved(null, start, to, count);
+                    mListChangeRegistry.notifyMoved(null, start, to, count);
+                }
+            }
+            assertEquals(0, actual.mCallCount);
+            mListChangeRegistry.flush();
+            assertEquals("iteration " + iteration, expected.mList, actual.mList);
+        }
+    }
+
+    /**
+     * Applies the notified changes to a list of the original elements' positions. Inserted
+     * elements are INSERTED and changed elements are wrapped in a Changed.
+     */
+    private static class ReplayCallback extends OnListChangedCallback {
+        private static final Object INSERTED = "inserted";
+
+        final List<Object> mList;
+        int mCallCount;
+        int mChangedAllCount;
+
+        ReplayCallback(List<Object> list) {
+            mList = list;
+        }
+
+        @Override
+        public void onChanged(ObservableList sender) {
+            mCallCount++;
+            mChangedAllCount++;
+        }
+
+        @Override
+        public void onItemRangeChanged(ObservableList sender, int start, int count) {
+            mCallCount++;
+            for (int i = start; i < start + count; i++) {
+                final Object item = mList.get(i);
+                if (item instanceof Integer) {
+                    mList.set(i, new Changed((Integer) item));
+                }
+            }
+        }
+
+        @Override
+        public void onItemRangeInserted(ObservableList sender, int start, int count) {
+            mCallCount++;
+            for (int i = 0; i < count; i++) {
+                mList.add(start, INSERTED);
+            }
+        }
+
+        @Override
+        public void onItemRangeMoved(ObservableList sender, int from, int to, int count) {
+            mCallCount++;
+            final List<Object> moved = new ArrayList<Object>(mList.subList(from, from + count));
+            mList.subList(from, from + count).clear();
+            mList.addAll(to, moved);
+        }
+
+        @Override
+        public void onItemRangeRemoved(ObservableList sender, int start, int count) {
+            mCallCount++;
+            mList.subList(start, start + count).clear();
+        }
+    }
+
+    private static class Changed {
+        final int mPosition;
+
+        Changed(int position) {
+            mPosition = position;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Changed && ((Changed) obj).mPosition == mPosition;
+        }
+
+        @Override
+        public int hashCode() {
+            return mPosition;
+        }
+
+        @Override
+        public String toString() {
+            return "changed " + mPosition;
+        }
+    }
 }
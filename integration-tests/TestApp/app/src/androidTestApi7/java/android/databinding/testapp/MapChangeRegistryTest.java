@@ -51,4 +51,40 @@ public class MapChangeRegistryTest extends BaseDataBinderTest<BasicBindingBindin
         mapChangeRegistry.notifyChange(observableObj, expectedKey);
         assertEquals(1, notificationCount);
     }
+
+    public void testKeyedCallback() {
+        MapChangeRegistry mapChangeRegistry = new MapChangeRegistry();
+        final ObservableMap<String, Integer> observableObj = new ObservableArrayMap<>();
+        OnMapChangedCallback listener = new OnMapChangedCallback<ObservableMap<String, Integer>,
+                String, Integer>() {
+            @Override
+            public void onMapChanged(ObservableMap sender, String key) {
+                notificationCount++;
+            }
+        };
+        mapChangeRegistry.add(listener, new Object[] {"a", "b"});
+
+        mapChangeRegistry.notifyChange(observableObj, "c");
+        assertEquals(0, notificationCount);
+        mapChangeRegistry.notifyChange(observableObj, "a");
+        assertEquals(1, notificationCount);
+        mapChangeRegistry.notifyChange(observableObj, "b");
+        assertEquals(2, notificationCount);
+        mapChangeRegistry.notifyChange(observableObj, null);
+        assertEquals(3, notificationCount);
+
+        assertEquals(1, mapChangeRegistry.copyCallbacks().size());
+        assertSame(listener, mapChangeRegistry.copyCallbacks().get(0));
+
+        mapChangeRegistry.add(listener);
+        mapChangeRegistry.notifyChange(observableObj, "c");
+        assertEquals(4, notificationCount);
+        assertEquals(1, mapChangeRegistry.copyCallbacks().size());
+
+        mapChangeRegistry.add(listener, new Object[] {"a"});
+        mapChangeRegistry.remove(listener);
+        mapChangeRegistry.notifyChange(observableObj, "a");
+        assertEquals(4, notificationCount);
+        assertTrue(mapChangeRegistry.isEmpty());
+    }
 }
@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package android.databinding.testapp;
+
+import android.databinding.ObservableArrayMap;
+import android.databinding.testapp.databinding.MapKeysBinding;
+
+import android.test.UiThreadTest;
+
+public class MapKeysTest extends BaseDataBinderTest<MapKeysBinding> {
+    private ObservableArrayMap<String, String> mStrings;
+    private ObservableArrayMap<String, String> mFlags;
+
+    public MapKeysTest() {
+        super(MapKeysBinding.class);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mStrings = new ObservableArrayMap<>();
+        mStrings.put("title", "Title");
+        mFlags = new ObservableArrayMap<>();
+        mFlags.put("a", "on");
+        initBinder(new Runnable() {
+            @Override
+            public void run() {
+                mBinder.setStrings(mStrings);
+                mBinder.setFlags(mFlags);
+                mBinder.setKey("a");
+                mBinder.executePendingBindings();
+            }
+        });
+    }
+
+    @UiThreadTest
+    public void testConstantKeys() {
+        assertEquals("Title", mBinder.title.getText().toString());
+
+        mStrings.put("unrelated", "value");
+        assertFalse(mBinder.hasPendingBindings());
+
+        mStrings.put("subtitle", "Subtitle");
+        assertTrue(mBinder.hasPendingBindings());
+        mBinder.executePendingBindings();
+        assertEquals("Subtitle", mBinder.subtitle.getText().toString());
+
+        mStrings.clear();
+        assertTrue(mBinder.hasPendingBindings());
+        mBinder.executePendingBindings();
+        assertEquals("", mBinder.title.getText().toString());
+    }
+
+    @UiThreadTest
+    public void testDynamicKey() {
+        assertEquals("on", mBinder.flag.getText().toString());
+
+        mFlags.put("b", "off");
+        assertTrue(mBinder.hasPendingBindings());
+        mBinder.executePendingBindings();
+
+        mBinder.setKey("b");
+        mBinder.executePendingBindings();
+        assertEquals("off", mBinder.flag.getText().toString());
+    }
+}
@@ -15,6 +15,7 @@
  */
 package android.databinding.testapp;
 
+import android.databinding.ListDiff;
 import android.databinding.ObservableArrayList;
 import android.databinding.testapp.databinding.BasicBindingBinding;
 
@@ -22,6 +23,9 @@ import android.databinding.ObservableList;
 import android.databinding.ObservableList.OnListChangedCallback;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 
 public class ObservableArrayListTest extends BaseDataBinderTest<BasicBindingBinding> {
 
@@ -272,4 +276,282 @@ public class ObservableArrayListTest extends BaseDataBinderTest<BasicBindingBind
         assertEquals(0, change.start);
         assertEquals(1, change.count);
     }
+
+    public void testRemoveAllRetainAll() {
+        ObservableArrayList<String> list = addAll("a", "b", "c", "d");
+        list.addOnListChangedCallback(mListener);
+        assertTrue(list.removeAll(Arrays.asList("b", "c")));
+        assertEquals(Arrays.asList("a", "d"), list);
+        assertEquals(1, mNotifications.size());
+        assertChange(mNotifications.get(0), REMOVE, 1, 2);
+
+        assertTrue(list.retainAll(Arrays.asList("a")));
+        assertEquals(Arrays.asList("a"), list);
+        assertEquals(2, mNotifications.size());
+        assertChange(mNotifications.get(1), REMOVE, 1, 1);
+    }
+
+    public void testRemoveAllRuns() {
+        ObservableArrayList<String> list = addAll("a", "b", "c", "d", "e", "f");
+        list.addOnListChangedCallback(mListener);
+        assertTrue(list.removeAll(Arrays.asList("b", "c", "f")));
+        assertEquals(Arrays.asList("a", "d", "e"), list);
+        assertEquals(2, mNotifications.size());
+        assertChange(mNotifications.get(0), REMOVE, 5, 1);
+        assertChange(mNotifications.get(1), REMOVE, 1, 2);
+
+        assertFalse(list.removeAll(Arrays.asList("x")));
+        assertEquals(2, mNotifications.size());
+    }
+
+    public void testRemoveAllThrows() {
+        ObservableArrayList<String> list = addAll("a", "b", "c");
+        list.addOnListChangedCallback(mListener);
+        Collection<String> collection = new ArrayList<String>() {
+            @Override
+            public boolean contains(Object o) {
+                if ("c".equals(o)) {
+                    throw new IllegalArgumentException();
+                }
+                return "a".equals(o);
+            }
+        };
+        try {
+            list.removeAll(collection);
+            fail("contains() should have thrown");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        assertEquals(Arrays.asList("a", "b", "c"), list);
+        assertEquals(0, mNotifications.size());
+    }
+
+    public void testRemoveMatching() {
+        ObservableArrayList<String> list = addAll("a", "b", "c", "d", "e", "f");
+        list.addOnListChangedCallback(mListener);
+        assertTrue(list.removeMatching(new ObservableArrayList.Filter<String>() {
+            @Override
+            public boolean matches(String item) {
+                return item.equals("b") || item.equals("c") || item.equals("f");
+            }
+        }));
+        assertEquals(Arrays.asList("a", "d", "e"), list);
+        assertEquals(2, mNotifications.size());
+        assertChange(mNotifications.get(0), REMOVE, 5, 1);
+        assertChange(mNotifications.get(1), REMOVE, 1, 2);
+
+        assertFalse(list.removeMatching(new ObservableArrayList.Filter<String>() {
+            @Override
+            public boolean matches(String item) {
+                return false;
+            }
+        }));
+        assertEquals(2, mNotifications.size());
+    }
+
+    public void testReplaceEach() {
+        ObservableArrayList<String> list = addAll("a", "b", "c", "d");
+        list.addOnListChangedCallback(mListener);
+        list.replaceEach(new ObservableArrayList.Operator<String>() {
+            @Override
+            public String apply(String item) {
+                return item.equals("a") || item.equals("c") ? item : item.toUpperCase();
+            }
+        });
+        assertEquals(Arrays.asList("a", "B", "c", "D"), list);
+        assertEquals(2, mNotifications.size());
+        assertChange(mNotifications.get(0), CHANGE, 1, 1);
+        assertChange(mNotifications.get(1), CHANGE, 3, 1);
+    }
+
+    public void testReplaceEachThrows() {
+        ObservableArrayList<String> list = addAll("a", "b", "c");
+        list.addOnListChangedCallback(mListener);
+        try {
+            list.replaceEach(new ObservableArrayList.Operator<String>() {
+                @Override
+                public String apply(String item) {
+                    if (item.equals("c")) {
+                        throw new IllegalArgumentException();
+                    }
+                    return item.toUpperCase();
+                }
+            });
+            fail("apply() should have thrown");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        assertEquals(Arrays.asList("a", "b", "c"), list);
+        assertEquals(0, mNotifications.size());
+    }
+
+    public void testSort() {
+        ObservableArrayList<String> list = addAll("a", "c", "b", "d");
+        list.addOnListChangedCallback(mListener);
+        list.sort(null);
+        assertEquals(Arrays.asList("a", "b", "c", "d"), list);
+        assertEquals(1, mNotifications.size());
+        assertChange(mNotifications.get(0), CHANGE, 1, 2);
+
+        list.sort(Collections.<String>reverseOrder());
+        assertEquals(Arrays.asList("d", "c", "b", "a"), list);
+        assertEquals(2, mNotifications.size());
+        assertChange(mNotifications.get(1), CHANGE, 0, 4);
+    }
+
+    public void testSetAll() {
+        ObservableArrayList<String> list = addAll("a", "b", "c");
+        list.addOnListChangedCallback(mListener);
+        list.setAll(Arrays.asList("a", "x", "c", "d", "e"));
+        assertEquals(Arrays.asList("a", "x", "c", "d", "e"), list);
+        assertEquals(2, mNotifications.size());
+        assertChange(mNotifications.get(0), CHANGE, 1, 1);
+        assertChange(mNotifications.get(1), INSERT, 3, 2);
+
+        mNotifications.clear();
+        list.setAll(Arrays.asList("a"));
+        assertEquals(Arrays.asList("a"), list);
+        assertEquals(1, mNotifications.size());
+        assertChange(mNotifications.get(0), REMOVE, 1, 4);
+    }
+
+    public void testBatchedUpdates() {
+        ObservableArrayList<String> list = addAll("a");
+        list.addOnListChangedCallback(mListener);
+        list.beginBatchedUpdates();
+        for (int i = 0; i < 500; i++) {
+            list.add("item" + i);
+        }
+        list.beginBatchedUpdates();
+        list.remove(list.size() - 1);
+        list.set(1, "first");
+        list.endBatchedUpdates();
+        assertTrue(mNotifications.isEmpty());
+        list.endBatchedUpdates();
+        assertEquals(500, list.size());
+        assertEquals(1, mNotifications.size());
+        assertChange(mNotifications.get(0), INSERT, 1, 499);
+
+        try {
+            list.endBatchedUpdates();
+            fail("endBatchedUpdates should fail without a batch");
+        } catch (IllegalStateException e) {
+        }
+    }
+
+    public void testBatchInCallback() {
+        final ObservableArrayList<String> list = addAll("x", "y", "z");
+        list.addOnListChangedCallback(mListener);
+        list.addOnListChangedCallback(new OnListChangedCallback() {
+            @Override
+            public void onChanged(ObservableList sender) {
+            }
+
+            @Override
+            public void onItemRangeChanged(ObservableList sender, int start, int count) {
+            }
+
+            @Override
+            public void onItemRangeInserted(ObservableList sender, int start, int count) {
+                // a new batch while the outer one is being sent
+                list.beginBatchedUpdates();
+                list.remove(list.size() - 1);
+                list.set(0, "b");
+                list.endBatchedUpdates();
+            }
+
+            @Override
+            public void onItemRangeMoved(ObservableList sender, int from, int to, int count) {
+            }
+
+            @Override
+            public void onItemRangeRemoved(ObservableList sender, int start, int count) {
+            }
+        });
+        list.beginBatchedUpdates();
+        list.add(0, "a");
+        list.set(3, "Z");
+        list.endBatchedUpdates();
+        assertEquals(Arrays.asList("b", "x", "y"), list);
+        assertEquals(4, mNotifications.size());
+        assertChange(mNotifications.get(0), INSERT, 0, 1);
+        assertChange(mNotifications.get(1), REMOVE, 3, 1);
+        assertChange(mNotifications.get(2), CHANGE, 0, 1);
+        assertChange(mNotifications.get(3), CHANGE, 3, 1);
+    }
+
+    public void testDeferredNotifications() {
+        ObservableArrayList<String> list = addAll("a", "b");
+        list.addOnListChangedCallback(mListener);
+        list.setDeferredNotifications(true);
+        for (int i = 0; i < 500; i++) {
+            list.add(1, "item" + i);
+        }
+        list.add("c");
+        list.remove(list.size() - 1);
+        list.set(0, "first");
+        assertTrue(mNotifications.isEmpty());
+        list.flushNotifications();
+        assertEquals(502, list.size());
+        assertEquals(2, mNotifications.size());
+        assertChange(mNotifications.get(0), CHANGE, 0, 1);
+        assertChange(mNotifications.get(1), INSERT, 1, 500);
+
+        mNotifications.clear();
+        list.remove(0);
+        assertTrue(mNotifications.isEmpty());
+        list.setDeferredNotifications(false);
+        assertEquals(1, mNotifications.size());
+        assertChange(mNotifications.get(0), REMOVE, 0, 1);
+    }
+
+    public void testSetAllWithDiff() {
+        ObservableArrayList<String> list = addAll("a1", "b1", "c1", "d1", "e1");
+        list.addOnListChangedCallback(mListener);
+        list.setAll(Arrays.asList("a1", "c2", "x1", "d1", "b1"), FIRST_LETTER);
+        assertEquals(Arrays.asList("a1", "c2", "x1", "d1", "b1"), list);
+        assertEquals(4, mNotifications.size());
+        assertChange(mNotifications.get(0), REMOVE, 4, 1);
+        assertChange(mNotifications.get(1), CHANGE, 2, 1);
+        assertChange(mNotifications.get(2), INSERT, 3, 1);
+        ListChange move = mNotifications.get(3);
+        assertEquals(MOVE, move.change);
+        assertEquals(1, move.from);
+        assertEquals(4, move.to);
+    }
+
+    public void testDiffOfModifiedList() {
+        ObservableArrayList<String> list = addAll("a1", "b1");
+        ListDiff.Result<String> result =
+                ListDiff.calculate(new ArrayList<>(list), Arrays.asList("b1", "c1"), FIRST_LETTER);
+        list.add("d1");
+        list.addOnListChangedCallback(mListener);
+        result.applyTo(list);
+        assertEquals(Arrays.asList("b1", "c1"), list);
+        assertFalse(mNotifications.isEmpty());
+    }
+
+    private static final ListDiff.Callback<String> FIRST_LETTER = new ListDiff.Callback<String>() {
+        @Override
+        public boolean areItemsTheSame(String oldItem, String newItem) {
+            return oldItem.charAt(0) == newItem.charAt(0);
+        }
+
+        @Override
+        public boolean areContentsTheSame(String oldItem, String newItem) {
+            return oldItem.equals(newItem);
+        }
+    };
+
+    private static ObservableArrayList<String> addAll(String... items) {
+        ObservableArrayList<String> list = new ObservableArrayList<>();
+        Collections.addAll(list, items);
+        return list;
+    }
+
+    private static void assertChange(ListChange change, int type, int start, int count) {
+        assertEquals(type, change.change);
+        assertEquals(start, change.start);
+        assertEquals(count, change.count);
+    }
 }
@@ -210,4 +210,68 @@ public class ObservableArrayMapTest extends BaseDataBinderTest<BasicBindingBindi
         assertEquals(1, mNotifications.size());
         assertEquals("Hello", mNotifications.get(0));
     }
+
+    public void testPutAllNotifiesAfterChanges() {
+        Map<String, String> toAdd = new ArrayMap<>();
+        toAdd.put("Hello", "World");
+        toAdd.put("Goodbye", "Cruel World");
+        mObservable.addOnMapChangedCallback(new OnMapChangedCallback() {
+            @Override
+            public void onMapChanged(ObservableMap observableMap, Object o) {
+                // every key is already in the map when the first one is notified
+                assertEquals(2, observableMap.size());
+            }
+        });
+        mObservable.addOnMapChangedCallback(mListener);
+        mObservable.putAll(toAdd);
+        assertEquals(2, mNotifications.size());
+    }
+
+    public void testPutAllManyKeys() {
+        Map<String, String> toAdd = new ArrayMap<>();
+        for (int i = 0; i <= ObservableArrayMap.MAX_BATCHED_KEYS; i++) {
+            toAdd.put("key" + i, "value" + i);
+        }
+        mObservable.addOnMapChangedCallback(mListener);
+        mObservable.putAll(toAdd);
+        assertEquals(ObservableArrayMap.MAX_BATCHED_KEYS + 1, mObservable.size());
+        assertEquals(1, mNotifications.size());
+        assertNull(mNotifications.get(0));
+
+        mNotifications.clear();
+        assertTrue(mObservable.removeAll(toAdd.keySet()));
+        assertTrue(mObservable.isEmpty());
+        assertEquals(1, mNotifications.size());
+        assertNull(mNotifications.get(0));
+    }
+
+    public void testBatchedUpdates() {
+        mObservable.put("Hello", "World");
+        mObservable.addOnMapChangedCallback(mListener);
+        mObservable.beginBatchedUpdates();
+        mObservable.put("Hello", "World2");
+        mObservable.beginBatchedUpdates();
+        mObservable.put("Goodbye", "Cruel World");
+        mObservable.remove("Hello");
+        mObservable.endBatchedUpdates();
+        assertTrue(mNotifications.isEmpty());
+        mObservable.endBatchedUpdates();
+        assertEquals(2, mNotifications.size());
+        assertEquals("Hello", mNotifications.get(0));
+        assertEquals("Goodbye", mNotifications.get(1));
+
+        mNotifications.clear();
+        mObservable.beginBatchedUpdates();
+        mObservable.put("Hello", "World");
+        mObservable.clear();
+        mObservable.endBatchedUpdates();
+        assertEquals(1, mNotifications.size());
+        assertNull(mNotifications.get(0));
+
+        try {
+            mObservable.endBatchedUpdates();
+            fail("endBatchedUpdates should fail without a batch");
+        } catch (IllegalStateException e) {
+        }
+    }
 }
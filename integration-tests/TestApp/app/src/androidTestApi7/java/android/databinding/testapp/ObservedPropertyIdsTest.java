@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+package android.databinding.testapp;
+
+import android.databinding.Observable.OnPropertyChangedCallback;
+import android.databinding.testapp.databinding.InnerCannotReadDependencyBinding;
+import android.databinding.testapp.vo.BasicObject;
+import android.test.UiThreadTest;
+
+import java.util.ArrayList;
+
+public class ObservedPropertyIdsTest extends
+        BaseDataBinderTest<InnerCannotReadDependencyBinding> {
+
+    public ObservedPropertyIdsTest() {
+        super(InnerCannotReadDependencyBinding.class);
+    }
+
+    @UiThreadTest
+    public void testOverriddenAddCallback() {
+        initBinder();
+        final ArrayList<OnPropertyChangedCallback> added =
+                new ArrayList<OnPropertyChangedCallback>();
+        BasicObject object = new BasicObject() {
+            @Override
+            public synchronized void addOnPropertyChangedCallback(
+                    OnPropertyChangedCallback callback) {
+                added.add(callback);
+                super.addOnPropertyChangedCallback(callback);
+            }
+
+            @Override
+            public synchronized void removeOnPropertyChangedCallback(
+                    OnPropertyChangedCallback callback) {
+                added.remove(callback);
+                super.removeOnPropertyChangedCallback(callback);
+            }
+        };
+        object.setField1("a");
+        mBinder.setObj(object);
+        mBinder.executePendingBindings();
+        // The binding registers through the override instead of the filtered add.
+        assertEquals(1, added.size());
+        assertEquals("a ", mBinder.textView.getText().toString());
+
+        object.setField1("b");
+        mBinder.executePendingBindings();
+        assertEquals("b ", mBinder.textView.getText().toString());
+
+        mBinder.setObj(null);
+        mBinder.executePendingBindings();
+        assertEquals(0, added.size());
+    }
+}
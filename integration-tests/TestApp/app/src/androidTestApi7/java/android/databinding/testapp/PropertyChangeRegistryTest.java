@@ -21,6 +21,8 @@ import android.databinding.testapp.databinding.BasicBindingBinding;
 import android.databinding.Observable;
 import android.databinding.Observable.OnPropertyChangedCallback;
 
+import java.util.ArrayList;
+
 public class PropertyChangeRegistryTest extends BaseDataBinderTest<BasicBindingBinding> {
 
     private int notificationCount = 0;
@@ -59,4 +61,116 @@ public class PropertyChangeRegistryTest extends BaseDataBinderTest<BasicBindingB
         propertyChangeRegistry.notifyChange(observableObj, expectedId);
         assertEquals(1, notificationCount);
     }
+
+    public void testFilteredCallback() {
+        PropertyChangeRegistry propertyChangeRegistry = new PropertyChangeRegistry();
+        final ArrayList<Integer> notifications = new ArrayList<>();
+        OnPropertyChangedCallback listener = new OnPropertyChangedCallback() {
+            @Override
+            public void onPropertyChanged(Observable observable, int id) {
+                notifications.add(id);
+            }
+        };
+        propertyChangeRegistry.add(listener, new int[] {3, 70});
+        assertEquals(1, propertyChangeRegistry.copyCallbacks().size());
+        assertSame(listener, propertyChangeRegistry.copyCallbacks().get(0));
+
+        propertyChangeRegistry.notifyChange(null, 1);
+        propertyChangeRegistry.notifyChange(null, 3);
+        propertyChangeRegistry.notifyChange(null, 69);
+        propertyChangeRegistry.notifyChange(null, 70);
+        propertyChangeRegistry.notifyChange(null, 200);
+        propertyChangeRegistry.notifyChange(null, 0);
+        assertEquals(3, notifications.size());
+        assertEquals(3, (int) notifications.get(0));
+        assertEquals(70, (int) notifications.get(1));
+        assertEquals(0, (int) notifications.get(2));
+
+        // Adding without ids removes the filter
+        notifications.clear();
+        propertyChangeRegistry.add(listener);
+        propertyChangeRegistry.notifyChange(null, 1);
+        assertEquals(1, notifications.size());
+
+        notifications.clear();
+        propertyChangeRegistry.add(listener, new int[] {2});
+        propertyChangeRegistry.notifyChange(null, 1);
+        assertTrue(notifications.isEmpty());
+        propertyChangeRegistry.remove(listener);
+        assertTrue(propertyChangeRegistry.isEmpty());
+        propertyChangeRegistry.notifyChange(null, 2);
+        assertTrue(notifications.isEmpty());
+    }
+
+    public void testFilteredCallbacksShareIds() {
+        PropertyChangeRegistry propertyChangeRegistry = new PropertyChangeRegistry();
+        final ArrayList<String> notifications = new ArrayList<>();
+        OnPropertyChangedCallback first = new OnPropertyChangedCallback() {
+            @Override
+            public void onPropertyChanged(Observable observable, int id) {
+                notifications.add("first " + id);
+            }
+        };
+        OnPropertyChangedCallback second = new OnPropertyChangedCallback() {
+            @Override
+            public void onPropertyChanged(Observable observable, int id) {
+                notifications.add("second " + id);
+            }
+        };
+        final int[] propertyIds = {1, 4};
+        propertyChangeRegistry.add(first, propertyIds);
+        propertyChangeRegistry.add(second, propertyIds);
+        assertEquals(2, propertyChangeRegistry.copyCallbacks().size());
+
+        propertyChangeRegistry.notifyChange(null, 4);
+        propertyChangeRegistry.notifyChange(null, 2);
+        assertEquals(2, notifications.size());
+        assertEquals("first 4", notifications.get(0));
+        assertEquals("second 4", notifications.get(1));
+
+        notifications.clear();
+        PropertyChangeRegistry clone = propertyChangeRegistry.clone();
+        propertyChangeRegistry.remove(first);
+        propertyChangeRegistry.notifyChange(null, 1);
+        assertEquals(1, notifications.size());
+        assertEquals("second 1", notifications.get(0));
+
+        notifications.clear();
+        clone.notifyChange(null, 0);
+        assertEquals(2, notifications.size());
+        assertEquals("first 0", notifications.get(0));
+        assertEquals("second 0", notifications.get(1));
+    }
+
+    public void testFilteredCallbacksKeepOrder() {
+        PropertyChangeRegistry propertyChangeRegistry = new PropertyChangeRegistry();
+        final ArrayList<String> notifications = new ArrayList<>();
+        OnPropertyChangedCallback[] callbacks = new OnPropertyChangedCallback[4];
+        for (int i = 0; i < callbacks.length; i++) {
+            final String name = "callback" + i;
+            callbacks[i] = new OnPropertyChangedCallback() {
+                @Override
+                public void onPropertyChanged(Observable observable, int id) {
+                    notifications.add(name);
+                }
+            };
+        }
+        propertyChangeRegistry.add(callbacks[0]);
+        propertyChangeRegistry.add(callbacks[1], new int[] {2});
+        propertyChangeRegistry.add(callbacks[2]);
+        propertyChangeRegistry.add(callbacks[3], new int[] {3});
+
+        propertyChangeRegistry.notifyChange(null, 2);
+        assertEquals(3, notifications.size());
+        assertEquals("callback0", notifications.get(0));
+        assertEquals("callback1", notifications.get(1));
+        assertEquals("callback2", notifications.get(2));
+
+        notifications.clear();
+        propertyChangeRegistry.notifyChange(null, 0);
+        assertEquals(4, notifications.size());
+        for (int i = 0; i < callbacks.length; i++) {
+            assertEquals("callback" + i, notifications.get(i));
+        }
+    }
 }
@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package android.databinding.testapp;
+
+import android.databinding.DataBindingUtil;
+import android.databinding.OnRebindCallback;
+import android.databinding.RebindPolicy;
+import android.databinding.ViewDataBinding;
+import android.databinding.testapp.databinding.BasicBindingBinding;
+import android.os.SystemClock;
+import android.test.ActivityInstrumentationTestCase2;
+import android.widget.LinearLayout;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class RebindPolicyTest extends ActivityInstrumentationTestCase2<TestActivity> {
+    private static final long REBIND_MILLIS = 20;
+
+    private final List<ViewDataBinding> mRebound = new ArrayList<ViewDataBinding>();
+    private final List<int[]> mFrames = new ArrayList<int[]>();
+    private final CountDownLatch mLatch = new CountDownLatch(1);
+
+    public RebindPolicyTest() {
+        super(TestActivity.class);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        DataBindingUtil.setRebindPolicy(null);
+        super.tearDown();
+    }
+
+    public void testNegativeBudget() {
+        try {
+            new RebindPolicy(-1);
+            fail("a negative budget should be rejected");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        assertEquals(5, new RebindPolicy(5).getFrameBudgetNanos());
+    }
+
+    public void testBudgetRespected() throws Throwable {
+        final BasicBindingBinding[] bindings = createBindings(5, true);
+        // Two slow bindings always exceed the budget, so no frame rebinds more than two.
+        rebindAll(bindings, TimeUnit.MILLISECONDS.toNanos(REBIND_MILLIS * 3 / 2));
+        int reboundCount = 0;
+        for (int[] frame : mFrames) {
+            assertTrue(frame[0] >= 1);
+            assertTrue(frame[0] <= 2);
+            reboundCount += frame[0];
+        }
+        assertEquals(bindings.length, reboundCount);
+        assertTrue(mFrames.size() >= 3);
+        assertEquals(0, mFrames.get(mFrames.size() - 1)[1]);
+    }
+
+    public void testLargeBudgetRebindsAllInOneFrame() throws Throwable {
+        final BasicBindingBinding[] bindings = createBindings(3, false);
+        rebindAll(bindings, TimeUnit.SECONDS.toNanos(10));
+        assertEquals(1, mFrames.size());
+        assertTrue(Arrays.equals(new int[] {3, 0}, mFrames.get(0)));
+    }
+
+    public void testDeferredBindingsFirst() throws Throwable {
+        final BasicBindingBinding[] bindings = createBindings(4, false);
+        runTestOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                // bindings[3] requests its rebind while the first frame is rebinding.
+                bindings[0].addOnRebindCallback(new OnRebindCallback<ViewDataBinding>() {
+                    @Override
+                    public void onBound(ViewDataBinding binding) {
+                        bindings[3].setA("late");
+                    }
+                });
+            }
+        });
+        // A zero budget still rebinds one binding in every frame.
+        rebindAll(new BasicBindingBinding[] {bindings[0], bindings[1], bindings[2]}, 0);
+        assertEquals(4, mFrames.size());
+        for (int[] frame : mFrames) {
+            assertEquals(1, frame[0]);
+        }
+        assertEquals(Arrays.<ViewDataBinding>asList(bindings), mRebound);
+        assertEquals("latenull", bindings[3].textView.getText().toString());
+    }
+
+    private BasicBindingBinding[] createBindings(final int count, final boolean slow)
+            throws Throwable {
+        final BasicBindingBinding[] bindings = new BasicBindingBinding[count];
+        runTestOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                LinearLayout root = new LinearLayout(getActivity());
+                for (int i = 0; i < count; i++) {
+                    bindings[i] = BasicBindingBinding.inflate(getActivity().getLayoutInflater(),
+                            root, true);
+                    bindings[i].executePendingBindings();
+                    bindings[i].addOnRebindCallback(new OnRebindCallback<ViewDataBinding>() {
+                        @Override
+                        public boolean onPreBind(ViewDataBinding binding) {
+                            mRebound.add(binding);
+                            if (slow) {
+                                SystemClock.sleep(REBIND_MILLIS);
+                            }
+                            return true;
+                        }
+                    });
+                }
+                getActivity().setContentView(root);
+            }
+        });
+        getInstrumentation().waitForIdleSync();
+        return bindings;
+    }
+
+    private void rebindAll(final BasicBindingBinding[] bindings, final long budgetNanos)
+            throws Throwable {
+        runTestOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                DataBindingUtil.setRebindPolicy(new RebindPolicy(budgetNanos) {
+                    @Override
+                    public void onFrameRebound(int reboundCount, int deferredCount) {
+                        mFrames.add(new int[] {reboundCount, deferredCount});
+                        if (deferredCount == 0) {
+                            mLatch.countDown();
+                        }
+                    }
+                });
+                for (int i = 0; i < bindings.length; i++) {
+                    bindings[i].setA("a" + i);
+                }
+            }
+        });
+        assertTrue(mLatch.await(5, TimeUnit.SECONDS));
+        getInstrumentation().waitForIdleSync();
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package android.databinding.testapp;
+
+import android.databinding.DataBindingUtil;
+import android.databinding.OnRebindCallback;
+import android.databinding.RebindPolicy;
+import android.databinding.ViewDataBinding;
+import android.databinding.testapp.databinding.BasicBindingBinding;
+import android.databinding.testapp.databinding.LayoutWithIncludeBinding;
+import android.databinding.testapp.databinding.ViewStubBinding;
+import android.databinding.testapp.databinding.ViewStubContentsBinding;
+import android.databinding.testapp.vo.NotBindableVo;
+import android.test.ActivityInstrumentationTestCase2;
+import android.view.View;
+import android.widget.LinearLayout;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class RebindSchedulerTest extends ActivityInstrumentationTestCase2<TestActivity> {
+    private final List<ViewDataBinding> mRebound = new ArrayList<ViewDataBinding>();
+    private final CountDownLatch mLatch = new CountDownLatch(1);
+
+    public RebindSchedulerTest() {
+        super(TestActivity.class);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        DataBindingUtil.setRebindPolicy(null);
+        super.tearDown();
+    }
+
+    public void testContainingBindingFirst() throws Throwable {
+        final LayoutWithIncludeBinding[] binding = new LayoutWithIncludeBinding[1];
+        runTestOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                binding[0] = LayoutWithIncludeBinding.inflate(getActivity().getLayoutInflater());
+                getActivity().setContentView(binding[0].getRoot());
+                binding[0].setOuterObject(new NotBindableVo(1, "a"));
+                binding[0].executePendingBindings();
+                record(binding[0], true);
+                record(binding[0].includedLayout, false);
+                // The included binding requests its rebind first.
+                binding[0].includedLayout.setInnerValue("inner");
+                binding[0].setOuterObject(new NotBindableVo(2, "b"));
+            }
+        });
+        assertTrue(mLatch.await(5, TimeUnit.SECONDS));
+        getInstrumentation().waitForIdleSync();
+        // The included binding was rebound by its containing binding and then skipped.
+        assertEquals(Arrays.<ViewDataBinding>asList(binding[0], binding[0].includedLayout),
+                mRebound);
+        assertEquals("modified 2b",
+                binding[0].includedLayout.innerTextView.getText().toString());
+    }
+
+    public void testViewStubBindingSkipped() throws Throwable {
+        final ViewStubBinding[] binding = new ViewStubBinding[1];
+        final ViewStubContentsBinding[] contents = new ViewStubContentsBinding[1];
+        runTestOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                binding[0] = ViewStubBinding.inflate(getActivity().getLayoutInflater());
+                getActivity().setContentView(binding[0].getRoot());
+                binding[0].setViewStubVisibility(View.VISIBLE);
+                binding[0].setFirstName("a");
+                binding[0].executePendingBindings();
+                contents[0] = (ViewStubContentsBinding) binding[0].viewStub.getBinding();
+                record(binding[0], true);
+                record(contents[0], false);
+                contents[0].setFirstName("x");
+                binding[0].setFirstName("b");
+            }
+        });
+        assertTrue(mLatch.await(5, TimeUnit.SECONDS));
+        getInstrumentation().waitForIdleSync();
+        assertEquals(Arrays.<ViewDataBinding>asList(binding[0], contents[0]), mRebound);
+        assertEquals("b", contents[0].firstNameContents.getText().toString());
+    }
+
+    public void testFrameBudgetCarryOver() throws Throwable {
+        final List<int[]> frames = new ArrayList<int[]>();
+        final BasicBindingBinding[] bindings = new BasicBindingBinding[3];
+        runTestOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                LinearLayout root = new LinearLayout(getActivity());
+                for (int i = 0; i < bindings.length; i++) {
+                    bindings[i] = BasicBindingBinding.inflate(getActivity().getLayoutInflater(),
+                            root, true);
+                    bindings[i].executePendingBindings();
+                    record(bindings[i], false);
+                }
+                getActivity().setContentView(root);
+                // Only one binding fits in each frame.
+                DataBindingUtil.setRebindPolicy(new RebindPolicy(0) {
+                    @Override
+                    public void onFrameRebound(int reboundCount, int deferredCount) {
+                        frames.add(new int[] {reboundCount, deferredCount});
+                        if (deferredCount == 0) {
+                            mLatch.countDown();
+                        }
+                    }
+                });
+                for (int i = 0; i < bindings.length; i++) {
+                    bindings[i].setA("a" + i);
+                }
+            }
+        });
+        assertTrue(mLatch.await(5, TimeUnit.SECONDS));
+        getInstrumentation().waitForIdleSync();
+        assertEquals(3, frames.size());
+        assertTrue(Arrays.equals(new int[] {1, 2}, frames.get(0)));
+        assertTrue(Arrays.equals(new int[] {1, 1}, frames.get(1)));
+        assertTrue(Arrays.equals(new int[] {1, 0}, frames.get(2)));
+        // The deferred bindings keep their order.
+        assertEquals(Arrays.<ViewDataBinding>asList(bindings), mRebound);
+        for (int i = 0; i < bindings.length; i++) {
+            assertEquals("a" + i + "null", bindings[i].textView.getText().toString());
+        }
+    }
+
+    private void record(ViewDataBinding binding, final boolean countDown) {
+        binding.addOnRebindCallback(new OnRebindCallback<ViewDataBinding>() {
+            @Override
+            public boolean onPreBind(ViewDataBinding binding) {
+                mRebound.add(binding);
+                return true;
+            }
+
+            @Override
+            public void onBound(ViewDataBinding binding) {
+                if (countDown) {
+                    mLatch.countDown();
+                }
+            }
+        });
+    }
+}
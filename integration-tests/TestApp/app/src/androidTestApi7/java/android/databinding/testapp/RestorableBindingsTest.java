@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package android.databinding.testapp;
+
+import android.databinding.testapp.databinding.AsyncBindingsBinding;
+import android.databinding.testapp.databinding.RestorableBindingsBinding;
+import android.databinding.testapp.vo.RestoredValueVo;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.test.UiThreadTest;
+
+public class RestorableBindingsTest extends BaseDataBinderTest<RestorableBindingsBinding> {
+    public RestorableBindingsTest() {
+        super(RestorableBindingsBinding.class);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        initBinder(new Runnable() {
+            @Override
+            public void run() {
+                mBinder.setName("hello");
+                mBinder.setCount(3);
+                mBinder.executePendingBindings();
+            }
+        });
+    }
+
+    @UiThreadTest
+    public void testRestoreWithSameVariables() {
+        final Parcelable state = parcel(mBinder.saveBindingState());
+        final RestorableBindingsBinding binding = newBinding("hello", 3);
+        RestoredValueVo.sDecorateCount = 0;
+        assertTrue(binding.restoreBindingState(state));
+        binding.executePendingBindings();
+        assertEquals(0, RestoredValueVo.sDecorateCount);
+        assertEquals("[hello]", binding.nameText.getText().toString());
+        assertEquals("[3 items]", binding.countText.getText().toString());
+    }
+
+    @UiThreadTest
+    public void testRestoreWithChangedVariable() {
+        final Parcelable state = parcel(mBinder.saveBindingState());
+        final RestorableBindingsBinding binding = newBinding("hello", 5);
+        RestoredValueVo.sDecorateCount = 0;
+        assertTrue(binding.restoreBindingState(state));
+        binding.executePendingBindings();
+        assertEquals(1, RestoredValueVo.sDecorateCount);
+        assertEquals("[hello]", binding.nameText.getText().toString());
+        assertEquals("[5 items]", binding.countText.getText().toString());
+
+        binding.setCount(1);
+        binding.executePendingBindings();
+        assertEquals("[hello]", binding.nameText.getText().toString());
+        assertEquals("one item", binding.countText.getText().toString());
+    }
+
+    @UiThreadTest
+    public void testRestorePendingBindings() {
+        mBinder.setName("world");
+        final Parcelable state = parcel(mBinder.saveBindingState());
+        final RestorableBindingsBinding binding = newBinding("world", 3);
+        RestoredValueVo.sDecorateCount = 0;
+        assertTrue(binding.restoreBindingState(state));
+        binding.executePendingBindings();
+        assertEquals(1, RestoredValueVo.sDecorateCount);
+        assertEquals("[world]", binding.nameText.getText().toString());
+        assertEquals("[3 items]", binding.countText.getText().toString());
+    }
+
+    @UiThreadTest
+    public void testBindingsNotRestorable() {
+        final AsyncBindingsBinding other =
+                AsyncBindingsBinding.inflate(getActivity().getLayoutInflater());
+        assertNull(other.saveBindingState());
+        assertFalse(other.restoreBindingState(parcel(mBinder.saveBindingState())));
+
+        final RestorableBindingsBinding binding = newBinding("hello", 3);
+        assertFalse(binding.restoreBindingState(null));
+        binding.executePendingBindings();
+        assertEquals("[hello]", binding.nameText.getText().toString());
+        assertEquals("[3 items]", binding.countText.getText().toString());
+    }
+
+    private RestorableBindingsBinding newBinding(String name, int count) {
+        final RestorableBindingsBinding binding =
+                RestorableBindingsBinding.inflate(getActivity().getLayoutInflater());
+        binding.setName(name);
+        binding.setCount(count);
+        return binding;
+    }
+
+    private static Parcelable parcel(Parcelable state) {
+        final Parcel parcel = Parcel.obtain();
+        try {
+            parcel.writeParcelable(state, 0);
+            parcel.setDataPosition(0);
+            return parcel.readParcelable(RestorableBindingsTest.class.getClassLoader());
+        } finally {
+            parcel.recycle();
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package android.databinding.testapp;
+
+import android.databinding.testapp.databinding.ObservableFieldTestBinding;
+import android.databinding.testapp.vo.ObservableFieldBindingObject;
+import android.os.Build;
+import android.view.ViewGroup;
+
+public class SuspendObserversTest extends BaseDataBinderTest<ObservableFieldTestBinding> {
+    private ObservableFieldBindingObject mObj;
+
+    public SuspendObserversTest() {
+        super(ObservableFieldTestBinding.class);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        initBinder(new Runnable() {
+            @Override
+            public void run() {
+                mObj = new ObservableFieldBindingObject();
+                mBinder.setObj(mObj);
+                mBinder.executePendingBindings();
+                mBinder.setSuspendObserversWhenDetached(true);
+            }
+        });
+        getInstrumentation().waitForIdleSync();
+    }
+
+    public void testSuspendWhileDetached() throws Throwable {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.HONEYCOMB_MR1) {
+            return;
+        }
+        assertTrue(mBinder.getSuspendObserversWhenDetached());
+        runTestOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                assertTrue(mBinder.getRoot().getWindowToken() != null);
+                ((ViewGroup) mBinder.getRoot().getParent()).removeView(mBinder.getRoot());
+                mObj.iField.set(5);
+                assertFalse(mBinder.hasPendingBindings());
+                assertEquals("0", mBinder.iField.getText().toString());
+                getActivity().setContentView(mBinder.getRoot());
+            }
+        });
+        getInstrumentation().waitForIdleSync();
+        runTestOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                assertFalse(mBinder.hasPendingBindings());
+                assertEquals("5", mBinder.iField.getText().toString());
+                mObj.iField.set(6);
+                assertTrue(mBinder.hasPendingBindings());
+                mBinder.executePendingBindings();
+                assertEquals("6", mBinder.iField.getText().toString());
+            }
+        });
+    }
+
+    public void testExecuteWhileSuspended() throws Throwable {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.HONEYCOMB_MR1) {
+            return;
+        }
+        final ObservableFieldBindingObject other = new ObservableFieldBindingObject();
+        runTestOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                ((ViewGroup) mBinder.getRoot().getParent()).removeView(mBinder.getRoot());
+                other.iField.set(3);
+                mBinder.setObj(other);
+                mBinder.executePendingBindings();
+                assertEquals("3", mBinder.iField.getText().toString());
+                // executing while suspended must not register the new object
+                other.iField.set(4);
+                mObj.iField.set(5);
+                assertFalse(mBinder.hasPendingBindings());
+                getActivity().setContentView(mBinder.getRoot());
+            }
+        });
+        getInstrumentation().waitForIdleSync();
+        runTestOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                assertEquals("4", mBinder.iField.getText().toString());
+                other.iField.set(6);
+                assertTrue(mBinder.hasPendingBindings());
+                mBinder.executePendingBindings();
+                assertEquals("6", mBinder.iField.getText().toString());
+            }
+        });
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package android.databinding.testapp;
+
+import android.databinding.DataBindingUtil;
+import android.databinding.testapp.databinding.ViewPathsBinding;
+
+import android.test.UiThreadTest;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.widget.FrameLayout;
+import android.widget.LinearLayout;
+
+public class ViewPathsTest extends BaseDataBinderTest<ViewPathsBinding> {
+    public ViewPathsTest() {
+        super(ViewPathsBinding.class);
+    }
+
+    @UiThreadTest
+    public void testViewPaths() {
+        initBinder();
+        mBinder.setName("hello");
+        mBinder.executePendingBindings();
+        LinearLayout root = (LinearLayout) mBinder.getRoot();
+        assertSame(root.getChildAt(0), mBinder.first);
+        assertSame(root.getChildAt(1), mBinder.frame);
+        assertSame(mBinder.frame.getChildAt(0), mBinder.nested);
+        assertSame(root.getChildAt(2), mBinder.included.getRoot());
+        assertEquals("hello", mBinder.first.getText().toString());
+        assertEquals("hello!", mBinder.nested.getText().toString());
+        assertEquals("hellonull", mBinder.included.innerTextView.getText().toString());
+    }
+
+    @UiThreadTest
+    public void testChangedHierarchyIsWalked() {
+        LayoutInflater inflater = getActivity().getLayoutInflater();
+        LinearLayout root = (LinearLayout) inflater.inflate(R.layout.view_paths, null, false);
+        FrameLayout frame = (FrameLayout) root.getChildAt(1);
+        View nested = frame.getChildAt(0);
+        frame.addView(new View(getActivity()), 0);
+        ViewPathsBinding binding = DataBindingUtil.bind(root);
+        assertSame(frame, binding.frame);
+        assertSame(nested, binding.nested);
+        assertSame(root.getChildAt(2), binding.included.getRoot());
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package android.databinding.testapp;
+
+import android.databinding.testapp.databinding.VisibilityGateBinding;
+
+import android.test.UiThreadTest;
+import android.view.View;
+
+public class VisibilityGateTest extends BaseDataBinderTest<VisibilityGateBinding> {
+    public VisibilityGateTest() {
+        super(VisibilityGateBinding.class);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        initBinder(new Runnable() {
+            @Override
+            public void run() {
+                mBinder.setShow(false);
+                mBinder.setName("hello");
+                mBinder.executePendingBindings();
+            }
+        });
+    }
+
+    @UiThreadTest
+    public void testSettersDeferredWhileGone() {
+        assertEquals(View.GONE, mBinder.section.getVisibility());
+        assertEquals("hello", mBinder.outsideText.getText().toString());
+        assertEquals("", mBinder.insideText.getText().toString());
+
+        mBinder.setName("world");
+        mBinder.executePendingBindings();
+        assertEquals("world", mBinder.outsideText.getText().toString());
+        assertEquals("", mBinder.insideText.getText().toString());
+        assertFalse(mBinder.hasPendingBindings());
+
+        mBinder.setShow(true);
+        mBinder.executePendingBindings();
+        assertEquals(View.VISIBLE, mBinder.section.getVisibility());
+        assertEquals("world", mBinder.insideText.getText().toString());
+        assertFalse(mBinder.hasPendingBindings());
+
+        mBinder.setName("again");
+        mBinder.executePendingBindings();
+        assertEquals("again", mBinder.insideText.getText().toString());
+    }
+}